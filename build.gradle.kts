@@ -8,6 +8,7 @@ plugins {
 
     id("com.github.ben-manes.versions") version "0.44.0"
     id("org.jetbrains.dokka") version "1.7.20"
+    id("me.champeau.jmh") version "0.6.8"
     idea
 }
 
@@ -42,6 +43,11 @@ kotlin {
     jvmToolchain(17)
 }
 
+// benchmarks in src/jmh, run with ./gradlew jmh
+jmh {
+    jmhVersion.set("1.36")
+}
+
 tasks {
     withType<JavaExec> {
         enableAssertions = true
@@ -57,7 +63,7 @@ tasks {
         kotlinOptions {
             apiVersion = "1.7"
             languageVersion = "1.7"
-            freeCompilerArgs = listOf("-Xcontext-receivers")
+            freeCompilerArgs = listOf("-Xcontext-receivers", "-Xjvm-default=all")
         }
     }
     withType<DependencyUpdatesTask> {
@@ -0,0 +1,116 @@
+package de.hpi.dbs2.exercise2;
+
+import exercise2.BPlusTreeJava;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the [AdaptiveRadixTree] with [BPlusTreeJava] on int keys.
+ * Dense keys are 0 to keyCount - 1, sparse keys are random ints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntIndexBenchmark {
+    private static final int RANGE_LENGTH = 100;
+
+    @Param({"ART", "BPLUS_TREE"})
+    public String indexType;
+
+    @Param({"DENSE", "SPARSE"})
+    public String keyDistribution;
+
+    @Param({"100000"})
+    public int keyCount;
+
+    @Param({"64"})
+    public int order;
+
+    /**
+     * The keys in random order
+     */
+    private int[] keys;
+    private int[] sortedKeys;
+    private Index<Integer, ValueReference> index;
+    private int position = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        IntStream keyStream = keyDistribution.equals("DENSE")
+            ? IntStream.range(0, keyCount)
+            : random.ints().distinct().limit(keyCount);
+        List<Integer> keyList = new ArrayList<>(keyStream.boxed().toList());
+        Collections.shuffle(keyList, random);
+        keys = keyList.stream().mapToInt(Integer::intValue).toArray();
+        sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        index = fill(createIndex());
+    }
+
+    private Index<Integer, ValueReference> createIndex() {
+        return indexType.equals("ART")
+            ? new AdaptiveRadixTree<>(AdaptiveRadixTree.INTEGERS)
+            : new BPlusTreeJava(order);
+    }
+
+    private Index<Integer, ValueReference> fill(Index<Integer, ValueReference> emptyIndex) {
+        for (int key : keys) {
+            emptyIndex.insert(key, new ValueReference(key));
+        }
+        return emptyIndex;
+    }
+
+    private int nextPosition(int length) {
+        if (++position >= length) position = 0;
+        return position;
+    }
+
+    @Benchmark
+    public ValueReference get() {
+        return index.getOrNull(keys[nextPosition(keys.length)]);
+    }
+
+    /**
+     * Measures building a whole index of keyCount entries in random key order.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Index<Integer, ValueReference> insert() {
+        return fill(createIndex());
+    }
+
+    /**
+     * Scans RANGE_LENGTH consecutive entries.
+     */
+    @Benchmark
+    public void getRange(Blackhole blackhole) {
+        int start = nextPosition(sortedKeys.length - RANGE_LENGTH);
+        Iterator<ValueReference> range = index.getRange(sortedKeys[start], sortedKeys[start + RANGE_LENGTH - 1]);
+        while (range.hasNext()) {
+            blackhole.consume(range.next());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package de.hpi.dbs2.exercise2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the [AdaptiveRadixTree] with a B+-Tree on IMDB-like string identifiers, which share long prefixes.
+ * [exercise2.BPlusTreeJava] only supports int keys, so the [GenericBPlusTree] with the same order is used instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringIndexBenchmark {
+    private static final int RANGE_LENGTH = 100;
+
+    @Param({"ART", "BPLUS_TREE"})
+    public String indexType;
+
+    @Param({"100000"})
+    public int keyCount;
+
+    @Param({"64"})
+    public int order;
+
+    /**
+     * The keys in random order
+     */
+    private String[] keys;
+    private String[] sortedKeys;
+    private Index<String, ValueReference> index;
+    private int position = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        List<String> keyList = new ArrayList<>(random.ints(0, 10_000_000).distinct().limit(keyCount)
+            .mapToObj(id -> String.format("tt%07d", id))
+            .toList());
+        Collections.shuffle(keyList, random);
+        keys = keyList.toArray(new String[0]);
+        sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        index = fill(createIndex());
+    }
+
+    private Index<String, ValueReference> createIndex() {
+        return indexType.equals("ART")
+            ? new AdaptiveRadixTree<>(AdaptiveRadixTree.STRINGS)
+            : new GenericBPlusTree<>(order, Comparator.<String>naturalOrder());
+    }
+
+    private Index<String, ValueReference> fill(Index<String, ValueReference> emptyIndex) {
+        for (int i = 0; i < keys.length; i++) {
+            emptyIndex.insert(keys[i], new ValueReference(i));
+        }
+        return emptyIndex;
+    }
+
+    private int nextPosition(int length) {
+        if (++position >= length) position = 0;
+        return position;
+    }
+
+    @Benchmark
+    public ValueReference get() {
+        return index.getOrNull(keys[nextPosition(keys.length)]);
+    }
+
+    /**
+     * Measures building a whole index of keyCount entries in random key order.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Index<String, ValueReference> insert() {
+        return fill(createIndex());
+    }
+
+    /**
+     * Scans RANGE_LENGTH consecutive entries.
+     */
+    @Benchmark
+    public void getRange(Blackhole blackhole) {
+        int start = nextPosition(sortedKeys.length - RANGE_LENGTH);
+        Iterator<ValueReference> range = index.getRange(sortedKeys[start], sortedKeys[start + RANGE_LENGTH - 1]);
+        while (range.hasNext()) {
+            blackhole.consume(range.next());
+        }
+    }
+}
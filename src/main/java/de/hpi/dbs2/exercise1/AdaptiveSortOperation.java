@@ -0,0 +1,171 @@
+package de.hpi.dbs2.exercise1;
+
+import de.hpi.dbs2.dbms.*;
+import de.hpi.dbs2.dbms.utils.BlockSorter;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A TPMMS variant for input which is already (mostly) sorted by column [sortColumnIndex].
+ *
+ * <p>Phase 1 loads memory-sized chunks like TPMMS, but only sorts and writes a chunk if its tuples are out of order.
+ * Chunks which are already in order keep their blocks on disk as they are.
+ * Consecutive chunks whose tuples continue each other in order are combined into one natural run,
+ * so phase 2 has to merge fewer runs. A sorted input forms a single run, which is read once more
+ * and copied to the output without any comparisons.
+ */
+public class AdaptiveSortOperation extends SortOperation {
+    public AdaptiveSortOperation(@NotNull BlockManager manager, int sortColumnIndex) {
+        super(manager, sortColumnIndex);
+    }
+
+    /**
+     * Without knowing the order of the input, this assumes that every chunk has to be sorted.
+     */
+    @Override
+    public int estimatedIOCost(@NotNull Relation inputRelation) {
+        int blockCount = inputRelation.estimatedBlockCount();
+        if (fitsInMemory(blockCount)) {
+            return blockCount;
+        }
+        // every run block is written once and read back once
+        return 3 * blockCount;
+    }
+
+    private boolean fitsInMemory(int blockCount) {
+        // one block is needed for the output
+        return blockCount <= getBlockManager().getFreeBlocks() - 1;
+    }
+
+    @Override
+    public void sort(@NotNull Relation inputRelation, @NotNull Relation outputRelation) {
+        BlockManager blockManager = getBlockManager();
+        ColumnDefinition columns = inputRelation.getColumns();
+        Comparator<Tuple> tupleComparator = columns.getColumnComparator(getSortColumnIndex());
+
+        int blockCount = inputRelation.estimatedBlockCount();
+        if (blockCount == 0) return;
+
+        if (fitsInMemory(blockCount)) {
+            List<Block> chunk = loadChunk(inputRelation.iterator(), blockCount, new ArrayList<>());
+            if (!isSorted(chunk, tupleComparator)) {
+                BlockSorter.INSTANCE.sort(chunk, columns, getSortColumnIndex());
+            }
+            RelationUtils.fill(outputRelation, blockManager, filler -> {
+                for (Block block : chunk) {
+                    block.forEach(filler::add);
+                    blockManager.release(block, false);
+                }
+            });
+            return;
+        }
+
+        int freeBlocks = blockManager.getFreeBlocks();
+        if (blockCount > freeBlocks * (freeBlocks - 1)) {
+            throw new RelationSizeExceedsCapacityException();
+        }
+
+        // Phase 1: natural runs
+        List<List<Block>> runs = new ArrayList<>();
+        List<Block> currentRun = null;
+        Tuple currentRunLastTuple = null;
+        Iterator<Block> blockIterator = inputRelation.iterator();
+        while (blockIterator.hasNext()) {
+            List<Block> blockReferences = new ArrayList<>(freeBlocks);
+            List<Block> chunk = loadChunk(blockIterator, freeBlocks, blockReferences);
+            if (chunk.isEmpty()) continue;
+
+            // unchanged blocks do not need to be written back
+            boolean changed = !isSorted(chunk, tupleComparator);
+            if (changed) {
+                BlockSorter.INSTANCE.sort(chunk, columns, getSortColumnIndex());
+            }
+
+            Tuple firstTuple = chunk.get(0).get(0);
+            Block lastBlock = chunk.get(chunk.size() - 1);
+            if (currentRun == null || tupleComparator.compare(currentRunLastTuple, firstTuple) > 0) {
+                currentRun = new ArrayList<>();
+                runs.add(currentRun);
+            }
+            currentRunLastTuple = lastBlock.get(lastBlock.getSize() - 1);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (changed) {
+                    currentRun.add(blockManager.release(chunk.get(i), true));
+                } else {
+                    // the block is unchanged on disk, so the reference from the relation stays valid
+                    blockManager.release(chunk.get(i), false);
+                    currentRun.add(blockReferences.get(i));
+                }
+            }
+        }
+        // the input only consisted of empty blocks
+        if (runs.isEmpty()) return;
+
+        // Phase 2: merge the runs, a single run is only copied
+        RelationUtils.fill(outputRelation, blockManager, filler -> {
+            if (runs.size() == 1) {
+                RunCursor cursor = new RunCursor(blockManager, runs.get(0));
+                do {
+                    filler.add(cursor.current());
+                } while (cursor.advance());
+                return;
+            }
+
+            PriorityQueue<RunCursor> cursors = new PriorityQueue<>(
+                runs.size(),
+                (cursor1, cursor2) -> tupleComparator.compare(cursor1.current(), cursor2.current())
+            );
+            for (List<Block> run : runs) {
+                cursors.add(new RunCursor(blockManager, run));
+            }
+            while (!cursors.isEmpty()) {
+                RunCursor cursor = cursors.poll();
+                filler.add(cursor.current());
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads up to chunkSize non-empty blocks, empty blocks are released again right away.
+     * @param blockReferences receives the references of the loaded blocks as returned by the iterator
+     */
+    private List<Block> loadChunk(Iterator<Block> blockIterator, int chunkSize, List<Block> blockReferences) {
+        List<Block> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && blockIterator.hasNext()) {
+            Block blockReference = blockIterator.next();
+            Block block = getBlockManager().load(blockReference);
+            if (block.isEmpty()) {
+                getBlockManager().release(block, false);
+                continue;
+            }
+            chunk.add(block);
+            blockReferences.add(blockReference);
+        }
+        return chunk;
+    }
+
+    /**
+     * @return whether the tuples of the given loaded blocks are in order, using one comparison per tuple
+     */
+    private static boolean isSorted(List<Block> chunk, Comparator<Tuple> tupleComparator) {
+        Tuple previousTuple = null;
+        for (Block block : chunk) {
+            for (Tuple tuple : block) {
+                if (previousTuple != null && tupleComparator.compare(previousTuple, tuple) > 0) {
+                    return false;
+                }
+                previousTuple = tuple;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package de.hpi.dbs2.exercise1;
+
+import de.hpi.dbs2.dbms.Block;
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.Tuple;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the tuples of a sorted run (a list of non-empty block references) one block at a time.
+ * Only the block of the current tuple is loaded.
+ */
+class RunCursor {
+    private final BlockManager blockManager;
+    private final Iterator<Block> remainingBlocks;
+    private Block block;
+    private int position;
+
+    RunCursor(BlockManager blockManager, List<Block> run) {
+        this.blockManager = blockManager;
+        this.remainingBlocks = run.iterator();
+        loadNextBlock();
+    }
+
+    Tuple current() {
+        return block.get(position);
+    }
+
+    /**
+     * @return false if the run has no more tuples
+     */
+    boolean advance() {
+        if (++position < block.getSize()) return true;
+        blockManager.release(block, false);
+        return loadNextBlock();
+    }
+
+    private boolean loadNextBlock() {
+        if (!remainingBlocks.hasNext()) {
+            block = null;
+            return false;
+        }
+        block = blockManager.load(remainingBlocks.next());
+        position = 0;
+        return true;
+    }
+
+    /**
+     * Releases the current block, if the run has not been read completely.
+     */
+    void close() {
+        if (block != null) {
+            blockManager.release(block, false);
+            block = null;
+        }
+    }
+}
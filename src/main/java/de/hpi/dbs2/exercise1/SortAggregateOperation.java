@@ -0,0 +1,194 @@
+package de.hpi.dbs2.exercise1;
+
+import de.hpi.dbs2.dbms.*;
+import de.hpi.dbs2.dbms.utils.BlockSorter;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Base class for operations which group the tuples of a relation by sorting them
+ * and collapse every group into a single tuple, e.g. DISTINCT or GROUP BY.
+ *
+ * <p>The grouping works like TPMMS: phase 1 sorts memory-sized chunks into runs, phase 2 merges the runs.
+ * Each group is collapsed into a partial result already while writing the runs and again while merging,
+ * so the runs shrink with the number of groups instead of the number of input tuples.
+ * If the input relation fits into the free blocks, no runs are written at all.
+ */
+public abstract class SortAggregateOperation implements UnaryOperation {
+    private final BlockManager blockManager;
+
+    protected SortAggregateOperation(@NotNull BlockManager blockManager) {
+        this.blockManager = blockManager;
+    }
+
+    @NotNull
+    @Override
+    public BlockManager getBlockManager() {
+        return blockManager;
+    }
+
+    /**
+     * Use this [ColumnDefinition] for creating your output relation.
+     * @return the [ColumnDefinition] of the partial results and thus the output relation.
+     */
+    @NotNull
+    public abstract ColumnDefinition buildOutputColumns(@NotNull Relation inputRelation);
+
+    /**
+     * @return an order of the input tuples in which all tuples of a group compare as equal
+     */
+    @NotNull
+    protected abstract Comparator<Tuple> getInputGroupComparator(@NotNull ColumnDefinition inputColumns);
+
+    /**
+     * @return an order of the partial results in which all results of a group compare as equal
+     */
+    @NotNull
+    protected abstract Comparator<Tuple> getPartialGroupComparator(@NotNull ColumnDefinition outputColumns);
+
+    /**
+     * @return a partial result of the group of the given input tuple which only covers this tuple
+     */
+    @NotNull
+    protected abstract Tuple createPartial(@NotNull Tuple inputTuple, @NotNull ColumnDefinition outputColumns);
+
+    /**
+     * Merges the other partial result into the given partial result of the same group.
+     */
+    protected abstract void mergePartial(@NotNull Tuple partial, @NotNull Tuple otherPartial);
+
+    /**
+     * Sorts the given loaded blocks in-place by the input group order.
+     */
+    protected void sortChunk(@NotNull List<Block> chunk, @NotNull ColumnDefinition inputColumns) {
+        BlockSorter.INSTANCE.sort(chunk, getInputGroupComparator(inputColumns));
+    }
+
+    private boolean fitsInMemory(int blockCount) {
+        // one block is needed for the output
+        return blockCount <= blockManager.getFreeBlocks() - 1;
+    }
+
+    /**
+     * Without knowing the number of groups, this assumes that no tuples can be collapsed.
+     */
+    @Override
+    public int estimatedIOCost(@NotNull Relation inputRelation) {
+        int blockCount = inputRelation.estimatedBlockCount();
+        if (fitsInMemory(blockCount)) {
+            return blockCount;
+        }
+        // every run block is written once and read back once
+        return 3 * blockCount;
+    }
+
+    @Override
+    public void execute(@NotNull Relation inputRelation, @NotNull Relation outputRelation) {
+        int blockCount = inputRelation.estimatedBlockCount();
+        if (blockCount == 0) return;
+
+        if (fitsInMemory(blockCount)) {
+            List<Block> chunk = loadChunk(inputRelation.iterator(), blockCount);
+            RelationUtils.fill(outputRelation, blockManager, filler ->
+                collapseChunk(chunk, inputRelation.getColumns(), outputRelation.getColumns(), filler::add)
+            );
+            return;
+        }
+
+        // one block is needed for writing the runs in phase 1 and for the output in phase 2
+        int chunkSize = blockManager.getFreeBlocks() - 1;
+        if (blockCount > chunkSize * chunkSize) {
+            throw new RelationSizeExceedsCapacityException();
+        }
+
+        // Phase 1: collapsed runs
+        List<List<Block>> runs = new ArrayList<>();
+        Iterator<Block> blockIterator = inputRelation.iterator();
+        while (blockIterator.hasNext()) {
+            List<Block> chunk = loadChunk(blockIterator, chunkSize);
+            List<Block> run = new ArrayList<>();
+            try (RelationUtils.RelationFiller runWriter = new RelationUtils.RelationFiller(
+                () -> blockManager.allocate(true),
+                runBlock -> run.add(blockManager.release(runBlock, true))
+            )) {
+                collapseChunk(chunk, inputRelation.getColumns(), outputRelation.getColumns(), runWriter::add);
+            }
+            runs.add(run);
+        }
+
+        // Phase 2: merge and collapse the runs
+        Comparator<Tuple> partialComparator = getPartialGroupComparator(outputRelation.getColumns());
+        RelationUtils.fill(outputRelation, blockManager, filler -> {
+            PriorityQueue<RunCursor> cursors = new PriorityQueue<>(
+                runs.size(),
+                (cursor1, cursor2) -> partialComparator.compare(cursor1.current(), cursor2.current())
+            );
+            for (List<Block> run : runs) {
+                cursors.add(new RunCursor(blockManager, run));
+            }
+
+            Tuple partial = null;
+            while (!cursors.isEmpty()) {
+                RunCursor cursor = cursors.poll();
+                Tuple nextPartial = cursor.current();
+                if (partial != null && partialComparator.compare(partial, nextPartial) == 0) {
+                    mergePartial(partial, nextPartial);
+                } else {
+                    if (partial != null) filler.add(partial);
+                    partial = nextPartial;
+                }
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            if (partial != null) filler.add(partial);
+        });
+    }
+
+    private List<Block> loadChunk(Iterator<Block> blockIterator, int chunkSize) {
+        List<Block> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && blockIterator.hasNext()) {
+            chunk.add(blockManager.load(blockIterator.next()));
+        }
+        return chunk;
+    }
+
+    /**
+     * Sorts the chunk, passes one partial result per group to the consumer and releases the chunk.
+     */
+    private void collapseChunk(
+        List<Block> chunk,
+        ColumnDefinition inputColumns,
+        ColumnDefinition outputColumns,
+        Consumer<Tuple> partialConsumer
+    ) {
+        sortChunk(chunk, inputColumns);
+        Comparator<Tuple> inputComparator = getInputGroupComparator(inputColumns);
+
+        Tuple previousTuple = null;
+        Tuple partial = null;
+        for (Block block : chunk) {
+            for (Tuple tuple : block) {
+                if (partial != null && inputComparator.compare(previousTuple, tuple) == 0) {
+                    mergePartial(partial, createPartial(tuple, outputColumns));
+                } else {
+                    if (partial != null) partialConsumer.accept(partial);
+                    partial = createPartial(tuple, outputColumns);
+                }
+                previousTuple = tuple;
+            }
+        }
+        if (partial != null) partialConsumer.accept(partial);
+
+        for (Block block : chunk) {
+            blockManager.release(block, false);
+        }
+    }
+}
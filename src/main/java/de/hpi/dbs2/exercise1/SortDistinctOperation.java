@@ -0,0 +1,52 @@
+package de.hpi.dbs2.exercise1;
+
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.ColumnDefinition;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+
+/**
+ * Removes duplicate tuples from a relation (SELECT DISTINCT *).
+ * The output relation is sorted by all columns from left to right.
+ */
+public class SortDistinctOperation extends SortAggregateOperation {
+    public SortDistinctOperation(@NotNull BlockManager blockManager) {
+        super(blockManager);
+    }
+
+    @NotNull
+    @Override
+    public ColumnDefinition buildOutputColumns(@NotNull Relation inputRelation) {
+        return inputRelation.getColumns();
+    }
+
+    @NotNull
+    @Override
+    protected Comparator<Tuple> getInputGroupComparator(@NotNull ColumnDefinition inputColumns) {
+        Comparator<Tuple> tupleComparator = inputColumns.getColumnComparator(0);
+        for (int columnIndex = 1; columnIndex < inputColumns.getColumnCount(); columnIndex++) {
+            tupleComparator = tupleComparator.thenComparing(inputColumns.getColumnComparator(columnIndex));
+        }
+        return tupleComparator;
+    }
+
+    @NotNull
+    @Override
+    protected Comparator<Tuple> getPartialGroupComparator(@NotNull ColumnDefinition outputColumns) {
+        return getInputGroupComparator(outputColumns);
+    }
+
+    @NotNull
+    @Override
+    protected Tuple createPartial(@NotNull Tuple inputTuple, @NotNull ColumnDefinition outputColumns) {
+        return inputTuple;
+    }
+
+    @Override
+    protected void mergePartial(@NotNull Tuple partial, @NotNull Tuple otherPartial) {
+        // duplicates are simply dropped
+    }
+}
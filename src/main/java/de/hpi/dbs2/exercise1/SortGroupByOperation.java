@@ -0,0 +1,141 @@
+package de.hpi.dbs2.exercise1;
+
+import de.hpi.dbs2.dbms.Block;
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.ColumnDefinition;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import de.hpi.dbs2.dbms.utils.BlockSorter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Groups the tuples of a relation by column [groupColumnIndex] and aggregates
+ * column [aggregateColumnIndex] per group
+ * (SELECT group, aggregate(column) ... GROUP BY group).
+ *
+ * <p>The output relation has two columns, the group value and the aggregated value,
+ * and is sorted by the group value. Null values are ignored by SUM, MIN and MAX,
+ * COUNT counts all tuples of a group. The SUM of an INTEGER column is a LONG column, so it does not overflow.
+ */
+public class SortGroupByOperation extends SortAggregateOperation {
+    public enum AggregateFunction {
+        COUNT, SUM, MIN, MAX
+    }
+
+    private final int groupColumnIndex;
+    private final AggregateFunction aggregateFunction;
+    private final int aggregateColumnIndex;
+
+    public SortGroupByOperation(
+        @NotNull BlockManager blockManager,
+        int groupColumnIndex,
+        @NotNull AggregateFunction aggregateFunction,
+        int aggregateColumnIndex
+    ) {
+        super(blockManager);
+        this.groupColumnIndex = groupColumnIndex;
+        this.aggregateFunction = aggregateFunction;
+        this.aggregateColumnIndex = aggregateColumnIndex;
+    }
+
+    public int getGroupColumnIndex() {
+        return groupColumnIndex;
+    }
+
+    @NotNull
+    public AggregateFunction getAggregateFunction() {
+        return aggregateFunction;
+    }
+
+    public int getAggregateColumnIndex() {
+        return aggregateColumnIndex;
+    }
+
+    /**
+     * @throws IllegalArgumentException if SUM is applied to a STRING column
+     */
+    @NotNull
+    @Override
+    public ColumnDefinition buildOutputColumns(@NotNull Relation inputRelation) {
+        ColumnDefinition inputColumns = inputRelation.getColumns();
+        ColumnDefinition.ColumnType aggregateType = inputColumns.getColumnType(aggregateColumnIndex);
+        if (aggregateFunction == AggregateFunction.SUM && aggregateType == ColumnDefinition.ColumnType.STRING) {
+            throw new IllegalArgumentException("SUM requires a numeric column");
+        }
+        return new ColumnDefinition(inputColumns.getColumnType(groupColumnIndex), getAggregateType(aggregateType));
+    }
+
+    private ColumnDefinition.ColumnType getAggregateType(ColumnDefinition.ColumnType inputType) {
+        if (aggregateFunction == AggregateFunction.COUNT) {
+            return ColumnDefinition.ColumnType.INTEGER;
+        }
+        if (aggregateFunction == AggregateFunction.SUM && inputType == ColumnDefinition.ColumnType.INTEGER) {
+            return ColumnDefinition.ColumnType.LONG;
+        }
+        return inputType;
+    }
+
+    @NotNull
+    @Override
+    protected Comparator<Tuple> getInputGroupComparator(@NotNull ColumnDefinition inputColumns) {
+        return inputColumns.getColumnComparator(groupColumnIndex);
+    }
+
+    @NotNull
+    @Override
+    protected Comparator<Tuple> getPartialGroupComparator(@NotNull ColumnDefinition outputColumns) {
+        return outputColumns.getColumnComparator(0);
+    }
+
+    @Override
+    protected void sortChunk(@NotNull List<Block> chunk, @NotNull ColumnDefinition inputColumns) {
+        // a single sort column allows the radix sort for numeric columns
+        BlockSorter.INSTANCE.sort(chunk, inputColumns, groupColumnIndex);
+    }
+
+    @NotNull
+    @Override
+    protected Tuple createPartial(@NotNull Tuple inputTuple, @NotNull ColumnDefinition outputColumns) {
+        Tuple partial = outputColumns.createTuple();
+        partial.set(0, inputTuple.get(groupColumnIndex));
+        Object value = inputTuple.get(aggregateColumnIndex);
+        if (aggregateFunction == AggregateFunction.COUNT) {
+            value = 1;
+        } else if (aggregateFunction == AggregateFunction.SUM && value instanceof Integer integerValue) {
+            value = integerValue.longValue();
+        }
+        partial.set(1, value);
+        return partial;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void mergePartial(@NotNull Tuple partial, @NotNull Tuple otherPartial) {
+        Object value = partial.get(1);
+        Object otherValue = otherPartial.get(1);
+        if (otherValue == null) return;
+        if (value == null) {
+            partial.set(1, otherValue);
+            return;
+        }
+        switch (aggregateFunction) {
+            case COUNT -> partial.set(1, (Integer) value + (Integer) otherValue);
+            case SUM -> {
+                if (value instanceof Long longValue) {
+                    partial.set(1, longValue + (Long) otherValue);
+                } else {
+                    partial.set(1, (Double) value + (Double) otherValue);
+                }
+            }
+            case MIN -> {
+                if (((Comparable<Object>) otherValue).compareTo(value) < 0) partial.set(1, otherValue);
+            }
+            case MAX -> {
+                if (((Comparable<Object>) otherValue).compareTo(value) > 0) partial.set(1, otherValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package de.hpi.dbs2.exercise1;
+
+import com.google.common.base.Preconditions;
+import de.hpi.dbs2.dbms.*;
+import de.hpi.dbs2.dbms.utils.BlockSorter;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Outputs only the first {@link #getLimit()} tuples of a relation sorted by column [sortColumnIndex],
+ * similar to {@code ORDER BY ... LIMIT k}.
+ *
+ * <p>If k tuples fit into the free blocks, the relation is read once while the smallest k tuples
+ * are kept in a bounded heap. Otherwise, sorted runs are created like in phase 1 of TPMMS,
+ * but each run is cut off after k tuples and merged only until k tuples have been output.
+ */
+public class TopKSortOperation extends SortOperation {
+    private final int limit;
+
+    public TopKSortOperation(@NotNull BlockManager manager, int sortColumnIndex, int limit) {
+        super(manager, sortColumnIndex);
+        Preconditions.checkArgument(limit >= 0, "limit must not be negative");
+        this.limit = limit;
+    }
+
+    /**
+     * @return the maximum number of tuples in the output relation
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int estimatedIOCost(@NotNull Relation inputRelation) {
+        int blockCount = inputRelation.estimatedBlockCount();
+        if (limit == 0 || blockCount == 0) return 0;
+
+        int blockCapacity = inputRelation.iterator().next().getCapacity();
+        if (fitsInMemory(blockCapacity)) {
+            return blockCount;
+        }
+        int freeBlocks = getBlockManager().getFreeBlocks();
+        int runCount = (freeBlocks == 0) ? 0 : (blockCount + freeBlocks - 1) / freeBlocks;
+        int blocksPerRun = Math.min((limit + blockCapacity - 1) / blockCapacity, freeBlocks);
+        // every run is written once and read back at most once
+        return blockCount + 2 * runCount * blocksPerRun;
+    }
+
+    private boolean fitsInMemory(int blockCapacity) {
+        // one block is needed for reading the input relation
+        return (long) limit <= (long) (getBlockManager().getFreeBlocks() - 1) * blockCapacity;
+    }
+
+    @Override
+    public void sort(@NotNull Relation inputRelation, @NotNull Relation outputRelation) {
+        if (limit == 0 || inputRelation.estimatedBlockCount() == 0) return;
+
+        int blockCapacity = inputRelation.iterator().next().getCapacity();
+        if (fitsInMemory(blockCapacity)) {
+            selectInMemory(inputRelation, outputRelation);
+        } else {
+            selectExternally(inputRelation, outputRelation);
+        }
+    }
+
+    private void selectInMemory(Relation inputRelation, Relation outputRelation) {
+        BlockManager blockManager = getBlockManager();
+        Comparator<Tuple> tupleComparator = inputRelation.getColumns().getColumnComparator(getSortColumnIndex());
+
+        // the largest of the k smallest tuples seen so far is at the head
+        PriorityQueue<Tuple> selectedTuples = new PriorityQueue<>(limit, tupleComparator.reversed());
+        for (Block blockReference : inputRelation) {
+            Block block = blockManager.load(blockReference);
+            for (Tuple tuple : block) {
+                if (selectedTuples.size() < limit) {
+                    selectedTuples.add(tuple);
+                } else if (tupleComparator.compare(tuple, selectedTuples.peek()) < 0) {
+                    selectedTuples.poll();
+                    selectedTuples.add(tuple);
+                }
+            }
+            blockManager.release(block, false);
+        }
+
+        Tuple[] sortedTuples = new Tuple[selectedTuples.size()];
+        for (int i = sortedTuples.length - 1; i >= 0; i--) {
+            sortedTuples[i] = selectedTuples.poll();
+        }
+        RelationUtils.fill(outputRelation, blockManager, filler -> {
+            for (Tuple tuple : sortedTuples) {
+                filler.add(tuple);
+            }
+        });
+    }
+
+    private void selectExternally(Relation inputRelation, Relation outputRelation) {
+        BlockManager blockManager = getBlockManager();
+        ColumnDefinition columns = inputRelation.getColumns();
+        Comparator<Tuple> tupleComparator = columns.getColumnComparator(getSortColumnIndex());
+
+        int freeBlocks = blockManager.getFreeBlocks();
+        if (inputRelation.estimatedBlockCount() > freeBlocks * (freeBlocks - 1)) {
+            throw new RelationSizeExceedsCapacityException();
+        }
+
+        // Phase 1: sorted runs, each holding at most k tuples
+        List<List<Block>> runs = new ArrayList<>();
+        List<Block> blocksInMemory = new ArrayList<>();
+        // k-th smallest tuple of any complete run; larger tuples can never be part of the output
+        Tuple cutoffTuple = null;
+        for (Iterator<Block> blockIterator = inputRelation.iterator(); blockIterator.hasNext(); ) {
+            blocksInMemory.add(blockManager.load(blockIterator.next()));
+            if (blockManager.getFreeBlocks() > 0 && blockIterator.hasNext()) continue;
+
+            BlockSorter.INSTANCE.sort(blocksInMemory, columns, getSortColumnIndex());
+
+            List<Block> run = new ArrayList<>();
+            int keptTuples = 0;
+            Tuple lastKeptTuple = null;
+            for (Block block : blocksInMemory) {
+                int keep = 0;
+                while (keep < block.getSize() && keptTuples + keep < limit
+                    && (cutoffTuple == null || tupleComparator.compare(block.get(keep), cutoffTuple) <= 0)) {
+                    keep++;
+                }
+                if (keep == 0) {
+                    blockManager.release(block, false);
+                    continue;
+                }
+                if (keep < block.getSize()) {
+                    truncate(block, keep);
+                }
+                keptTuples += keep;
+                lastKeptTuple = block.get(keep - 1);
+                run.add(blockManager.release(block, true));
+            }
+            if (!run.isEmpty()) {
+                runs.add(run);
+            }
+            if (keptTuples == limit) {
+                cutoffTuple = lastKeptTuple;
+            }
+            blocksInMemory.clear();
+        }
+
+        // Phase 2: merge the runs until k tuples have been output
+        RelationUtils.fill(outputRelation, blockManager, filler -> {
+            PriorityQueue<RunCursor> cursors = new PriorityQueue<>(
+                runs.size(),
+                (cursor1, cursor2) -> tupleComparator.compare(cursor1.current(), cursor2.current())
+            );
+            for (List<Block> run : runs) {
+                cursors.add(new RunCursor(blockManager, run));
+            }
+            for (int outputTuples = 0; outputTuples < limit && !cursors.isEmpty(); outputTuples++) {
+                RunCursor cursor = cursors.poll();
+                filler.add(cursor.current());
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            cursors.forEach(RunCursor::close);
+        });
+    }
+
+    /**
+     * Removes all but the first tuples from the given (loaded) block.
+     */
+    private static void truncate(Block block, int size) {
+        Tuple[] keptTuples = new Tuple[size];
+        for (int i = 0; i < size; i++) {
+            keptTuples[i] = block.get(i);
+        }
+        block.clear();
+        for (Tuple tuple : keptTuples) {
+            block.append(tuple);
+        }
+    }
+}
@@ -4,9 +4,19 @@ import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Stack;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class lays the foundation for your BPlusTree implementation.
@@ -55,21 +65,6 @@ public abstract class AbstractBPlusTree implements Index<Integer, ValueReference
         return rootNode.getOrNull(searchKey);
     }
 
-    /**
-     * Find the value mapped to the given key.
-     * @throws NoSuchElementException If the key is not in the index.
-     * @return associated value for the given key
-     */
-    @NotNull
-    @Override
-    public ValueReference get(@NotNull Integer searchKey) {
-        ValueReference value = getOrNull(searchKey);
-        if (value == null) {
-            throw new NoSuchElementException("Key not found in index: $searchKey");
-        }
-        return value;
-    }
-
     /**
      * Insert a new key-value mapping into the index, replacing the old value for existing keys.
      * @return previously associated value for the given key, if existing
@@ -80,11 +75,195 @@ public abstract class AbstractBPlusTree implements Index<Integer, ValueReference
 
     /**
      * Remove a key-value mapping from the index.
+     * Nodes which fall below the minimum fill borrow entries from a sibling or are merged with it.
      * @return previously associated value for the given key, if existing
      */
     @Override
     public ValueReference remove(@NotNull Integer key) {
-        throw new UnsupportedOperationException("You don't have to implement this :)");
+        ValueReference removedValue = remove(rootNode, key);
+        if (removedValue != null) {
+            shrinkRoot();
+        }
+        return removedValue;
+    }
+
+    /**
+     * Remove the key-value mappings of all given keys from the index.
+     * The keys are removed in ascending order, so consecutive removals descend into the same or adjacent leaves.
+     * @return the number of removed mappings
+     */
+    public int removeAll(@NotNull Collection<Integer> keys) {
+        int removedCount = 0;
+        for (Integer key : keys.stream().sorted().distinct().toList()) {
+            if (remove(key) != null) {
+                removedCount++;
+            }
+        }
+        return removedCount;
+    }
+
+    @Nullable
+    private ValueReference remove(BPlusTreeNode<?> node, Integer key) {
+        if (node instanceof LeafNode leaf) {
+            int index = leaf.findKeyIndex(key);
+            if (index < 0) return null;
+            ValueReference removedValue = leaf.references[index];
+            int size = leaf.getKeyCount();
+            System.arraycopy(leaf.keys, index + 1, leaf.keys, index, size - index - 1);
+            System.arraycopy(leaf.references, index + 1, leaf.references, index, size - index - 1);
+            leaf.keys[size - 1] = null;
+            leaf.references[size - 1] = null;
+            return removedValue;
+        }
+
+        InnerNode inner = (InnerNode) node;
+        int childIndex = inner.upperBound(key);
+        ValueReference removedValue = remove(inner.getChildNode(childIndex), key);
+        if (removedValue == null) return null;
+
+        if (isUnderfull(inner.getChildNode(childIndex))) {
+            childIndex = rebalanceChild(inner, childIndex);
+        }
+        // the smallest key of the changed subtrees might have been removed or moved to a sibling
+        int lastChildIndex = inner.getNodeSize() - 1;
+        for (int i = Math.max(1, childIndex - 1); i <= Math.min(lastChildIndex, childIndex + 1); i++) {
+            inner.keys[i - 1] = inner.getChildNode(i).getSmallestKey();
+        }
+        return removedValue;
+    }
+
+    private boolean isUnderfull(BPlusTreeNode<?> node) {
+        if (node instanceof LeafNode leaf) {
+            return leaf.getKeyCount() < order / 2;
+        }
+        return node.getNodeSize() < (order + 1) / 2;
+    }
+
+    private boolean canLend(BPlusTreeNode<?> node) {
+        if (node instanceof LeafNode leaf) {
+            return leaf.getKeyCount() > order / 2;
+        }
+        return node.getNodeSize() > (order + 1) / 2;
+    }
+
+    /**
+     * Refills the underfull child with an entry of a sibling or merges it with a sibling.
+     * @return the index of the child which now contains the entries of the underfull child
+     */
+    private int rebalanceChild(InnerNode parent, int childIndex) {
+        BPlusTreeNode<?> child = parent.getChildNode(childIndex);
+        BPlusTreeNode<?> leftSibling = (childIndex > 0) ? parent.getChildNode(childIndex - 1) : null;
+        BPlusTreeNode<?> rightSibling = (childIndex + 1 < parent.getNodeSize()) ? parent.getChildNode(childIndex + 1) : null;
+
+        if (leftSibling != null && canLend(leftSibling)) {
+            moveLastToFront(leftSibling, child);
+            return childIndex;
+        }
+        if (rightSibling != null && canLend(rightSibling)) {
+            moveFirstToBack(rightSibling, child);
+            return childIndex;
+        }
+        if (leftSibling != null) {
+            merge(leftSibling, child);
+            removeChild(parent, childIndex);
+            return childIndex - 1;
+        }
+        merge(child, rightSibling);
+        removeChild(parent, childIndex + 1);
+        return childIndex;
+    }
+
+    private static void moveLastToFront(BPlusTreeNode<?> from, BPlusTreeNode<?> to) {
+        if (from instanceof LeafNode fromLeaf && to instanceof LeafNode toLeaf) {
+            int fromSize = fromLeaf.getKeyCount();
+            int toSize = toLeaf.getKeyCount();
+            System.arraycopy(toLeaf.keys, 0, toLeaf.keys, 1, toSize);
+            System.arraycopy(toLeaf.references, 0, toLeaf.references, 1, toSize);
+            toLeaf.keys[0] = fromLeaf.keys[fromSize - 1];
+            toLeaf.references[0] = fromLeaf.references[fromSize - 1];
+            fromLeaf.keys[fromSize - 1] = null;
+            fromLeaf.references[fromSize - 1] = null;
+        } else {
+            InnerNode fromInner = (InnerNode) from;
+            InnerNode toInner = (InnerNode) to;
+            int fromSize = fromInner.getNodeSize();
+            int toSize = toInner.getNodeSize();
+            System.arraycopy(toInner.references, 0, toInner.references, 1, toSize);
+            System.arraycopy(toInner.keys, 0, toInner.keys, 1, toSize - 1);
+            toInner.references[0] = fromInner.references[fromSize - 1];
+            toInner.keys[0] = toInner.references[1].getSmallestKey();
+            fromInner.references[fromSize - 1] = null;
+            fromInner.keys[fromSize - 2] = null;
+        }
+    }
+
+    private static void moveFirstToBack(BPlusTreeNode<?> from, BPlusTreeNode<?> to) {
+        if (from instanceof LeafNode fromLeaf && to instanceof LeafNode toLeaf) {
+            int fromSize = fromLeaf.getKeyCount();
+            int toSize = toLeaf.getKeyCount();
+            toLeaf.keys[toSize] = fromLeaf.keys[0];
+            toLeaf.references[toSize] = fromLeaf.references[0];
+            System.arraycopy(fromLeaf.keys, 1, fromLeaf.keys, 0, fromSize - 1);
+            System.arraycopy(fromLeaf.references, 1, fromLeaf.references, 0, fromSize - 1);
+            fromLeaf.keys[fromSize - 1] = null;
+            fromLeaf.references[fromSize - 1] = null;
+        } else {
+            InnerNode fromInner = (InnerNode) from;
+            InnerNode toInner = (InnerNode) to;
+            int fromSize = fromInner.getNodeSize();
+            int toSize = toInner.getNodeSize();
+            toInner.references[toSize] = fromInner.references[0];
+            toInner.keys[toSize - 1] = fromInner.references[0].getSmallestKey();
+            System.arraycopy(fromInner.references, 1, fromInner.references, 0, fromSize - 1);
+            System.arraycopy(fromInner.keys, 1, fromInner.keys, 0, fromSize - 2);
+            fromInner.references[fromSize - 1] = null;
+            fromInner.keys[fromSize - 2] = null;
+        }
+    }
+
+    /**
+     * Moves all entries of the right node to the end of its left sibling.
+     */
+    private static void merge(BPlusTreeNode<?> left, BPlusTreeNode<?> right) {
+        if (left instanceof LeafNode leftLeaf && right instanceof LeafNode rightLeaf) {
+            int leftSize = leftLeaf.getKeyCount();
+            int rightSize = rightLeaf.getKeyCount();
+            System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftSize, rightSize);
+            System.arraycopy(rightLeaf.references, 0, leftLeaf.references, leftSize, rightSize);
+            leftLeaf.nextSibling = rightLeaf.nextSibling;
+        } else {
+            InnerNode leftInner = (InnerNode) left;
+            InnerNode rightInner = (InnerNode) right;
+            int leftSize = leftInner.getNodeSize();
+            int rightSize = rightInner.getNodeSize();
+            leftInner.keys[leftSize - 1] = rightInner.getSmallestKey();
+            System.arraycopy(rightInner.keys, 0, leftInner.keys, leftSize, rightSize - 1);
+            System.arraycopy(rightInner.references, 0, leftInner.references, leftSize, rightSize);
+        }
+    }
+
+    /**
+     * Removes the child at the given index (> 0) together with the key on its left.
+     */
+    private static void removeChild(InnerNode parent, int childIndex) {
+        int size = parent.getNodeSize();
+        System.arraycopy(parent.references, childIndex + 1, parent.references, childIndex, size - childIndex - 1);
+        System.arraycopy(parent.keys, childIndex, parent.keys, childIndex - 1, size - childIndex - 1);
+        parent.references[size - 1] = null;
+        parent.keys[size - 2] = null;
+    }
+
+    /**
+     * Replaces a root with a single child by that child. A leaf root becomes an InitialRootNode again,
+     * which may hold fewer entries than a regular leaf.
+     */
+    private void shrinkRoot() {
+        while (rootNode instanceof InnerNode innerRoot && innerRoot.getNodeSize() == 1) {
+            rootNode = innerRoot.getChildNode(0);
+        }
+        if (rootNode instanceof LeafNode leafRoot && !(leafRoot instanceof InitialRootNode)) {
+            rootNode = new InitialRootNode(order, leafRoot.getEntries().toArray(Entry[]::new));
+        }
     }
 
     /**
@@ -96,9 +275,143 @@ public abstract class AbstractBPlusTree implements Index<Integer, ValueReference
     @NotNull
     @Override
     public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
-        throw new UnsupportedOperationException("You don't have to implement this :)");
+        return getRange(lowerBound, upperBound, false);
     }
 
+    /**
+     * Finds all values for the keys between the given (inclusive) bounds.
+     * The values are read lazily from the leaves while iterating.
+     *
+     * @param lowerBound the smallest key of the range or null for a range without lower bound
+     * @param upperBound the largest key of the range or null for a range without upper bound
+     * @param reverse    whether to iterate from the largest to the smallest key
+     * @return an iterator over all found values in key order (or reverse key order)
+     */
+    @NotNull
+    public Iterator<ValueReference> getRange(@Nullable Integer lowerBound, @Nullable Integer upperBound, boolean reverse) {
+        if (lowerBound != null && upperBound != null && lowerBound > upperBound) {
+            return Collections.emptyIterator();
+        }
+        return reverse
+            ? new ReverseRangeIterator(lowerBound, upperBound)
+            : new ForwardRangeIterator(lowerBound, upperBound);
+    }
+
+
+    /**
+     * Insert all given entries, which have to be sorted by key in ascending order.
+     * This default implementation inserts them one by one, implementations may reuse the path between them.
+     * @return the number of newly inserted keys, not counting replaced values
+     * @throws IllegalArgumentException if the entries are not sorted by key in ascending order
+     */
+    public int insertAll(@NotNull Iterator<? extends Entry> sortedEntries) {
+        int insertedCount = 0;
+        Integer lastKey = null;
+        while (sortedEntries.hasNext()) {
+            Entry entry = sortedEntries.next();
+            Preconditions.checkArgument(lastKey == null || entry.getKey() >= lastKey,
+                "keys must be sorted in ascending order");
+            lastKey = entry.getKey();
+            if (insert(entry) == null) {
+                insertedCount++;
+            }
+        }
+        return insertedCount;
+    }
+
+    /**
+     * Finds the values mapped to the given ascending keys. Consecutive keys reuse the path to the
+     * previous leaf, so keys in the same leaf or subtree do not descend from the root again.
+     * @return the associated value for each key at the same index, or null if the key is not in the index
+     * @throws IllegalArgumentException if the keys are not sorted in ascending order
+     */
+    @NotNull
+    public ValueReference[] getAll(@NotNull int[] sortedKeys) {
+        ValueReference[] values = new ValueReference[sortedKeys.length];
+        PathCursor cursor = new PathCursor();
+        for (int i = 0; i < sortedKeys.length; i++) {
+            LeafNode leaf = cursor.seek(sortedKeys[i]);
+            int index = leaf.findKeyIndex(sortedKeys[i]);
+            values[i] = (index >= 0) ? leaf.references[index] : null;
+        }
+        return values;
+    }
+
+    /**
+     * Remembers the path from the root to the last visited leaf for processing ascending keys.
+     * For the next key, the cursor only climbs up until it reaches a node whose subtree covers the key
+     * and descends from there, instead of starting at the root.
+     */
+    protected class PathCursor {
+        /**
+         * nodes[0] is the root, nodes[validLevels - 1] the deepest still valid node on the path
+         */
+        private BPlusTreeNode<?>[] nodes = new BPlusTreeNode<?>[0];
+        /**
+         * Exclusive upper bounds of the keys in the subtrees of the nodes, null if unbounded
+         */
+        private Integer[] upperBounds = new Integer[0];
+        private int validLevels = 0;
+        @Nullable
+        private Integer lastKey = null;
+
+        public PathCursor() {
+        }
+
+        /**
+         * @return the leaf in which the given key could be located
+         * @throws IllegalArgumentException if the key is smaller than the previously seeked key
+         */
+        @NotNull
+        public LeafNode seek(@NotNull Integer key) {
+            Preconditions.checkArgument(lastKey == null || key >= lastKey, "keys must be sorted in ascending order");
+            lastKey = key;
+
+            if (validLevels == 0 || nodes[0] != rootNode) {
+                // the tree is new to this cursor or has got a new root
+                int height = rootNode.getHeight();
+                nodes = new BPlusTreeNode<?>[height + 1];
+                upperBounds = new Integer[height + 1];
+                nodes[0] = rootNode;
+                validLevels = 1;
+            }
+            // lower bounds never have to be checked, because the keys are ascending
+            int level = validLevels - 1;
+            while (level > 0 && upperBounds[level] != null && key >= upperBounds[level]) {
+                level--;
+            }
+            while (nodes[level] instanceof InnerNode innerNode) {
+                int childIndex = innerNode.upperBound(key);
+                nodes[level + 1] = innerNode.getChildNode(childIndex);
+                upperBounds[level + 1] = (childIndex < innerNode.getKeyCount())
+                    ? innerNode.keys[childIndex]
+                    : upperBounds[level];
+                level++;
+            }
+            validLevels = level + 1;
+            return (LeafNode) nodes[level];
+        }
+
+        /**
+         * @return the inner nodes on the path from the root to the current leaf, with the leaf's parent on top
+         */
+        @NotNull
+        public Stack<BPlusTreeNode<?>> getInnerPath() {
+            Stack<BPlusTreeNode<?>> path = new Stack<>();
+            for (int level = 0; level < validLevels - 1; level++) {
+                path.push(nodes[level]);
+            }
+            return path;
+        }
+
+        /**
+         * Forgets the path below the given level (0 being the root),
+         * after the children of the node at this level have been modified.
+         */
+        public void invalidateBelow(int level) {
+            validLevels = Math.min(validLevels, level + 1);
+        }
+    }
 
     /**
      * Insert a new key-value mapping into the index, replacing the old value for existing keys.
@@ -109,10 +422,27 @@ public abstract class AbstractBPlusTree implements Index<Integer, ValueReference
     }
 
     /**
-     * @return a stream over all entries of this tree
+     * The stream is sized and splits at inner node boundaries, so it can be processed in parallel.
+     * @return a stream over all entries of this tree in key order
      */
     public Stream<Entry> getEntries() {
-        return rootNode.getEntries();
+        return StreamSupport.stream(new EntrySpliterator(rootNode), false);
+    }
+
+    /**
+     * Copies the entries of this tree into a read-optimized layout for serving lookups once the tree is complete.
+     * @return an immutable copy of this tree
+     */
+    @NotNull
+    public FrozenBPlusTree freeze() {
+        return new FrozenBPlusTree(getEntries().iterator());
+    }
+
+    /**
+     * Writes this tree to a file, which can be served without loading it by [MappedBPlusTree.open].
+     */
+    public void save(@NotNull Path file) throws IOException {
+        MappedBPlusTree.write(this, file);
     }
 
     public static class Entry extends IndexEntry<Integer, ValueReference> {
@@ -126,7 +456,8 @@ public abstract class AbstractBPlusTree implements Index<Integer, ValueReference
      * @return if the tree structure is valid
      */
     public boolean isValid() {
-        return rootNode.isValid() && rootNode.order == order;
+        boolean rootIsValid = (rootNode instanceof InnerNode innerRoot) ? innerRoot.isValidRoot() : rootNode.isValid();
+        return rootIsValid && rootNode.order == order;
     }
 
     @Override
@@ -143,4 +474,273 @@ public abstract class AbstractBPlusTree implements Index<Integer, ValueReference
         if (!(other instanceof AbstractBPlusTree that)) return false;
         return this.rootNode.equals(that.rootNode);
     }
+
+    /**
+     * Descends once to the leaf of the lower bound and then follows the leaf links.
+     */
+    private class ForwardRangeIterator implements Iterator<ValueReference> {
+        @Nullable
+        private final Integer upperBound;
+        private LeafNode leaf;
+        private int leafSize;
+        private int position;
+
+        ForwardRangeIterator(@Nullable Integer lowerBound, @Nullable Integer upperBound) {
+            this.upperBound = upperBound;
+            if (lowerBound == null) {
+                BPlusTreeNode<?> node = rootNode;
+                while (node instanceof InnerNode innerNode) {
+                    node = innerNode.getChildNode(0);
+                }
+                leaf = (LeafNode) node;
+                position = 0;
+            } else {
+                leaf = rootNode.findLeaf(lowerBound);
+                int index = leaf.findKeyIndex(lowerBound);
+                position = (index >= 0) ? index : -(index + 1);
+            }
+            leafSize = leaf.getKeyCount();
+            skipExhaustedLeaves();
+        }
+
+        private void skipExhaustedLeaves() {
+            while (leaf != null && position >= leafSize) {
+                leaf = leaf.nextSibling;
+                position = 0;
+                leafSize = (leaf == null) ? 0 : leaf.getKeyCount();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && (upperBound == null || leaf.keys[position] <= upperBound);
+        }
+
+        @Override
+        public ValueReference next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ValueReference value = leaf.references[position++];
+            skipExhaustedLeaves();
+            return value;
+        }
+    }
+
+    /**
+     * Leaves are only linked to their next sibling, so this iterator
+     * keeps the path from the root to find the previous leaf.
+     */
+    private class ReverseRangeIterator implements Iterator<ValueReference> {
+        @Nullable
+        private final Integer lowerBound;
+        private final InnerNode[] path;
+        private final int[] pathChildIndexes;
+        private LeafNode leaf;
+        private int position;
+
+        ReverseRangeIterator(@Nullable Integer lowerBound, @Nullable Integer upperBound) {
+            this.lowerBound = lowerBound;
+            int height = rootNode.getHeight();
+            path = new InnerNode[height];
+            pathChildIndexes = new int[height];
+
+            BPlusTreeNode<?> node = rootNode;
+            for (int level = 0; level < height; level++) {
+                InnerNode innerNode = (InnerNode) node;
+                int childIndex = (upperBound == null)
+                    ? innerNode.getNodeSize() - 1
+                    : innerNode.upperBound(upperBound);
+                path[level] = innerNode;
+                pathChildIndexes[level] = childIndex;
+                node = innerNode.getChildNode(childIndex);
+            }
+            leaf = (LeafNode) node;
+            if (upperBound == null) {
+                position = leaf.getKeyCount() - 1;
+            } else {
+                int index = leaf.findKeyIndex(upperBound);
+                position = (index >= 0) ? index : -(index + 1) - 1;
+            }
+            skipExhaustedLeaves();
+        }
+
+        private void skipExhaustedLeaves() {
+            while (leaf != null && position < 0) {
+                leaf = previousLeaf();
+                position = (leaf == null) ? -1 : leaf.getKeyCount() - 1;
+            }
+        }
+
+        @Nullable
+        private LeafNode previousLeaf() {
+            // go up until there is a subtree on the left, then descend to its right-most leaf
+            int level = path.length - 1;
+            while (level >= 0 && pathChildIndexes[level] == 0) {
+                level--;
+            }
+            if (level < 0) return null;
+            pathChildIndexes[level]--;
+            BPlusTreeNode<?> node = path[level].getChildNode(pathChildIndexes[level]);
+            for (level++; level < path.length; level++) {
+                InnerNode innerNode = (InnerNode) node;
+                path[level] = innerNode;
+                pathChildIndexes[level] = innerNode.getNodeSize() - 1;
+                node = innerNode.getChildNode(pathChildIndexes[level]);
+            }
+            return (LeafNode) node;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && (lowerBound == null || leaf.keys[position] >= lowerBound);
+        }
+
+        @Override
+        public ValueReference next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ValueReference value = leaf.references[position--];
+            skipExhaustedLeaves();
+            return value;
+        }
+    }
+
+    /**
+     * Visits the entries leaf by leaf without using the leaf links, so the remaining subtrees
+     * can be split at inner node boundaries. Only the partially visited leaf is never split.
+     * The tree must not be modified while the spliterator is in use.
+     */
+    private static class EntrySpliterator implements Spliterator<Entry> {
+        private static final Comparator<Entry> KEY_ORDER = Comparator.comparing(Entry::getKey);
+
+        /**
+         * Subtrees which have not been visited yet, in key order
+         */
+        private final ArrayDeque<BPlusTreeNode<?>> subtrees;
+        @Nullable
+        private LeafNode leaf;
+        private int leafSize;
+        private int position;
+        /**
+         * Number of remaining entries or -1 if they have not been counted yet
+         */
+        private long size = -1;
+
+        EntrySpliterator(BPlusTreeNode<?> rootNode) {
+            this.subtrees = new ArrayDeque<>();
+            this.subtrees.add(rootNode);
+        }
+
+        private EntrySpliterator(@Nullable LeafNode leaf, int leafSize, int position, ArrayDeque<BPlusTreeNode<?>> subtrees) {
+            this.leaf = leaf;
+            this.leafSize = leafSize;
+            this.position = position;
+            this.subtrees = subtrees;
+        }
+
+        /**
+         * @return if there is a remaining entry in the current leaf
+         */
+        private boolean advanceToEntry() {
+            while (leaf == null || position >= leafSize) {
+                BPlusTreeNode<?> node = subtrees.pollFirst();
+                if (node == null) {
+                    leaf = null;
+                    return false;
+                }
+                if (node instanceof InnerNode innerNode) {
+                    for (int i = innerNode.getNodeSize() - 1; i >= 0; i--) {
+                        subtrees.addFirst(innerNode.getChildNode(i));
+                    }
+                } else {
+                    leaf = (LeafNode) node;
+                    leafSize = leaf.getKeyCount();
+                    position = 0;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry> action) {
+            if (!advanceToEntry()) {
+                return false;
+            }
+            action.accept(new Entry(leaf.keys[position], leaf.references[position]));
+            position++;
+            if (size > 0) {
+                size--;
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Entry> action) {
+            while (advanceToEntry()) {
+                for (; position < leafSize; position++) {
+                    action.accept(new Entry(leaf.keys[position], leaf.references[position]));
+                }
+            }
+            size = 0;
+        }
+
+        /**
+         * @return a spliterator over the current leaf and the first half of the remaining subtrees
+         */
+        @Nullable
+        @Override
+        public Spliterator<Entry> trySplit() {
+            // a single subtree is replaced by its children, which can then be distributed
+            while (subtrees.size() == 1 && subtrees.peekFirst() instanceof InnerNode innerNode) {
+                subtrees.pollFirst();
+                for (int i = 0; i < innerNode.getNodeSize(); i++) {
+                    subtrees.addLast(innerNode.getChildNode(i));
+                }
+            }
+            if (subtrees.isEmpty() || (subtrees.size() == 1 && leaf == null)) {
+                return null;
+            }
+            ArrayDeque<BPlusTreeNode<?>> prefix = new ArrayDeque<>();
+            for (int i = subtrees.size() / 2; i > 0; i--) {
+                prefix.addLast(subtrees.pollFirst());
+            }
+            EntrySpliterator prefixSpliterator = new EntrySpliterator(leaf, leafSize, position, prefix);
+            leaf = null;
+            size = -1;
+            return prefixSpliterator;
+        }
+
+        private static long countEntries(BPlusTreeNode<?> node) {
+            if (node instanceof InnerNode innerNode) {
+                long count = 0;
+                for (int i = 0; i < innerNode.getNodeSize(); i++) {
+                    count += countEntries(innerNode.getChildNode(i));
+                }
+                return count;
+            }
+            return node.getKeyCount();
+        }
+
+        /**
+         * Counts the remaining entries on the first call by visiting the leaves, but not their entries.
+         */
+        @Override
+        public long estimateSize() {
+            if (size < 0) {
+                size = (leaf == null) ? 0 : Math.max(0, leafSize - position);
+                for (BPlusTreeNode<?> subtree : subtrees) {
+                    size += countEntries(subtree);
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Entry> getComparator() {
+            return KEY_ORDER;
+        }
+    }
 }
@@ -0,0 +1,743 @@
+package de.hpi.dbs2.exercise2;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An adaptive radix tree (ART) for keys which can be encoded as binary comparable byte strings.
+ *
+ * <p>Instead of comparing whole keys, every inner node branches on a single byte of the encoded key.
+ * Inner nodes grow and shrink between four sizes depending on their number of children:
+ * <ul>
+ *     <li>[Node4] and [Node16] store their key bytes sorted next to their children</li>
+ *     <li>[Node48] maps all 256 key bytes to the positions of its children</li>
+ *     <li>[Node256] stores its children directly at their key byte</li>
+ * </ul>
+ * The height of the tree is thus bounded by the key length and not by the number of keys.
+ * Two further techniques keep the tree small for sparse key sets:
+ * <ul>
+ *     <li>path compression: an inner node stores the bytes shared by all keys below it as its prefix
+ *         instead of a chain of inner nodes with a single child</li>
+ *     <li>lazy expansion: leaves store their whole key, so a key is stored in a leaf directly below the first
+ *         inner node where it differs from all other keys</li>
+ * </ul>
+ * Keys may be prefixes of other keys, e.g. "ab" and "abc". The value of such a key is stored
+ * as the terminal leaf of the inner node where the longer keys continue.
+ */
+public class AdaptiveRadixTree<K extends Comparable<K>, V> implements Index<K, V> {
+    /**
+     * Encodes keys as byte strings whose unsigned lexicographic order is the order of the keys.
+     */
+    public interface KeyEncoding<K> {
+        @NotNull
+        byte[] encode(@NotNull K key);
+    }
+
+    /**
+     * Big endian with the sign bit flipped, so negative keys come first.
+     */
+    public static final KeyEncoding<Integer> INTEGERS = key -> {
+        int bits = key ^ Integer.MIN_VALUE;
+        return new byte[]{(byte) (bits >>> 24), (byte) (bits >>> 16), (byte) (bits >>> 8), (byte) bits};
+    };
+
+    /**
+     * Two big endian bytes per char, which matches [String#compareTo].
+     */
+    public static final KeyEncoding<String> STRINGS = key -> {
+        byte[] bytes = new byte[2 * key.length()];
+        for (int i = 0; i < key.length(); i++) {
+            bytes[2 * i] = (byte) (key.charAt(i) >>> 8);
+            bytes[2 * i + 1] = (byte) key.charAt(i);
+        }
+        return bytes;
+    };
+
+    private final KeyEncoding<K> keyEncoding;
+    private Node root = null;
+    private int size = 0;
+    /**
+     * Set by [#insert] and [#remove] to the previous value of the modified key
+     */
+    private Object oldValue;
+
+    public AdaptiveRadixTree(@NotNull KeyEncoding<K> keyEncoding) {
+        this.keyEncoding = keyEncoding;
+    }
+
+    /**
+     * @return the number of keys in the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Compares two byte strings by their unsigned bytes. A prefix is smaller than the longer string.
+     */
+    private static int compareKeys(byte[] key1, byte[] key2) {
+        return Arrays.compareUnsigned(key1, key2);
+    }
+
+    /**
+     * @return the number of equal bytes of key1 from offset1 and key2 from offset2
+     */
+    private static int commonPrefixLength(byte[] key1, int offset1, byte[] key2, int offset2) {
+        int mismatch = Arrays.mismatch(key1, offset1, key1.length, key2, offset2, key2.length);
+        return (mismatch < 0) ? key1.length - offset1 : mismatch;
+    }
+
+    private abstract static class Node {
+    }
+
+    private static final class Leaf extends Node {
+        final byte[] key;
+        Object value;
+
+        Leaf(byte[] key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private abstract static class InnerNode extends Node {
+        /**
+         * Bytes shared by all keys below this node after the byte leading to it
+         */
+        byte[] prefix;
+        /**
+         * Leaf of the key which ends at this node, i.e. whose last byte is the last byte of the prefix
+         */
+        @Nullable
+        Leaf terminal = null;
+        int childCount = 0;
+
+        InnerNode(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        abstract boolean isFull();
+
+        @Nullable
+        abstract Node findChild(int keyByte);
+
+        /**
+         * Adds a child for a key byte without a child. The node must not be full.
+         */
+        abstract void addChild(int keyByte, @NotNull Node child);
+
+        /**
+         * Replaces the existing child of a key byte.
+         */
+        abstract void replaceChild(int keyByte, @NotNull Node child);
+
+        abstract void removeChild(int keyByte);
+
+        /**
+         * @return the smallest key byte which is at least from and has a child or -1
+         */
+        abstract int nextChildByte(int from);
+
+        /**
+         * @return a node of the next larger size with the same contents
+         */
+        @NotNull
+        abstract InnerNode grow();
+
+        /**
+         * @return a node of the next smaller size if few enough children are left or this node
+         */
+        @NotNull
+        abstract InnerNode shrinkIfSparse();
+
+        <N extends InnerNode> N copyTo(N node) {
+            node.terminal = terminal;
+            for (int keyByte = nextChildByte(0); keyByte >= 0; keyByte = nextChildByte(keyByte + 1)) {
+                node.addChild(keyByte, findChild(keyByte));
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Stores up to capacity key bytes in ascending order and the children at the same positions.
+     */
+    private abstract static class SortedNode extends InnerNode {
+        final byte[] keyBytes;
+        final Node[] children;
+
+        SortedNode(byte[] prefix, int capacity) {
+            super(prefix);
+            this.keyBytes = new byte[capacity];
+            this.children = new Node[capacity];
+        }
+
+        /**
+         * @return the position of the key byte or -(insertion point) - 1 like [Arrays#binarySearch]
+         */
+        abstract int search(int keyByte);
+
+        @Override
+        boolean isFull() {
+            return childCount == keyBytes.length;
+        }
+
+        @Override
+        Node findChild(int keyByte) {
+            int position = search(keyByte);
+            return (position < 0) ? null : children[position];
+        }
+
+        @Override
+        void addChild(int keyByte, @NotNull Node child) {
+            int position = -search(keyByte) - 1;
+            System.arraycopy(keyBytes, position, keyBytes, position + 1, childCount - position);
+            System.arraycopy(children, position, children, position + 1, childCount - position);
+            keyBytes[position] = (byte) keyByte;
+            children[position] = child;
+            childCount++;
+        }
+
+        @Override
+        void replaceChild(int keyByte, @NotNull Node child) {
+            children[search(keyByte)] = child;
+        }
+
+        @Override
+        void removeChild(int keyByte) {
+            int position = search(keyByte);
+            System.arraycopy(keyBytes, position + 1, keyBytes, position, childCount - position - 1);
+            System.arraycopy(children, position + 1, children, position, childCount - position - 1);
+            children[--childCount] = null;
+        }
+
+        @Override
+        int nextChildByte(int from) {
+            for (int i = 0; i < childCount; i++) {
+                int keyByte = Byte.toUnsignedInt(keyBytes[i]);
+                if (keyByte >= from) {
+                    return keyByte;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Node4 extends SortedNode {
+        Node4(byte[] prefix) {
+            super(prefix, 4);
+        }
+
+        @Override
+        int search(int keyByte) {
+            for (int i = 0; i < childCount; i++) {
+                int currentByte = Byte.toUnsignedInt(keyBytes[i]);
+                if (currentByte >= keyByte) {
+                    return (currentByte == keyByte) ? i : -i - 1;
+                }
+            }
+            return -childCount - 1;
+        }
+
+        @NotNull
+        @Override
+        InnerNode grow() {
+            return copyTo(new Node16(prefix));
+        }
+
+        /**
+         * A Node4 with a single child is merged into its parent by [AdaptiveRadixTree#compact] instead.
+         */
+        @NotNull
+        @Override
+        InnerNode shrinkIfSparse() {
+            return this;
+        }
+    }
+
+    private static final class Node16 extends SortedNode {
+        Node16(byte[] prefix) {
+            super(prefix, 16);
+        }
+
+        @Override
+        int search(int keyByte) {
+            int low = 0;
+            int high = childCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleByte = Byte.toUnsignedInt(keyBytes[middle]);
+                if (middleByte < keyByte) {
+                    low = middle + 1;
+                } else if (middleByte > keyByte) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        @NotNull
+        @Override
+        InnerNode grow() {
+            return copyTo(new Node48(prefix));
+        }
+
+        @NotNull
+        @Override
+        InnerNode shrinkIfSparse() {
+            return (childCount <= 3) ? copyTo(new Node4(prefix)) : this;
+        }
+    }
+
+    private static final class Node48 extends InnerNode {
+        /**
+         * Position of the child of each key byte plus one, so 0 marks missing children
+         */
+        private final byte[] childPositions = new byte[256];
+        private final Node[] children = new Node[48];
+
+        Node48(byte[] prefix) {
+            super(prefix);
+        }
+
+        @Override
+        boolean isFull() {
+            return childCount == children.length;
+        }
+
+        @Override
+        Node findChild(int keyByte) {
+            int position = childPositions[keyByte];
+            return (position == 0) ? null : children[position - 1];
+        }
+
+        @Override
+        void addChild(int keyByte, @NotNull Node child) {
+            int position = 0;
+            while (children[position] != null) {
+                position++;
+            }
+            children[position] = child;
+            childPositions[keyByte] = (byte) (position + 1);
+            childCount++;
+        }
+
+        @Override
+        void replaceChild(int keyByte, @NotNull Node child) {
+            children[childPositions[keyByte] - 1] = child;
+        }
+
+        @Override
+        void removeChild(int keyByte) {
+            children[childPositions[keyByte] - 1] = null;
+            childPositions[keyByte] = 0;
+            childCount--;
+        }
+
+        @Override
+        int nextChildByte(int from) {
+            for (int keyByte = from; keyByte < 256; keyByte++) {
+                if (childPositions[keyByte] != 0) {
+                    return keyByte;
+                }
+            }
+            return -1;
+        }
+
+        @NotNull
+        @Override
+        InnerNode grow() {
+            return copyTo(new Node256(prefix));
+        }
+
+        @NotNull
+        @Override
+        InnerNode shrinkIfSparse() {
+            return (childCount <= 12) ? copyTo(new Node16(prefix)) : this;
+        }
+    }
+
+    private static final class Node256 extends InnerNode {
+        private final Node[] children = new Node[256];
+
+        Node256(byte[] prefix) {
+            super(prefix);
+        }
+
+        @Override
+        boolean isFull() {
+            return false;
+        }
+
+        @Override
+        Node findChild(int keyByte) {
+            return children[keyByte];
+        }
+
+        @Override
+        void addChild(int keyByte, @NotNull Node child) {
+            children[keyByte] = child;
+            childCount++;
+        }
+
+        @Override
+        void replaceChild(int keyByte, @NotNull Node child) {
+            children[keyByte] = child;
+        }
+
+        @Override
+        void removeChild(int keyByte) {
+            children[keyByte] = null;
+            childCount--;
+        }
+
+        @Override
+        int nextChildByte(int from) {
+            for (int keyByte = from; keyByte < 256; keyByte++) {
+                if (children[keyByte] != null) {
+                    return keyByte;
+                }
+            }
+            return -1;
+        }
+
+        @NotNull
+        @Override
+        InnerNode grow() {
+            throw new IllegalStateException("Node256 can not grow");
+        }
+
+        /**
+         * Shrinks below 40 children instead of 48, so alternating inserts and removals do not copy the node every time.
+         */
+        @NotNull
+        @Override
+        InnerNode shrinkIfSparse() {
+            return (childCount < 40) ? copyTo(new Node48(prefix)) : this;
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrNull(@NotNull K searchKey) {
+        byte[] key = keyEncoding.encode(searchKey);
+        Node node = root;
+        int depth = 0;
+        while (node instanceof InnerNode innerNode) {
+            // the prefix is not checked, as the leaf stores the whole key
+            depth += innerNode.prefix.length;
+            if (depth >= key.length) {
+                node = (depth == key.length) ? innerNode.terminal : null;
+                break;
+            }
+            node = innerNode.findChild(Byte.toUnsignedInt(key[depth++]));
+        }
+        if (node instanceof Leaf leaf && Arrays.equals(leaf.key, key)) {
+            return (V) leaf.value;
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public V insert(@NotNull K key, @NotNull V value) {
+        oldValue = null;
+        root = insert(root, keyEncoding.encode(key), 0, value);
+        if (oldValue == null) {
+            size++;
+        }
+        return (V) oldValue;
+    }
+
+    /**
+     * @param depth the number of key bytes consumed by the ancestors of the node
+     * @return the node which replaces the given node in its parent
+     */
+    private Node insert(@Nullable Node node, byte[] key, int depth, Object value) {
+        if (node == null) {
+            return new Leaf(key, value);
+        }
+        if (node instanceof Leaf leaf) {
+            if (Arrays.equals(leaf.key, key)) {
+                oldValue = leaf.value;
+                leaf.value = value;
+                return leaf;
+            }
+            // lazy expansion: only now an inner node is needed to tell both keys apart
+            int prefixLength = commonPrefixLength(leaf.key, depth, key, depth);
+            InnerNode innerNode = new Node4(Arrays.copyOfRange(key, depth, depth + prefixLength));
+            addLeaf(innerNode, leaf, depth + prefixLength);
+            addLeaf(innerNode, new Leaf(key, value), depth + prefixLength);
+            return innerNode;
+        }
+
+        InnerNode innerNode = (InnerNode) node;
+        int prefixLength = commonPrefixLength(innerNode.prefix, 0, key, depth);
+        if (prefixLength < innerNode.prefix.length) {
+            // the key leaves the compressed path, which is split at the mismatch
+            InnerNode parent = new Node4(Arrays.copyOf(innerNode.prefix, prefixLength));
+            parent.addChild(Byte.toUnsignedInt(innerNode.prefix[prefixLength]), innerNode);
+            innerNode.prefix = Arrays.copyOfRange(innerNode.prefix, prefixLength + 1, innerNode.prefix.length);
+            addLeaf(parent, new Leaf(key, value), depth + prefixLength);
+            return parent;
+        }
+
+        depth += prefixLength;
+        if (depth == key.length) {
+            if (innerNode.terminal == null) {
+                innerNode.terminal = new Leaf(key, value);
+            } else {
+                oldValue = innerNode.terminal.value;
+                innerNode.terminal.value = value;
+            }
+            return innerNode;
+        }
+        int keyByte = Byte.toUnsignedInt(key[depth]);
+        Node child = innerNode.findChild(keyByte);
+        if (child != null) {
+            Node newChild = insert(child, key, depth + 1, value);
+            if (newChild != child) {
+                innerNode.replaceChild(keyByte, newChild);
+            }
+            return innerNode;
+        }
+        if (innerNode.isFull()) {
+            innerNode = innerNode.grow();
+        }
+        innerNode.addChild(keyByte, new Leaf(key, value));
+        return innerNode;
+    }
+
+    /**
+     * Adds a leaf to a node whose prefix ends after the given number of key bytes.
+     */
+    private static void addLeaf(InnerNode node, Leaf leaf, int depth) {
+        if (leaf.key.length == depth) {
+            node.terminal = leaf;
+        } else {
+            node.addChild(Byte.toUnsignedInt(leaf.key[depth]), leaf);
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(@NotNull K key) {
+        oldValue = null;
+        root = remove(root, keyEncoding.encode(key), 0);
+        if (oldValue != null) {
+            size--;
+        }
+        return (V) oldValue;
+    }
+
+    /**
+     * @return the node which replaces the given node in its parent, null if it became empty
+     */
+    @Nullable
+    private Node remove(@Nullable Node node, byte[] key, int depth) {
+        if (node == null) {
+            return null;
+        }
+        if (node instanceof Leaf leaf) {
+            if (Arrays.equals(leaf.key, key)) {
+                oldValue = leaf.value;
+                return null;
+            }
+            return leaf;
+        }
+
+        InnerNode innerNode = (InnerNode) node;
+        if (commonPrefixLength(innerNode.prefix, 0, key, depth) < innerNode.prefix.length) {
+            return innerNode;
+        }
+        depth += innerNode.prefix.length;
+        if (depth == key.length) {
+            if (innerNode.terminal == null) {
+                return innerNode;
+            }
+            oldValue = innerNode.terminal.value;
+            innerNode.terminal = null;
+            return compact(innerNode);
+        }
+        int keyByte = Byte.toUnsignedInt(key[depth]);
+        Node child = innerNode.findChild(keyByte);
+        if (child == null) {
+            return innerNode;
+        }
+        Node newChild = remove(child, key, depth + 1);
+        if (newChild == null) {
+            innerNode.removeChild(keyByte);
+            return compact(innerNode.shrinkIfSparse());
+        }
+        if (newChild != child) {
+            innerNode.replaceChild(keyByte, newChild);
+        }
+        return innerNode;
+    }
+
+    /**
+     * Removes inner nodes which are left with a single leaf or child,
+     * so the tree stays path compressed and lazily expanded after removals.
+     */
+    @Nullable
+    private static Node compact(InnerNode node) {
+        int leafCount = node.childCount + ((node.terminal == null) ? 0 : 1);
+        if (leafCount > 1) {
+            return node;
+        }
+        if (node.terminal != null) {
+            return node.terminal;
+        }
+        if (node.childCount == 0) {
+            return null;
+        }
+        int keyByte = node.nextChildByte(0);
+        Node child = node.findChild(keyByte);
+        if (child instanceof InnerNode innerChild) {
+            byte[] prefix = Arrays.copyOf(node.prefix, node.prefix.length + 1 + innerChild.prefix.length);
+            prefix[node.prefix.length] = (byte) keyByte;
+            System.arraycopy(innerChild.prefix, 0, prefix, node.prefix.length + 1, innerChild.prefix.length);
+            innerChild.prefix = prefix;
+        }
+        return child;
+    }
+
+    /**
+     * @return an iterator over the values of all keys between both bounds in ascending key order
+     */
+    @NotNull
+    @Override
+    public Iterator<V> getRange(@NotNull K lowerBound, @NotNull K upperBound) {
+        if (lowerBound.compareTo(upperBound) > 0) {
+            return Collections.emptyIterator();
+        }
+        return new RangeIterator(keyEncoding.encode(lowerBound), keyEncoding.encode(upperBound));
+    }
+
+    private final class RangeIterator implements Iterator<V> {
+        /**
+         * An inner node whose terminal and children from nextChildByte on are not visited yet
+         */
+        private static final class Frame {
+            final InnerNode node;
+            boolean terminalVisited;
+            int nextChildByte;
+
+            Frame(InnerNode node, boolean terminalVisited, int nextChildByte) {
+                this.node = node;
+                this.terminalVisited = terminalVisited;
+                this.nextChildByte = nextChildByte;
+            }
+        }
+
+        private final byte[] upperBound;
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        @Nullable
+        private Leaf nextLeaf = null;
+
+        RangeIterator(byte[] lowerBound, byte[] upperBound) {
+            this.upperBound = upperBound;
+            seek(lowerBound);
+            if (nextLeaf == null) {
+                advance();
+            } else {
+                checkUpperBound();
+            }
+        }
+
+        /**
+         * Positions the stack at the first key which is at least the lower bound.
+         * Subtrees left of the search path are skipped without visiting them.
+         */
+        private void seek(byte[] lowerBound) {
+            Node node = root;
+            int depth = 0;
+            while (node instanceof InnerNode innerNode) {
+                int prefixLength = commonPrefixLength(innerNode.prefix, 0, lowerBound, depth);
+                if (prefixLength < innerNode.prefix.length) {
+                    // all keys of the subtree are either greater or smaller than the lower bound
+                    if (depth + prefixLength == lowerBound.length
+                        || Byte.compareUnsigned(innerNode.prefix[prefixLength], lowerBound[depth + prefixLength]) > 0) {
+                        stack.push(new Frame(innerNode, false, 0));
+                    }
+                    return;
+                }
+                depth += prefixLength;
+                if (depth == lowerBound.length) {
+                    stack.push(new Frame(innerNode, false, 0));
+                    return;
+                }
+                // the terminal key is a prefix of the lower bound and thus smaller
+                int keyByte = Byte.toUnsignedInt(lowerBound[depth++]);
+                stack.push(new Frame(innerNode, true, keyByte + 1));
+                node = innerNode.findChild(keyByte);
+            }
+            if (node instanceof Leaf leaf && compareKeys(leaf.key, lowerBound) >= 0) {
+                nextLeaf = leaf;
+            }
+        }
+
+        /**
+         * Finds the next leaf in key order or ends the iteration.
+         */
+        private void advance() {
+            nextLeaf = null;
+            while (nextLeaf == null && !stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (!frame.terminalVisited) {
+                    frame.terminalVisited = true;
+                    nextLeaf = frame.node.terminal;
+                    continue;
+                }
+                int keyByte = (frame.nextChildByte > 255) ? -1 : frame.node.nextChildByte(frame.nextChildByte);
+                if (keyByte < 0) {
+                    stack.pop();
+                    continue;
+                }
+                frame.nextChildByte = keyByte + 1;
+                Node child = frame.node.findChild(keyByte);
+                if (child instanceof Leaf leaf) {
+                    nextLeaf = leaf;
+                } else {
+                    stack.push(new Frame((InnerNode) child, false, 0));
+                }
+            }
+            checkUpperBound();
+        }
+
+        private void checkUpperBound() {
+            if (nextLeaf != null && compareKeys(nextLeaf.key, upperBound) > 0) {
+                nextLeaf = null;
+                stack.clear();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeaf != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (nextLeaf == null) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) nextLeaf.value;
+            advance();
+            return value;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Builds a B+-Tree bottom-up from entries sorted by key, e.g. from a relation sorted with TPMMS.
+ *
+ * <p>The leaves are filled one after another up to the fill factor and linked while they are created.
+ * Then every level of inner nodes is built from the nodes of the level below, until a single root is left.
+ * Every entry and node is touched a constant number of times, so loading takes linear time.
+ *
+ * <p><pre>{@code
+ * AbstractBPlusTree tree = new BPlusTreeJava(
+ *     new BPlusTreeBulkLoader(order, 1.0).load(sortedEntries)
+ * );
+ * }</pre>
+ */
+public class BPlusTreeBulkLoader {
+    public final int order;
+    private final int entriesPerLeaf;
+    private final int childrenPerInnerNode;
+
+    /**
+     * @param fillFactor the share of the slots of every node to fill, at least the minimum fill of a valid node
+     *                   is used. A fill factor below 1 leaves space for later inserts without splits.
+     */
+    public BPlusTreeBulkLoader(int order, double fillFactor) {
+        Preconditions.checkArgument(order > 2, "order must be larger than 2");
+        Preconditions.checkArgument(fillFactor > 0 && fillFactor <= 1, "fillFactor must be in (0, 1]");
+        this.order = order;
+        this.entriesPerLeaf = Math.max(getMinLeafSize(), (int) Math.round(fillFactor * (order - 1)));
+        this.childrenPerInnerNode = Math.max(getMinInnerNodeSize(), (int) Math.round(fillFactor * order));
+    }
+
+    private int getMinLeafSize() {
+        return order / 2;
+    }
+
+    private int getMinInnerNodeSize() {
+        return (order + 1) / 2;
+    }
+
+    /**
+     * @param sortedEntries entries with strictly ascending keys
+     * @return the root node of the loaded tree, an [InitialRootNode] if all entries fit into one leaf
+     * @throws IllegalArgumentException if the keys are not strictly ascending
+     */
+    @NotNull
+    public BPlusTreeNode<?> load(@NotNull Iterator<? extends AbstractBPlusTree.Entry> sortedEntries) {
+        List<AbstractBPlusTree.Entry[]> leafEntries = new ArrayList<>();
+        AbstractBPlusTree.Entry[] buffer = new AbstractBPlusTree.Entry[entriesPerLeaf];
+        int bufferSize = 0;
+        Integer previousKey = null;
+        while (sortedEntries.hasNext()) {
+            AbstractBPlusTree.Entry entry = sortedEntries.next();
+            if (previousKey != null && previousKey >= entry.getKey()) {
+                throw new IllegalArgumentException("Keys must be strictly ascending: " + previousKey + ", " + entry.getKey());
+            }
+            previousKey = entry.getKey();
+
+            buffer[bufferSize++] = entry;
+            if (bufferSize == entriesPerLeaf) {
+                leafEntries.add(buffer);
+                buffer = new AbstractBPlusTree.Entry[entriesPerLeaf];
+                bufferSize = 0;
+            }
+        }
+        if (bufferSize > 0 || leafEntries.isEmpty()) {
+            leafEntries.add(Arrays.copyOf(buffer, bufferSize));
+        }
+
+        if (leafEntries.size() == 1) {
+            return new InitialRootNode(order, leafEntries.get(0));
+        }
+        balanceLastGroup(leafEntries, getMinLeafSize(), order - 1, AbstractBPlusTree.Entry[]::new);
+
+        List<BPlusTreeNode<?>> level = new ArrayList<>(leafEntries.size());
+        LeafNode previousLeaf = null;
+        for (AbstractBPlusTree.Entry[] entries : leafEntries) {
+            LeafNode leaf = new LeafNode(order, entries);
+            if (previousLeaf != null) {
+                previousLeaf.nextSibling = leaf;
+            }
+            level.add(leaf);
+            previousLeaf = leaf;
+        }
+
+        while (level.size() > 1) {
+            List<BPlusTreeNode<?>[]> groups = new ArrayList<>();
+            for (int start = 0; start < level.size(); start += childrenPerInnerNode) {
+                int end = Math.min(start + childrenPerInnerNode, level.size());
+                groups.add(level.subList(start, end).toArray(new BPlusTreeNode<?>[0]));
+            }
+            balanceLastGroup(groups, getMinInnerNodeSize(), order, BPlusTreeNode<?>[]::new);
+
+            List<BPlusTreeNode<?>> parentLevel = new ArrayList<>(groups.size());
+            for (BPlusTreeNode<?>[] children : groups) {
+                parentLevel.add(new InnerNode(order, children));
+            }
+            level = parentLevel;
+        }
+        return level.get(0);
+    }
+
+    private interface ArrayFactory<T> {
+        T[] create(int length);
+    }
+
+    /**
+     * If the last group is smaller than the minimum size, it is combined with the group before
+     * and the combined elements are either kept in a single group or split evenly into two groups.
+     */
+    private static <T> void balanceLastGroup(List<T[]> groups, int minSize, int maxSize, ArrayFactory<T> arrayFactory) {
+        int lastIndex = groups.size() - 1;
+        if (lastIndex < 1 || groups.get(lastIndex).length >= minSize) return;
+
+        T[] previousGroup = groups.get(lastIndex - 1);
+        T[] lastGroup = groups.get(lastIndex);
+        T[] combined = arrayFactory.create(previousGroup.length + lastGroup.length);
+        System.arraycopy(previousGroup, 0, combined, 0, previousGroup.length);
+        System.arraycopy(lastGroup, 0, combined, previousGroup.length, lastGroup.length);
+
+        groups.remove(lastIndex);
+        if (combined.length <= maxSize) {
+            groups.set(lastIndex - 1, combined);
+        } else {
+            int splitIndex = (combined.length + 1) / 2;
+            groups.set(lastIndex - 1, Arrays.copyOfRange(combined, 0, splitIndex));
+            groups.add(Arrays.copyOfRange(combined, splitIndex, combined.length));
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
 import java.util.stream.Stream;
 
 public sealed abstract class BPlusTreeNode<V> permits InnerNode, LeafNode {
@@ -45,9 +44,62 @@ public sealed abstract class BPlusTreeNode<V> permits InnerNode, LeafNode {
      * @return the number of references in this node
      */
     public int getNodeSize() {
-        return (int) Arrays.stream(references)
-            .takeWhile(Objects::nonNull)
-            .count();
+        return countFilledSlots(references);
+    }
+
+    /**
+     * @return the number of keys in this node
+     */
+    public int getKeyCount() {
+        return countFilledSlots(keys);
+    }
+
+    /**
+     * Keys and references are filled from the left, so the first null can be found by binary search.
+     */
+    private static int countFilledSlots(Object[] slots) {
+        int low = 0;
+        int high = slots.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (slots[middle] == null) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search over the keys, which are sorted and filled from the left (null keys are larger than all keys).
+     *
+     * @return the index of the search key, if it is contained,
+     * otherwise (-(insertion point) - 1) like [Arrays.binarySearch]
+     */
+    public int findKeyIndex(@NotNull Integer searchKey) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Integer key = keys[middle];
+            if (key == null || key > searchKey) {
+                high = middle - 1;
+            } else if (key < searchKey) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the index of the first key which is larger than the search key or null
+     */
+    protected int upperBound(@NotNull Integer searchKey) {
+        int index = findKeyIndex(searchKey);
+        return (index >= 0) ? index + 1 : -(index + 1);
     }
 
     /**
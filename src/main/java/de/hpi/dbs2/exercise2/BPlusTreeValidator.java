@@ -0,0 +1,90 @@
+package de.hpi.dbs2.exercise2;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Checks the structure of the B+-tree variants which do not use [BPlusTreeNode]s, for testing purposes.
+ * The keys of every node have to be sorted and lie within the bounds given by its parent,
+ * all leaves have to be at the same depth and every node but the root has to be filled by the given minimums.
+ *
+ * @param <K> the key type
+ * @param <N> the node type, which may also be a copy of a page
+ */
+abstract class BPlusTreeValidator<K, N> {
+    private final Comparator<? super K> comparator;
+    private final int minLeafKeys;
+    private final int minInnerChildren;
+    private final int maxChildren;
+
+    /**
+     * Uses the same fill criteria as [AbstractBPlusTree].
+     */
+    BPlusTreeValidator(Comparator<? super K> comparator, int order) {
+        this(comparator, order / 2, (order + 1) / 2, order);
+    }
+
+    /**
+     * @param maxChildren the maximum number of children of inner nodes, leaves hold one key less
+     */
+    BPlusTreeValidator(Comparator<? super K> comparator, int minLeafKeys, int minInnerChildren, int maxChildren) {
+        this.comparator = comparator;
+        this.minLeafKeys = minLeafKeys;
+        this.minInnerChildren = minInnerChildren;
+        this.maxChildren = maxChildren;
+    }
+
+    /**
+     * @return the keys of the node in the order they are stored
+     */
+    abstract List<K> getKeys(N node);
+
+    /**
+     * @return the children of the node or null if it is a leaf
+     */
+    @Nullable
+    abstract List<N> getChildren(N node);
+
+    /**
+     * Checks further properties of a single node, e.g. its size.
+     */
+    boolean isNodeValid(N node) {
+        return true;
+    }
+
+    /**
+     * @return the height of the valid tree below the given root or -1 if it is invalid
+     */
+    int getHeight(N rootNode) {
+        return getHeight(rootNode, true, null, null);
+    }
+
+    private int getHeight(N node, boolean isRoot, @Nullable K lowerKey, @Nullable K upperKey) {
+        List<K> keys = getKeys(node);
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0 && comparator.compare(keys.get(i - 1), keys.get(i)) >= 0) return -1;
+            if (lowerKey != null && comparator.compare(keys.get(i), lowerKey) < 0) return -1;
+            if (upperKey != null && comparator.compare(keys.get(i), upperKey) >= 0) return -1;
+        }
+        if (!isNodeValid(node)) return -1;
+
+        List<N> children = getChildren(node);
+        if (children == null) {
+            if (keys.size() >= maxChildren) return -1;
+            return (isRoot || keys.size() >= minLeafKeys) ? 0 : -1;
+        }
+        if (keys.isEmpty() || children.size() != keys.size() + 1 || children.size() > maxChildren) return -1;
+        if (!isRoot && children.size() < minInnerChildren) return -1;
+        int height = -1;
+        for (int i = 0; i < children.size(); i++) {
+            K childLowerKey = (i == 0) ? lowerKey : keys.get(i - 1);
+            K childUpperKey = (i == keys.size()) ? upperKey : keys.get(i);
+            int childHeight = getHeight(children.get(i), false, childLowerKey, childUpperKey);
+            if (childHeight < 0 || (height >= 0 && childHeight != height)) return -1;
+            height = childHeight;
+        }
+        return height + 1;
+    }
+}
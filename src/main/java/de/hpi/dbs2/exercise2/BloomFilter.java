@@ -0,0 +1,105 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A Bloom filter for int keys: a set of keys which may answer [#mightContain] with true for keys which have never
+ * been added (false positives), but never with false for added keys.
+ *
+ * <p>Every key sets hashCount bits of a bit array. With b bits per key and the optimal hashCount = b * ln(2),
+ * the false positive rate is about 0.6185^b, e.g. 1% for 10 bits per key.
+ * Keys can not be removed, so the filter has to be rebuilt to drop them.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    public final int hashCount;
+    private int keyCount = 0;
+
+    /**
+     * @param bitCount  size of the bit array, i.e. the memory used by the filter
+     * @param hashCount number of bits set per key
+     */
+    public BloomFilter(long bitCount, int hashCount) {
+        Preconditions.checkArgument(bitCount > 0, "bitCount must be positive");
+        Preconditions.checkArgument(hashCount > 0, "hashCount must be positive");
+        this.bits = new long[Math.toIntExact((bitCount + Long.SIZE - 1) / Long.SIZE)];
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * @return a filter with the given memory per expected key and the optimal number of hash functions for it
+     */
+    public static BloomFilter withBitsPerKey(int expectedKeys, double bitsPerKey) {
+        Preconditions.checkArgument(bitsPerKey > 0, "bitsPerKey must be positive");
+        long bitCount = Math.max(Long.SIZE, (long) Math.ceil(Math.max(1, expectedKeys) * bitsPerKey));
+        int hashCount = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+        return new BloomFilter(bitCount, hashCount);
+    }
+
+    /**
+     * @return the memory per key needed for the given false positive rate
+     */
+    public static double bitsPerKey(double falsePositiveRate) {
+        Preconditions.checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1,
+            "falsePositiveRate must be between 0 and 1");
+        return -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return the number of added keys, counting keys which have been added multiple times repeatedly
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * @return the expected false positive rate for the current number of keys
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * keyCount / bitCount), hashCount);
+    }
+
+    /**
+     * Double hashing: the i-th bit of a key is h1 + i * h2, where both halves come from one 64 bit hash.
+     */
+    private static long hash(int key) {
+        // finalizer of SplitMix64, which spreads consecutive keys over all bits
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    public void add(int key) {
+        long hash = hash(key);
+        long hash1 = hash >>> 32;
+        long hash2 = hash & 0xFFFFFFFFL | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        keyCount++;
+    }
+
+    /**
+     * @return false if the key has definitely not been added
+     */
+    public boolean mightContain(int key) {
+        long hash = hash(key);
+        long hash1 = hash >>> 32;
+        long hash2 = hash & 0xFFFFFFFFL | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
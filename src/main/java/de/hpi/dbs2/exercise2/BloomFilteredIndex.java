@@ -0,0 +1,179 @@
+package de.hpi.dbs2.exercise2;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Puts a [BloomFilter] in front of a B+-Tree, so most lookups of missing keys are answered
+ * without descending from the root to a leaf.
+ *
+ * <p>The filter is built from the entries of the given tree, e.g. after bulk loading it,
+ * and maintained by all inserts through this index. Thus, the tree must not be modified directly afterwards.
+ * The filter is rebuilt once it holds more keys than it was sized for, which would raise its false positive rate,
+ * and once many of its keys have been removed.
+ */
+public class BloomFilteredIndex implements Index<Integer, ValueReference> {
+    /**
+     * Counters of all lookups through [#getOrNull] and [#getAll]
+     *
+     * @param lookups        number of looked up keys
+     * @param filteredMisses lookups answered by the filter alone
+     * @param falsePositives lookups which passed the filter, but whose key was not found in the tree
+     */
+    public record Statistics(long lookups, long filteredMisses, long falsePositives) {
+        public long hits() {
+            return lookups - filteredMisses - falsePositives;
+        }
+    }
+
+    private final AbstractBPlusTree tree;
+    public final double bitsPerKey;
+    private BloomFilter filter;
+    /**
+     * Number of keys in the tree, tracked to size the filter
+     */
+    private int keyCount;
+    /**
+     * The number of keys the current filter was sized for
+     */
+    private int filterCapacity;
+    private int removedKeyCount;
+
+    private long lookups = 0;
+    private long filteredMisses = 0;
+    private long falsePositives = 0;
+
+    /**
+     * @param bitsPerKey memory used per key, which determines the false positive rate,
+     *                   see [BloomFilter.bitsPerKey]
+     */
+    public BloomFilteredIndex(@NotNull AbstractBPlusTree tree, double bitsPerKey) {
+        this.tree = tree;
+        this.bitsPerKey = bitsPerKey;
+        rebuildFilter((int) tree.getEntries().count());
+    }
+
+    /**
+     * @return an index whose filter has about the given false positive rate
+     */
+    public static BloomFilteredIndex withFalsePositiveRate(@NotNull AbstractBPlusTree tree, double falsePositiveRate) {
+        return new BloomFilteredIndex(tree, BloomFilter.bitsPerKey(falsePositiveRate));
+    }
+
+    private void rebuildFilter(int expectedKeys) {
+        filterCapacity = Math.max(expectedKeys, 64);
+        filter = BloomFilter.withBitsPerKey(filterCapacity, bitsPerKey);
+        keyCount = 0;
+        removedKeyCount = 0;
+        tree.getEntries().forEach(entry -> {
+            filter.add(entry.getKey());
+            keyCount++;
+        });
+    }
+
+    public AbstractBPlusTree getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the memory used by the filter in bits
+     */
+    public long getFilterBitCount() {
+        return filter.getBitCount();
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(lookups, filteredMisses, falsePositives);
+    }
+
+    public void resetStatistics() {
+        lookups = 0;
+        filteredMisses = 0;
+        falsePositives = 0;
+    }
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        lookups++;
+        if (!filter.mightContain(searchKey)) {
+            filteredMisses++;
+            return null;
+        }
+        ValueReference value = tree.getOrNull(searchKey);
+        if (value == null) {
+            falsePositives++;
+        }
+        return value;
+    }
+
+    /**
+     * Like [AbstractBPlusTree.getAll], but only the keys passing the filter are looked up in the tree.
+     */
+    @NotNull
+    public ValueReference[] getAll(@NotNull int[] sortedKeys) {
+        int[] candidateKeys = new int[sortedKeys.length];
+        int[] candidatePositions = new int[sortedKeys.length];
+        int candidateCount = 0;
+        for (int i = 0; i < sortedKeys.length; i++) {
+            if (filter.mightContain(sortedKeys[i])) {
+                candidateKeys[candidateCount] = sortedKeys[i];
+                candidatePositions[candidateCount++] = i;
+            }
+        }
+        lookups += sortedKeys.length;
+        filteredMisses += sortedKeys.length - candidateCount;
+
+        ValueReference[] candidateValues = tree.getAll(Arrays.copyOf(candidateKeys, candidateCount));
+        ValueReference[] values = new ValueReference[sortedKeys.length];
+        for (int i = 0; i < candidateCount; i++) {
+            if (candidateValues[i] == null) {
+                falsePositives++;
+            }
+            values[candidatePositions[i]] = candidateValues[i];
+        }
+        return values;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        return tree.getRange(lowerBound, upperBound);
+    }
+
+    @Nullable
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        ValueReference oldValue = tree.insert(key, value);
+        if (oldValue == null) {
+            keyCount++;
+            if (keyCount > filterCapacity) {
+                rebuildFilter(2 * keyCount);
+            } else {
+                filter.add(key);
+            }
+        }
+        return oldValue;
+    }
+
+    /**
+     * The key stays in the filter until it is rebuilt.
+     */
+    @Nullable
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        ValueReference oldValue = tree.remove(key);
+        if (oldValue != null) {
+            keyCount--;
+            removedKeyCount++;
+            // removed keys cause additional false positives
+            if (removedKeyCount > keyCount) {
+                rebuildFilter(keyCount);
+            }
+        }
+        return oldValue;
+    }
+}
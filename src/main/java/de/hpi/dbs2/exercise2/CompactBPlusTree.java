@@ -0,0 +1,461 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A B+-Tree with the same structure as [AbstractBPlusTree], but with a node layout specialized for int keys.
+ *
+ * <p>Every node stores its keys in an int[] together with an explicit key count,
+ * so keys are not boxed and the fill status of a node is known without scanning it.
+ * Lookups use binary search within a node and inserts shift entries with [System.arraycopy].
+ */
+public class CompactBPlusTree implements Index<Integer, ValueReference> {
+    public final int order;
+    private Node rootNode;
+    /**
+     * Number of inner node levels above the leaves
+     */
+    private int height = 0;
+    private int size = 0;
+
+    public CompactBPlusTree(int order) {
+        Preconditions.checkArgument(order > 2, "order must be larger than 2");
+        this.order = order;
+        this.rootNode = new Leaf(order);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    private Leaf findLeaf(int searchKey) {
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            node = inner.children[inner.selectChildIndex(searchKey)];
+        }
+        return (Leaf) node;
+    }
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        Leaf leaf = findLeaf(searchKey);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, searchKey);
+        return (index >= 0) ? leaf.values[index] : null;
+    }
+
+    /**
+     * Follows the leaf links from the leaf of the lower bound.
+     */
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        if (lowerBound > upperBound) {
+            return Collections.emptyIterator();
+        }
+        Leaf firstLeaf = findLeaf(lowerBound);
+        int firstIndex = Arrays.binarySearch(firstLeaf.keys, 0, firstLeaf.keyCount, lowerBound);
+        return new Iterator<>() {
+            private Leaf leaf = firstLeaf;
+            private int index = (firstIndex >= 0) ? firstIndex : -(firstIndex + 1);
+
+            @Override
+            public boolean hasNext() {
+                while (leaf != null && index == leaf.keyCount) {
+                    leaf = leaf.nextSibling;
+                    index = 0;
+                }
+                return leaf != null && leaf.keys[index] <= upperBound;
+            }
+
+            @Override
+            public ValueReference next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return leaf.values[index++];
+            }
+        };
+    }
+
+    @Nullable
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        // remember the path to the leaf for propagating splits
+        Inner[] path = new Inner[height];
+        int[] pathChildIndexes = new int[height];
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int childIndex = inner.selectChildIndex(key);
+            path[level] = inner;
+            pathChildIndexes[level] = childIndex;
+            node = inner.children[childIndex];
+        }
+        Leaf leaf = (Leaf) node;
+
+        int position = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, key);
+        if (position >= 0) {
+            ValueReference oldValue = leaf.values[position];
+            leaf.values[position] = value;
+            return oldValue;
+        }
+        position = -(position + 1);
+        size++;
+
+        if (!leaf.isFull()) {
+            leaf.insertAt(position, key, value);
+            return null;
+        }
+        Node splitNode = leaf.splitAndInsert(position, key, value);
+        int separatorKey = ((Leaf) splitNode).keys[0];
+
+        for (int level = height - 1; level >= 0; level--) {
+            Inner parent = path[level];
+            int childIndex = pathChildIndexes[level];
+            if (!parent.isFull()) {
+                parent.insertAt(childIndex, separatorKey, splitNode);
+                return null;
+            }
+            Inner rightParent = parent.splitAndInsert(childIndex, separatorKey, splitNode);
+            // the separator between the split inner nodes moves up instead of staying in a node
+            separatorKey = parent.splitKey;
+            splitNode = rightParent;
+        }
+
+        Inner newRoot = new Inner(order);
+        newRoot.keys[0] = separatorKey;
+        newRoot.children[0] = rootNode;
+        newRoot.children[1] = splitNode;
+        newRoot.keyCount = 1;
+        rootNode = newRoot;
+        height++;
+        return null;
+    }
+
+    /**
+     * Underfull nodes borrow an entry from a sibling or are merged with it, like in [AbstractBPlusTree.remove].
+     */
+    @Nullable
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        Inner[] path = new Inner[height];
+        int[] pathChildIndexes = new int[height];
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int childIndex = inner.selectChildIndex(key);
+            path[level] = inner;
+            pathChildIndexes[level] = childIndex;
+            node = inner.children[childIndex];
+        }
+        Leaf leaf = (Leaf) node;
+
+        int position = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, key);
+        if (position < 0) {
+            return null;
+        }
+        ValueReference oldValue = leaf.values[position];
+        leaf.removeAt(position);
+        size--;
+
+        for (int level = height - 1; level >= 0 && isUnderfull(node); level--) {
+            Inner parent = path[level];
+            int childIndex = pathChildIndexes[level];
+            Node leftSibling = (childIndex > 0) ? parent.children[childIndex - 1] : null;
+            Node rightSibling = (childIndex < parent.keyCount) ? parent.children[childIndex + 1] : null;
+            if (leftSibling != null && canLend(leftSibling)) {
+                borrowFromLeft(parent, childIndex);
+            } else if (rightSibling != null && canLend(rightSibling)) {
+                borrowFromRight(parent, childIndex);
+            } else {
+                // merge the right one of both nodes into the left one
+                merge(parent, (leftSibling != null) ? childIndex - 1 : childIndex);
+            }
+            node = parent;
+        }
+
+        if (rootNode instanceof Inner root && root.keyCount == 0) {
+            rootNode = root.children[0];
+            height--;
+        }
+        return oldValue;
+    }
+
+    private int getMinKeyCount(Node node) {
+        return (node instanceof Leaf) ? order / 2 : (order + 1) / 2 - 1;
+    }
+
+    private boolean isUnderfull(Node node) {
+        return node != rootNode && node.keyCount < getMinKeyCount(node);
+    }
+
+    private boolean canLend(Node node) {
+        return node.keyCount > getMinKeyCount(node);
+    }
+
+    /**
+     * Moves the last entry of the left sibling of parent.children[childIndex] to its front.
+     */
+    private static void borrowFromLeft(Inner parent, int childIndex) {
+        Node node = parent.children[childIndex];
+        Node left = parent.children[childIndex - 1];
+        if (node instanceof Leaf leaf) {
+            Leaf leftLeaf = (Leaf) left;
+            leaf.insertAt(0, leftLeaf.keys[leftLeaf.keyCount - 1], leftLeaf.values[leftLeaf.keyCount - 1]);
+            leftLeaf.removeAt(leftLeaf.keyCount - 1);
+            parent.keys[childIndex - 1] = leaf.keys[0];
+            return;
+        }
+        // the separator moves down and the last key of the left sibling moves up
+        Inner inner = (Inner) node;
+        Inner leftInner = (Inner) left;
+        System.arraycopy(inner.keys, 0, inner.keys, 1, inner.keyCount);
+        System.arraycopy(inner.children, 0, inner.children, 1, inner.keyCount + 1);
+        inner.keys[0] = parent.keys[childIndex - 1];
+        inner.children[0] = leftInner.children[leftInner.keyCount];
+        inner.keyCount++;
+        parent.keys[childIndex - 1] = leftInner.keys[leftInner.keyCount - 1];
+        leftInner.children[leftInner.keyCount] = null;
+        leftInner.keyCount--;
+    }
+
+    /**
+     * Moves the first entry of the right sibling of parent.children[childIndex] to its end.
+     */
+    private static void borrowFromRight(Inner parent, int childIndex) {
+        Node node = parent.children[childIndex];
+        Node right = parent.children[childIndex + 1];
+        if (node instanceof Leaf leaf) {
+            Leaf rightLeaf = (Leaf) right;
+            leaf.insertAt(leaf.keyCount, rightLeaf.keys[0], rightLeaf.values[0]);
+            rightLeaf.removeAt(0);
+            parent.keys[childIndex] = rightLeaf.keys[0];
+            return;
+        }
+        Inner inner = (Inner) node;
+        Inner rightInner = (Inner) right;
+        inner.keys[inner.keyCount] = parent.keys[childIndex];
+        inner.children[inner.keyCount + 1] = rightInner.children[0];
+        inner.keyCount++;
+        parent.keys[childIndex] = rightInner.keys[0];
+        System.arraycopy(rightInner.keys, 1, rightInner.keys, 0, rightInner.keyCount - 1);
+        System.arraycopy(rightInner.children, 1, rightInner.children, 0, rightInner.keyCount);
+        rightInner.children[rightInner.keyCount] = null;
+        rightInner.keyCount--;
+    }
+
+    /**
+     * Appends parent.children[leftIndex + 1] to parent.children[leftIndex] and removes it from the parent.
+     */
+    private static void merge(Inner parent, int leftIndex) {
+        Node left = parent.children[leftIndex];
+        Node right = parent.children[leftIndex + 1];
+        if (left instanceof Leaf leftLeaf) {
+            Leaf rightLeaf = (Leaf) right;
+            System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.keyCount, rightLeaf.keyCount);
+            System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.keyCount, rightLeaf.keyCount);
+            leftLeaf.keyCount += rightLeaf.keyCount;
+            leftLeaf.nextSibling = rightLeaf.nextSibling;
+        } else {
+            // the separator moves down between the keys of both nodes
+            Inner leftInner = (Inner) left;
+            Inner rightInner = (Inner) right;
+            leftInner.keys[leftInner.keyCount] = parent.keys[leftIndex];
+            System.arraycopy(rightInner.keys, 0, leftInner.keys, leftInner.keyCount + 1, rightInner.keyCount);
+            System.arraycopy(rightInner.children, 0, leftInner.children, leftInner.keyCount + 1, rightInner.keyCount + 1);
+            leftInner.keyCount += rightInner.keyCount + 1;
+        }
+        parent.removeAt(leftIndex);
+    }
+
+    /**
+     * @return a stream over all entries of this tree in key order
+     */
+    public Stream<AbstractBPlusTree.Entry> getEntries() {
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            node = ((Inner) node).children[0];
+        }
+        return Stream.iterate((Leaf) node, leaf -> leaf != null, leaf -> leaf.nextSibling)
+            .flatMap(leaf -> IntStream.range(0, leaf.keyCount)
+                .mapToObj(i -> new AbstractBPlusTree.Entry(leaf.keys[i], leaf.values[i])));
+    }
+
+    /**
+     * For testing purposes.
+     * @return if the tree structure is valid, using the same fill criteria as [AbstractBPlusTree]
+     */
+    public boolean isValid() {
+        BPlusTreeValidator<Integer, Node> validator = new BPlusTreeValidator<>(Comparator.naturalOrder(), order) {
+            @Override
+            List<Integer> getKeys(Node node) {
+                return Arrays.stream(node.keys, 0, node.keyCount).boxed().toList();
+            }
+
+            @Nullable
+            @Override
+            List<Node> getChildren(Node node) {
+                return (node instanceof Inner inner) ? Arrays.asList(inner.children).subList(0, inner.keyCount + 1) : null;
+            }
+        };
+        return validator.getHeight(rootNode) == height;
+    }
+
+    private abstract static sealed class Node permits Inner, Leaf {
+        /**
+         * Sorted keys, only the first keyCount slots are used.
+         */
+        final int[] keys;
+        int keyCount = 0;
+
+        Node(int order) {
+            keys = new int[order - 1];
+        }
+
+        boolean isFull() {
+            return keyCount == keys.length;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final ValueReference[] values;
+        Leaf nextSibling;
+
+        Leaf(int order) {
+            super(order);
+            values = new ValueReference[order - 1];
+        }
+
+        void insertAt(int position, int key, ValueReference value) {
+            System.arraycopy(keys, position, keys, position + 1, keyCount - position);
+            System.arraycopy(values, position, values, position + 1, keyCount - position);
+            keys[position] = key;
+            values[position] = value;
+            keyCount++;
+        }
+
+        void removeAt(int position) {
+            System.arraycopy(keys, position + 1, keys, position, keyCount - position - 1);
+            System.arraycopy(values, position + 1, values, position, keyCount - position - 1);
+            values[--keyCount] = null;
+        }
+
+        /**
+         * Splits this full leaf, keeping ceil(order/2) entries in this leaf, and inserts the given entry.
+         * @return the new right sibling
+         */
+        Leaf splitAndInsert(int position, int key, ValueReference value) {
+            int order = keys.length + 1;
+            Leaf rightLeaf = new Leaf(order);
+            int leftCount = (order + 1) / 2;
+            // if the new entry belongs to the left leaf, one more old entry has to move to the right
+            int splitPosition = (position < leftCount) ? leftCount - 1 : leftCount;
+
+            rightLeaf.keyCount = keyCount - splitPosition;
+            System.arraycopy(keys, splitPosition, rightLeaf.keys, 0, rightLeaf.keyCount);
+            System.arraycopy(values, splitPosition, rightLeaf.values, 0, rightLeaf.keyCount);
+            Arrays.fill(values, splitPosition, keyCount, null);
+            keyCount = splitPosition;
+
+            if (position < leftCount) {
+                insertAt(position, key, value);
+            } else {
+                rightLeaf.insertAt(position - splitPosition, key, value);
+            }
+            rightLeaf.nextSibling = nextSibling;
+            nextSibling = rightLeaf;
+            return rightLeaf;
+        }
+    }
+
+    private static final class Inner extends Node {
+        /**
+         * keyCount + 1 children, where keys[i] is the smallest key of the subtree children[i + 1]
+         */
+        final Node[] children;
+        /**
+         * The separator key between this node and its new right sibling after the last split
+         */
+        int splitKey;
+
+        Inner(int order) {
+            super(order);
+            children = new Node[order];
+        }
+
+        int selectChildIndex(int searchKey) {
+            int index = Arrays.binarySearch(keys, 0, keyCount, searchKey);
+            // equal keys are located in the right subtree
+            return (index >= 0) ? index + 1 : -(index + 1);
+        }
+
+        /**
+         * Inserts the separator key and the new right sibling of children[childIndex].
+         */
+        void insertAt(int childIndex, int key, Node rightChild) {
+            System.arraycopy(keys, childIndex, keys, childIndex + 1, keyCount - childIndex);
+            System.arraycopy(children, childIndex + 1, children, childIndex + 2, keyCount - childIndex);
+            keys[childIndex] = key;
+            children[childIndex + 1] = rightChild;
+            keyCount++;
+        }
+
+        /**
+         * Removes the key at the given index and the child to its right.
+         */
+        void removeAt(int keyIndex) {
+            System.arraycopy(keys, keyIndex + 1, keys, keyIndex, keyCount - keyIndex - 1);
+            System.arraycopy(children, keyIndex + 2, children, keyIndex + 1, keyCount - keyIndex - 1);
+            children[keyCount--] = null;
+        }
+
+        /**
+         * Splits this full node, keeping ceil((order+1)/2) children in this node, and inserts the given child.
+         * The separator key between both nodes is stored in [splitKey].
+         * @return the new right sibling
+         */
+        Inner splitAndInsert(int childIndex, int key, Node rightChild) {
+            int order = children.length;
+            // order keys and order + 1 children including the new ones
+            int[] allKeys = new int[order];
+            Node[] allChildren = new Node[order + 1];
+            System.arraycopy(keys, 0, allKeys, 0, childIndex);
+            allKeys[childIndex] = key;
+            System.arraycopy(keys, childIndex, allKeys, childIndex + 1, keyCount - childIndex);
+            System.arraycopy(children, 0, allChildren, 0, childIndex + 1);
+            allChildren[childIndex + 1] = rightChild;
+            System.arraycopy(children, childIndex + 1, allChildren, childIndex + 2, keyCount - childIndex);
+
+            int leftChildCount = (order + 2) / 2;
+            Inner rightInner = new Inner(order);
+            keyCount = leftChildCount - 1;
+            System.arraycopy(allKeys, 0, keys, 0, keyCount);
+            System.arraycopy(allChildren, 0, children, 0, leftChildCount);
+            Arrays.fill(children, leftChildCount, order, null);
+            splitKey = allKeys[leftChildCount - 1];
+
+            rightInner.keyCount = order - leftChildCount;
+            System.arraycopy(allKeys, leftChildCount, rightInner.keys, 0, rightInner.keyCount);
+            System.arraycopy(allChildren, leftChildCount, rightInner.children, 0, rightInner.keyCount + 1);
+            return rightInner;
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A B+-Tree which can be used by multiple threads at once, synchronized with optimistic lock coupling.
+ *
+ * <p>Every node has a [StampedLock], whose optimistic stamps act as version counters.
+ * Readers never take a lock: they remember the stamp of a node, read it and validate the stamp afterwards.
+ * If a writer changed the node in between, the operation restarts from the root.
+ * Writers descend the same way and only upgrade the stamps of the nodes they change to write locks:
+ * the leaf they insert into or remove from or, for a split, the split node and its parent.
+ * Full inner nodes are split eagerly on the way down, so a split never has to propagate further up.
+ * Because an eagerly split node has only order children to distribute, inner nodes are only guaranteed to have
+ * floor(order/2) children instead of ceil(order/2) like in [AbstractBPlusTree].
+ *
+ * <p>Nodes are only split but never merged, so entries only move to the right. Range scans follow the
+ * leaf links like in a B-link tree and continue after the last returned key if a leaf changed.
+ * Thus, removing an entry only deletes it from its leaf, which may become underfull or even empty.
+ */
+public class ConcurrentBPlusTree implements Index<Integer, ValueReference> {
+    public final int order;
+    private volatile Node rootNode;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentBPlusTree(int order) {
+        // an eagerly split inner node of order 3 would be left with a single child
+        Preconditions.checkArgument(order > 3, "order must be larger than 3");
+        this.order = order;
+        this.rootNode = new Leaf(order);
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Thrown (without stack trace) whenever a node changed during an optimistic read.
+     */
+    private static final class Restart extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private Restart() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Restart RESTART = new Restart();
+
+    private static long readLock(Node node) {
+        long stamp = node.lock.tryOptimisticRead();
+        if (stamp == 0) throw RESTART; // currently write-locked
+        return stamp;
+    }
+
+    private static void validate(Node node, long stamp) {
+        if (!node.lock.validate(stamp)) throw RESTART;
+    }
+
+    private static long upgradeToWriteLock(Node node, long stamp) {
+        long writeStamp = node.lock.tryConvertToWriteLock(stamp);
+        if (writeStamp == 0) throw RESTART;
+        return writeStamp;
+    }
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        while (true) {
+            try {
+                return tryGetOrNull(searchKey);
+            } catch (Restart restart) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Nullable
+    private ValueReference tryGetOrNull(int searchKey) {
+        LeafRead leafRead = findLeaf(searchKey);
+        Leaf leaf = leafRead.leaf();
+        int index = leaf.search(searchKey);
+        ValueReference value = (index >= 0) ? leaf.values[index] : null;
+        // the stamp from the descent also detects splits which moved the key to a new sibling in between
+        validate(leaf, leafRead.stamp());
+        return value;
+    }
+
+    /**
+     * A leaf and the optimistic stamp under which it was responsible for the search key
+     */
+    private record LeafRead(Leaf leaf, long stamp) {
+    }
+
+    /**
+     * @return the leaf which was responsible for the search key while it was read
+     */
+    private LeafRead findLeaf(int searchKey) {
+        Node node = rootNode;
+        long stamp = readLock(node);
+        // the old root only covers a part of the keys after a root split
+        if (node != rootNode) throw RESTART;
+        while (node instanceof Inner inner) {
+            Node child = inner.selectChild(searchKey);
+            long childStamp = readChild(inner, stamp, child);
+            node = child;
+            stamp = childStamp;
+        }
+        return new LeafRead((Leaf) node, stamp);
+    }
+
+    /**
+     * Lock coupling: the stamp of the child is taken before its parent is validated,
+     * so a split of the child after it has been selected is detected by either of both stamps.
+     * @return the stamp of the child
+     */
+    private static long readChild(Inner parent, long parentStamp, @Nullable Node child) {
+        if (child == null) throw RESTART;
+        long childStamp = readLock(child);
+        validate(parent, parentStamp);
+        return childStamp;
+    }
+
+    /**
+     * The iterator reads one leaf at a time and does not see a consistent snapshot of the whole tree:
+     * entries inserted concurrently into leaves which have not been read yet are returned as well.
+     */
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        return new RangeIterator(lowerBound, upperBound);
+    }
+
+    @Nullable
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        while (true) {
+            try {
+                return tryInsert(key, value);
+            } catch (Restart restart) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Nullable
+    private ValueReference tryInsert(int key, ValueReference value) {
+        Node node = rootNode;
+        long stamp = readLock(node);
+        if (node != rootNode) throw RESTART;
+
+        Inner parent = null;
+        long parentStamp = 0;
+        while (node instanceof Inner inner) {
+            if (inner.isFull()) {
+                // split on the way down, so that the parent of a split node always has space left
+                split(parent, parentStamp, inner, stamp);
+            }
+            Node child = inner.selectChild(key);
+            long childStamp = readChild(inner, stamp, child);
+            parent = inner;
+            parentStamp = stamp;
+            node = child;
+            stamp = childStamp;
+        }
+
+        Leaf leaf = (Leaf) node;
+        int position = leaf.search(key);
+        if (position < 0 && leaf.isFull()) {
+            splitAndInsert(parent, parentStamp, leaf, stamp, key, value);
+            return null;
+        }
+        long writeStamp = upgradeToWriteLock(leaf, stamp);
+        try {
+            // the leaf did not change since it was read, so it is still responsible for the key
+            position = leaf.search(key);
+            if (position >= 0) {
+                ValueReference oldValue = leaf.values[position];
+                leaf.values[position] = value;
+                return oldValue;
+            }
+            leaf.insertAt(-(position + 1), key, value);
+            size.incrementAndGet();
+            return null;
+        } finally {
+            leaf.lock.unlockWrite(writeStamp);
+        }
+    }
+
+    /**
+     * Splits the given full inner node and restarts the insert afterwards.
+     */
+    private void split(@Nullable Inner parent, long parentStamp, Inner node, long stamp) {
+        splitAndInsert(parent, parentStamp, node, stamp, 0, null);
+        throw RESTART;
+    }
+
+    /**
+     * Splits the given full node while holding the write locks of the node and its parent (if any).
+     * A leaf gets the new entry before its new sibling becomes reachable, so both halves stay at least half full.
+     */
+    private void splitAndInsert(
+        @Nullable Inner parent,
+        long parentStamp,
+        Node node,
+        long stamp,
+        int key,
+        @Nullable ValueReference value
+    ) {
+        long parentWriteStamp = (parent == null) ? 0 : upgradeToWriteLock(parent, parentStamp);
+        long writeStamp;
+        try {
+            writeStamp = upgradeToWriteLock(node, stamp);
+        } catch (Restart restart) {
+            if (parent != null) parent.lock.unlockWrite(parentWriteStamp);
+            throw restart;
+        }
+        try {
+            if (parent == null && node != rootNode) {
+                // another thread has added a new root in between
+                throw RESTART;
+            }
+            Node rightNode;
+            if (node instanceof Leaf leaf) {
+                rightNode = leaf.splitAndInsert(key, value);
+                size.incrementAndGet();
+            } else {
+                rightNode = ((Inner) node).split();
+            }
+            int separatorKey = node.splitKey;
+            if (parent == null) {
+                Inner newRoot = new Inner(order);
+                newRoot.keys[0] = separatorKey;
+                newRoot.children[0] = node;
+                newRoot.children[1] = rightNode;
+                newRoot.keyCount = 1;
+                rootNode = newRoot;
+            } else {
+                parent.insertAt(-(parent.search(separatorKey) + 1), separatorKey, rightNode);
+            }
+        } finally {
+            node.lock.unlockWrite(writeStamp);
+            if (parent != null) parent.lock.unlockWrite(parentWriteStamp);
+        }
+    }
+
+    @Nullable
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        while (true) {
+            try {
+                return tryRemove(key);
+            } catch (Restart restart) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Nullable
+    private ValueReference tryRemove(int key) {
+        LeafRead leafRead = findLeaf(key);
+        Leaf leaf = leafRead.leaf();
+        if (leaf.search(key) < 0) {
+            // like a lookup, the key is missing if the leaf did not change in between
+            validate(leaf, leafRead.stamp());
+            return null;
+        }
+        long writeStamp = upgradeToWriteLock(leaf, leafRead.stamp());
+        try {
+            // the leaf did not change since it was read, so it is still responsible for the key
+            int position = leaf.search(key);
+            if (position < 0) return null;
+            ValueReference oldValue = leaf.values[position];
+            leaf.removeAt(position);
+            size.decrementAndGet();
+            return oldValue;
+        } finally {
+            leaf.lock.unlockWrite(writeStamp);
+        }
+    }
+
+    /**
+     * @return a stream over all entries of this tree in key order, read like a range scan
+     */
+    public Stream<AbstractBPlusTree.Entry> getEntries() {
+        RangeIterator iterator = new RangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        Iterator<AbstractBPlusTree.Entry> entryIterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public AbstractBPlusTree.Entry next() {
+                ValueReference value = iterator.next();
+                return new AbstractBPlusTree.Entry(iterator.lastKey, value);
+            }
+        };
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(entryIterator, Spliterator.ORDERED | Spliterator.SORTED),
+            false
+        );
+    }
+
+    /**
+     * For testing purposes, only meaningful while no other thread modifies the tree.
+     * @return if the tree structure is valid, see the class comment for the minimum fill of the nodes
+     */
+    public boolean isValid() {
+        BPlusTreeValidator<Integer, Node> validator = new BPlusTreeValidator<>(Comparator.naturalOrder(), 0, order / 2, order) {
+            @Override
+            List<Integer> getKeys(Node node) {
+                return Arrays.stream(node.keys, 0, node.keyCount).boxed().toList();
+            }
+
+            @Nullable
+            @Override
+            List<Node> getChildren(Node node) {
+                return (node instanceof Inner inner) ? Arrays.asList(inner.children).subList(0, inner.keyCount + 1) : null;
+            }
+        };
+        return validator.getHeight(rootNode) >= 0;
+    }
+
+    /**
+     * Copies the entries of one leaf at a time under an optimistic read.
+     */
+    private class RangeIterator implements Iterator<ValueReference> {
+        private final int upperBound;
+        private final int[] bufferedKeys = new int[order - 1];
+        private final ValueReference[] bufferedValues = new ValueReference[order - 1];
+        private int bufferSize = 0;
+        private int bufferPosition = 0;
+        @Nullable
+        private Leaf nextLeaf;
+        /**
+         * Entries up to this key have been buffered already
+         */
+        private long bufferedUpToKey;
+        int lastKey;
+
+        RangeIterator(int lowerBound, int upperBound) {
+            this.upperBound = upperBound;
+            this.bufferedUpToKey = (long) lowerBound - 1;
+            if (lowerBound > upperBound) {
+                nextLeaf = null;
+                return;
+            }
+            while (true) {
+                try {
+                    nextLeaf = findLeaf(lowerBound).leaf();
+                    break;
+                } catch (Restart restart) {
+                    Thread.onSpinWait();
+                }
+            }
+            fillBuffer();
+        }
+
+        private void fillBuffer() {
+            while (bufferPosition == bufferSize && nextLeaf != null) {
+                Leaf leaf = nextLeaf;
+                try {
+                    long stamp = readLock(leaf);
+                    int count = Math.min(leaf.keyCount, bufferedKeys.length);
+                    int size = 0;
+                    boolean reachedUpperBound = false;
+                    for (int i = 0; i < count; i++) {
+                        int key = leaf.keys[i];
+                        if (key <= bufferedUpToKey) continue;
+                        if (key > upperBound) {
+                            reachedUpperBound = true;
+                            break;
+                        }
+                        bufferedKeys[size] = key;
+                        bufferedValues[size] = leaf.values[i];
+                        size++;
+                    }
+                    Leaf next = leaf.nextSibling;
+                    validate(leaf, stamp);
+
+                    bufferSize = size;
+                    bufferPosition = 0;
+                    if (size > 0) {
+                        bufferedUpToKey = bufferedKeys[size - 1];
+                    }
+                    nextLeaf = reachedUpperBound ? null : next;
+                } catch (Restart restart) {
+                    // a split only moves entries to a new right sibling, so the same leaf is read again
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return bufferPosition < bufferSize;
+        }
+
+        @Override
+        public ValueReference next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            lastKey = bufferedKeys[bufferPosition];
+            ValueReference value = bufferedValues[bufferPosition++];
+            if (bufferPosition == bufferSize) {
+                fillBuffer();
+            }
+            return value;
+        }
+    }
+
+    private abstract static sealed class Node permits Inner, Leaf {
+        final StampedLock lock = new StampedLock();
+        /**
+         * Sorted keys, only the first keyCount slots are used.
+         */
+        final int[] keys;
+        int keyCount = 0;
+        /**
+         * The separator key between this node and its new right sibling after the last split
+         */
+        int splitKey;
+
+        Node(int order) {
+            keys = new int[order - 1];
+        }
+
+        boolean isFull() {
+            return keyCount >= keys.length;
+        }
+
+        /**
+         * Like [Arrays.binarySearch], but safe to call on a node which is modified concurrently.
+         */
+        int search(int searchKey) {
+            int count = Math.min(keyCount, keys.length);
+            return Arrays.binarySearch(keys, 0, count, searchKey);
+        }
+
+    }
+
+    private static final class Leaf extends Node {
+        final ValueReference[] values;
+        volatile Leaf nextSibling;
+
+        Leaf(int order) {
+            super(order);
+            values = new ValueReference[order - 1];
+        }
+
+        void insertAt(int position, int key, ValueReference value) {
+            System.arraycopy(keys, position, keys, position + 1, keyCount - position);
+            System.arraycopy(values, position, values, position + 1, keyCount - position);
+            keys[position] = key;
+            values[position] = value;
+            keyCount++;
+        }
+
+        void removeAt(int position) {
+            System.arraycopy(keys, position + 1, keys, position, keyCount - position - 1);
+            System.arraycopy(values, position + 1, values, position, keyCount - position - 1);
+            keyCount--;
+            values[keyCount] = null;
+        }
+
+        /**
+         * Splits this full leaf, keeping ceil(order/2) entries in this leaf, and inserts the given entry.
+         * @return the new right sibling
+         */
+        Leaf splitAndInsert(int key, ValueReference value) {
+            int position = -(search(key) + 1);
+            int order = keys.length + 1;
+            Leaf rightLeaf = new Leaf(order);
+            int leftCount = (order + 1) / 2;
+            // if the new entry belongs to the left leaf, one more old entry has to move to the right
+            int splitPosition = (position < leftCount) ? leftCount - 1 : leftCount;
+
+            rightLeaf.keyCount = keyCount - splitPosition;
+            System.arraycopy(keys, splitPosition, rightLeaf.keys, 0, rightLeaf.keyCount);
+            System.arraycopy(values, splitPosition, rightLeaf.values, 0, rightLeaf.keyCount);
+            Arrays.fill(values, splitPosition, keyCount, null);
+            keyCount = splitPosition;
+            if (position < leftCount) {
+                insertAt(position, key, value);
+            } else {
+                rightLeaf.insertAt(position - splitPosition, key, value);
+            }
+            splitKey = rightLeaf.keys[0];
+
+            // the right leaf is complete before it becomes reachable
+            rightLeaf.nextSibling = nextSibling;
+            nextSibling = rightLeaf;
+            return rightLeaf;
+        }
+    }
+
+    private static final class Inner extends Node {
+        /**
+         * keyCount + 1 children, where all keys of the subtree children[i + 1] are at least keys[i]
+         */
+        final Node[] children;
+
+        Inner(int order) {
+            super(order);
+            children = new Node[order];
+        }
+
+        /**
+         * @return the child responsible for the search key, null is only possible during a concurrent change
+         */
+        @Nullable
+        Node selectChild(int searchKey) {
+            int index = search(searchKey);
+            // equal keys are located in the right subtree
+            return children[(index >= 0) ? index + 1 : -(index + 1)];
+        }
+
+        /**
+         * Inserts the separator key and the new right sibling of children[childIndex].
+         */
+        void insertAt(int childIndex, int key, Node rightChild) {
+            System.arraycopy(keys, childIndex, keys, childIndex + 1, keyCount - childIndex);
+            System.arraycopy(children, childIndex + 1, children, childIndex + 2, keyCount - childIndex);
+            keys[childIndex] = key;
+            children[childIndex + 1] = rightChild;
+            keyCount++;
+        }
+
+        /**
+         * Moves the upper half of the children of this full node into a new right sibling.
+         * The separator key between both halves is stored in [splitKey].
+         */
+        Inner split() {
+            int order = children.length;
+            Inner rightInner = new Inner(order);
+            // the separator key between both halves moves up to the parent
+            int leftChildCount = (order + 1) / 2;
+            rightInner.keyCount = keyCount - leftChildCount;
+            System.arraycopy(keys, leftChildCount, rightInner.keys, 0, rightInner.keyCount);
+            System.arraycopy(children, leftChildCount, rightInner.children, 0, rightInner.keyCount + 1);
+            splitKey = keys[leftChildCount - 1];
+            Arrays.fill(children, leftChildCount, order, null);
+            keyCount = leftChildCount - 1;
+            return rightInner;
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A B+-Tree whose nodes are never modified after they have been created.
+ *
+ * <p>An insert copies only the nodes on the path from the root to the changed leaf (path copying),
+ * shares all other subtrees with the previous version and then atomically publishes the new root.
+ * A remove additionally copies the siblings it borrows entries from or merges with.
+ * Thus, every [Snapshot] is a consistent and frozen version of the tree, which readers can use
+ * without ever waiting for writers. Writers are serialized and pay O(height) node copies per modification.
+ *
+ * <p>Leaves are not linked to their siblings, because updating a link would require copying
+ * all previous leaves. Range scans keep the path from the root instead.
+ */
+public class CopyOnWriteBPlusTree implements Index<Integer, ValueReference> {
+    public final int order;
+    private volatile Snapshot snapshot;
+
+    public CopyOnWriteBPlusTree(int order) {
+        Preconditions.checkArgument(order > 2, "order must be larger than 2");
+        this.order = order;
+        this.snapshot = new Snapshot(order, new Leaf(new int[0], new ValueReference[0]), 0, 0);
+    }
+
+    /**
+     * @return the current version of the tree, which is not affected by later modifications
+     */
+    @NotNull
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public int getHeight() {
+        return snapshot.getHeight();
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        return snapshot.getOrNull(searchKey);
+    }
+
+    /**
+     * The range is read from the snapshot at the time of this call.
+     */
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        return snapshot.getRange(lowerBound, upperBound);
+    }
+
+    /**
+     * @return a stream over all entries of the current snapshot in key order
+     */
+    public Stream<AbstractBPlusTree.Entry> getEntries() {
+        return snapshot.getEntries();
+    }
+
+    /**
+     * A node replaced by path copying, together with its new right sibling, if it had to be split.
+     */
+    private record CopiedNode(Node node, int separatorKey, @Nullable Node rightSibling) {
+        CopiedNode(Node node) {
+            this(node, 0, null);
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        Snapshot current = snapshot;
+        int height = current.height;
+        Inner[] path = new Inner[height];
+        int[] pathChildIndexes = new int[height];
+        Node node = current.rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int childIndex = inner.selectChildIndex(key);
+            path[level] = inner;
+            pathChildIndexes[level] = childIndex;
+            node = inner.children[childIndex];
+        }
+        Leaf leaf = (Leaf) node;
+
+        ValueReference oldValue = null;
+        int size = current.size;
+        CopiedNode copy;
+        int position = Arrays.binarySearch(leaf.keys, key);
+        if (position >= 0) {
+            oldValue = leaf.values[position];
+            copy = new CopiedNode(leaf.withValue(position, value));
+        } else {
+            size++;
+            copy = leaf.withInsertedEntry(-(position + 1), key, value, order);
+        }
+
+        for (int level = height - 1; level >= 0; level--) {
+            copy = path[level].withCopiedChild(pathChildIndexes[level], copy, order);
+        }
+        Node rootNode = copy.node();
+        if (copy.rightSibling() != null) {
+            rootNode = new Inner(new int[]{copy.separatorKey()}, new Node[]{copy.node(), copy.rightSibling()});
+            height++;
+        }
+        snapshot = new Snapshot(order, rootNode, height, size);
+        return oldValue;
+    }
+
+    @Nullable
+    @Override
+    public synchronized ValueReference remove(@NotNull Integer key) {
+        Snapshot current = snapshot;
+        int height = current.height;
+        Inner[] path = new Inner[height];
+        int[] pathChildIndexes = new int[height];
+        Node node = current.rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int childIndex = inner.selectChildIndex(key);
+            path[level] = inner;
+            pathChildIndexes[level] = childIndex;
+            node = inner.children[childIndex];
+        }
+        Leaf leaf = (Leaf) node;
+
+        int position = Arrays.binarySearch(leaf.keys, key);
+        if (position < 0) {
+            return null;
+        }
+        Node copy = leaf.withRemovedEntry(position);
+        for (int level = height - 1; level >= 0; level--) {
+            copy = path[level].withShrunkChild(pathChildIndexes[level], copy, order);
+        }
+        if (copy instanceof Inner root && root.children.length == 1) {
+            copy = root.children[0];
+            height--;
+        }
+        snapshot = new Snapshot(order, copy, height, current.size - 1);
+        return leaf.values[position];
+    }
+
+    /**
+     * For testing purposes.
+     * @return if the current snapshot is valid, see [Snapshot.isValid]
+     */
+    public boolean isValid() {
+        return snapshot.isValid();
+    }
+
+    /**
+     * A frozen version of a [CopyOnWriteBPlusTree], which can be read concurrently to modifications of the tree.
+     */
+    public static final class Snapshot implements Index<Integer, ValueReference> {
+        private final int order;
+        private final Node rootNode;
+        /**
+         * Number of inner node levels above the leaves
+         */
+        private final int height;
+        private final int size;
+
+        private Snapshot(int order, Node rootNode, int height, int size) {
+            this.order = order;
+            this.rootNode = rootNode;
+            this.height = height;
+            this.size = size;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return the number of entries in this snapshot
+         */
+        public int size() {
+            return size;
+        }
+
+        private Leaf findLeaf(int searchKey) {
+            Node node = rootNode;
+            for (int level = 0; level < height; level++) {
+                Inner inner = (Inner) node;
+                node = inner.children[inner.selectChildIndex(searchKey)];
+            }
+            return (Leaf) node;
+        }
+
+        @Nullable
+        @Override
+        public ValueReference getOrNull(@NotNull Integer searchKey) {
+            Leaf leaf = findLeaf(searchKey);
+            int index = Arrays.binarySearch(leaf.keys, searchKey);
+            return (index >= 0) ? leaf.values[index] : null;
+        }
+
+        @NotNull
+        @Override
+        public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+            if (lowerBound > upperBound) {
+                return Collections.emptyIterator();
+            }
+            return Iterators.transform(new RangeIterator(lowerBound, upperBound), AbstractBPlusTree.Entry::getValue);
+        }
+
+        /**
+         * @return a stream over all entries of this snapshot in key order
+         */
+        public Stream<AbstractBPlusTree.Entry> getEntries() {
+            return StreamSupport.stream(Spliterators.spliterator(
+                new RangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE),
+                size,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+                    | Spliterator.IMMUTABLE
+            ), false);
+        }
+
+        @Override
+        public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+            throw new UnsupportedOperationException("Snapshots can not be modified.");
+        }
+
+        @Override
+        public ValueReference remove(@NotNull Integer key) {
+            throw new UnsupportedOperationException("Snapshots can not be modified.");
+        }
+
+        /**
+         * For testing purposes.
+         * @return if the tree structure is valid, using the same fill criteria as [AbstractBPlusTree]
+         */
+        public boolean isValid() {
+            BPlusTreeValidator<Integer, Node> validator = new BPlusTreeValidator<>(Comparator.naturalOrder(), order) {
+                @Override
+                List<Integer> getKeys(Node node) {
+                    return Arrays.stream(node.keys).boxed().toList();
+                }
+
+                @Nullable
+                @Override
+                List<Node> getChildren(Node node) {
+                    return (node instanceof Inner inner) ? Arrays.asList(inner.children) : null;
+                }
+            };
+            return validator.getHeight(rootNode) == height;
+        }
+
+        /**
+         * Keeps the path from the root to the current leaf, because leaves are not linked.
+         */
+        private final class RangeIterator implements Iterator<AbstractBPlusTree.Entry> {
+            private final int upperBound;
+            private final Inner[] path = new Inner[height];
+            private final int[] pathChildIndexes = new int[height];
+            @Nullable
+            private Leaf leaf;
+            private int position;
+
+            RangeIterator(int lowerBound, int upperBound) {
+                this.upperBound = upperBound;
+                Node node = rootNode;
+                for (int level = 0; level < height; level++) {
+                    Inner inner = (Inner) node;
+                    path[level] = inner;
+                    pathChildIndexes[level] = inner.selectChildIndex(lowerBound);
+                    node = inner.children[pathChildIndexes[level]];
+                }
+                leaf = (Leaf) node;
+                int index = Arrays.binarySearch(leaf.keys, lowerBound);
+                position = (index >= 0) ? index : -(index + 1);
+                skipExhaustedLeaves();
+            }
+
+            private void skipExhaustedLeaves() {
+                while (leaf != null && position >= leaf.keys.length) {
+                    leaf = nextLeaf();
+                    position = 0;
+                }
+            }
+
+            @Nullable
+            private Leaf nextLeaf() {
+                // go up until there is a subtree on the right, then descend to its left-most leaf
+                int level = height - 1;
+                while (level >= 0 && pathChildIndexes[level] == path[level].children.length - 1) {
+                    level--;
+                }
+                if (level < 0) return null;
+                pathChildIndexes[level]++;
+                Node node = path[level].children[pathChildIndexes[level]];
+                for (level++; level < height; level++) {
+                    path[level] = (Inner) node;
+                    pathChildIndexes[level] = 0;
+                    node = path[level].children[0];
+                }
+                return (Leaf) node;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return leaf != null && leaf.keys[position] <= upperBound;
+            }
+
+            @Override
+            public AbstractBPlusTree.Entry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                AbstractBPlusTree.Entry entry = new AbstractBPlusTree.Entry(leaf.keys[position], leaf.values[position]);
+                position++;
+                skipExhaustedLeaves();
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Nodes are immutable, so their arrays are exactly as long as needed.
+     */
+    private abstract static sealed class Node permits Leaf, Inner {
+        final int[] keys;
+
+        Node(int[] keys) {
+            this.keys = keys;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final ValueReference[] values;
+
+        Leaf(int[] keys, ValueReference[] values) {
+            super(keys);
+            this.values = values;
+        }
+
+        Leaf withValue(int position, ValueReference value) {
+            ValueReference[] newValues = values.clone();
+            newValues[position] = value;
+            return new Leaf(keys, newValues);
+        }
+
+        /**
+         * Copies this leaf with the new entry. If the leaf would have more than order - 1 entries,
+         * the entries are distributed over two new leaves, the left one getting ceil(order/2) entries.
+         */
+        CopiedNode withInsertedEntry(int position, int key, ValueReference value, int order) {
+            int count = keys.length + 1;
+            int[] allKeys = new int[count];
+            ValueReference[] allValues = new ValueReference[count];
+            System.arraycopy(keys, 0, allKeys, 0, position);
+            System.arraycopy(values, 0, allValues, 0, position);
+            allKeys[position] = key;
+            allValues[position] = value;
+            System.arraycopy(keys, position, allKeys, position + 1, keys.length - position);
+            System.arraycopy(values, position, allValues, position + 1, keys.length - position);
+            if (count <= order - 1) {
+                return new CopiedNode(new Leaf(allKeys, allValues));
+            }
+
+            int leftCount = (order + 1) / 2;
+            Leaf leftLeaf = new Leaf(Arrays.copyOfRange(allKeys, 0, leftCount), Arrays.copyOfRange(allValues, 0, leftCount));
+            Leaf rightLeaf = new Leaf(Arrays.copyOfRange(allKeys, leftCount, count), Arrays.copyOfRange(allValues, leftCount, count));
+            return new CopiedNode(leftLeaf, rightLeaf.keys[0], rightLeaf);
+        }
+
+        Leaf withRemovedEntry(int position) {
+            int[] newKeys = new int[keys.length - 1];
+            ValueReference[] newValues = new ValueReference[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(values, 0, newValues, 0, position);
+            System.arraycopy(keys, position + 1, newKeys, position, newKeys.length - position);
+            System.arraycopy(values, position + 1, newValues, position, newValues.length - position);
+            return new Leaf(newKeys, newValues);
+        }
+
+        /**
+         * Merges this leaf with its right sibling into a new leaf, if all entries fit into it.
+         * Otherwise, the entries are distributed evenly over two new leaves.
+         */
+        CopiedNode mergedWith(Leaf rightSibling, int order) {
+            int count = keys.length + rightSibling.keys.length;
+            int[] allKeys = new int[count];
+            ValueReference[] allValues = new ValueReference[count];
+            System.arraycopy(keys, 0, allKeys, 0, keys.length);
+            System.arraycopy(values, 0, allValues, 0, keys.length);
+            System.arraycopy(rightSibling.keys, 0, allKeys, keys.length, rightSibling.keys.length);
+            System.arraycopy(rightSibling.values, 0, allValues, keys.length, rightSibling.keys.length);
+            if (count <= order - 1) {
+                return new CopiedNode(new Leaf(allKeys, allValues));
+            }
+
+            int leftCount = (count + 1) / 2;
+            Leaf leftLeaf = new Leaf(Arrays.copyOfRange(allKeys, 0, leftCount), Arrays.copyOfRange(allValues, 0, leftCount));
+            Leaf rightLeaf = new Leaf(Arrays.copyOfRange(allKeys, leftCount, count), Arrays.copyOfRange(allValues, leftCount, count));
+            return new CopiedNode(leftLeaf, rightLeaf.keys[0], rightLeaf);
+        }
+    }
+
+    private static final class Inner extends Node {
+        /**
+         * keys.length + 1 children, where all keys of the subtree children[i + 1] are at least keys[i]
+         */
+        final Node[] children;
+
+        Inner(int[] keys, Node[] children) {
+            super(keys);
+            this.children = children;
+        }
+
+        int selectChildIndex(int searchKey) {
+            int index = Arrays.binarySearch(keys, searchKey);
+            // equal keys are located in the right subtree
+            return (index >= 0) ? index + 1 : -(index + 1);
+        }
+
+        /**
+         * Copies this node with the copied child at the given index and its new right sibling, if any.
+         * If the node would have more than order children, they are distributed over two new nodes,
+         * the left one getting ceil((order+1)/2) children.
+         */
+        CopiedNode withCopiedChild(int childIndex, CopiedNode child, int order) {
+            if (child.rightSibling() == null) {
+                Node[] newChildren = children.clone();
+                newChildren[childIndex] = child.node();
+                return new CopiedNode(new Inner(keys, newChildren));
+            }
+
+            int keyCount = keys.length + 1;
+            int[] allKeys = new int[keyCount];
+            Node[] allChildren = new Node[keyCount + 1];
+            System.arraycopy(keys, 0, allKeys, 0, childIndex);
+            allKeys[childIndex] = child.separatorKey();
+            System.arraycopy(keys, childIndex, allKeys, childIndex + 1, keys.length - childIndex);
+            System.arraycopy(children, 0, allChildren, 0, childIndex);
+            allChildren[childIndex] = child.node();
+            allChildren[childIndex + 1] = child.rightSibling();
+            System.arraycopy(children, childIndex + 1, allChildren, childIndex + 2, children.length - childIndex - 1);
+            if (allChildren.length <= order) {
+                return new CopiedNode(new Inner(allKeys, allChildren));
+            }
+
+            // the separator between both nodes moves up instead of staying in a node
+            int leftChildCount = (order + 2) / 2;
+            Inner leftInner = new Inner(
+                Arrays.copyOfRange(allKeys, 0, leftChildCount - 1),
+                Arrays.copyOfRange(allChildren, 0, leftChildCount)
+            );
+            Inner rightInner = new Inner(
+                Arrays.copyOfRange(allKeys, leftChildCount, keyCount),
+                Arrays.copyOfRange(allChildren, leftChildCount, allChildren.length)
+            );
+            return new CopiedNode(leftInner, allKeys[leftChildCount - 1], rightInner);
+        }
+
+        /**
+         * Copies this node with the copied child at the given index, which lost an entry.
+         * A child with less entries than in [AbstractBPlusTree] is merged with a sibling,
+         * or borrows entries from it if both do not fit into a single node.
+         */
+        Inner withShrunkChild(int childIndex, Node child, int order) {
+            Node[] newChildren = children.clone();
+            newChildren[childIndex] = child;
+            boolean isUnderfull = (child instanceof Inner inner)
+                ? inner.children.length < (order + 1) / 2
+                : child.keys.length < order / 2;
+            if (!isUnderfull) {
+                return new Inner(keys, newChildren);
+            }
+
+            int leftIndex = (childIndex > 0) ? childIndex - 1 : childIndex;
+            CopiedNode merged = (newChildren[leftIndex] instanceof Inner leftInner)
+                ? leftInner.mergedWith(keys[leftIndex], (Inner) newChildren[leftIndex + 1], order)
+                : ((Leaf) newChildren[leftIndex]).mergedWith((Leaf) newChildren[leftIndex + 1], order);
+            if (merged.rightSibling() != null) {
+                int[] newKeys = keys.clone();
+                newKeys[leftIndex] = merged.separatorKey();
+                newChildren[leftIndex] = merged.node();
+                newChildren[leftIndex + 1] = merged.rightSibling();
+                return new Inner(newKeys, newChildren);
+            }
+
+            int[] newKeys = new int[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, leftIndex);
+            System.arraycopy(keys, leftIndex + 1, newKeys, leftIndex, newKeys.length - leftIndex);
+            Node[] mergedChildren = new Node[children.length - 1];
+            System.arraycopy(newChildren, 0, mergedChildren, 0, leftIndex);
+            mergedChildren[leftIndex] = merged.node();
+            System.arraycopy(newChildren, leftIndex + 2, mergedChildren, leftIndex + 1, mergedChildren.length - leftIndex - 1);
+            return new Inner(newKeys, mergedChildren);
+        }
+
+        /**
+         * Merges this node with its right sibling into a new node, pulling down the separator between them.
+         * If the children do not fit into one node, they are distributed evenly over two new nodes.
+         */
+        CopiedNode mergedWith(int separatorKey, Inner rightSibling, int order) {
+            int keyCount = keys.length + 1 + rightSibling.keys.length;
+            int[] allKeys = new int[keyCount];
+            Node[] allChildren = new Node[keyCount + 1];
+            System.arraycopy(keys, 0, allKeys, 0, keys.length);
+            allKeys[keys.length] = separatorKey;
+            System.arraycopy(rightSibling.keys, 0, allKeys, keys.length + 1, rightSibling.keys.length);
+            System.arraycopy(children, 0, allChildren, 0, children.length);
+            System.arraycopy(rightSibling.children, 0, allChildren, children.length, rightSibling.children.length);
+            if (allChildren.length <= order) {
+                return new CopiedNode(new Inner(allKeys, allChildren));
+            }
+
+            int leftChildCount = (allChildren.length + 1) / 2;
+            Inner leftInner = new Inner(
+                Arrays.copyOfRange(allKeys, 0, leftChildCount - 1),
+                Arrays.copyOfRange(allChildren, 0, leftChildCount)
+            );
+            Inner rightInner = new Inner(
+                Arrays.copyOfRange(allKeys, leftChildCount, keyCount),
+                Arrays.copyOfRange(allChildren, leftChildCount, allChildren.length)
+            );
+            return new CopiedNode(leftInner, allKeys[leftChildCount - 1], rightInner);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import de.hpi.dbs2.dbms.Block;
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.Tuple;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A disk-resident hash index using extendible hashing, whose buckets are blocks of a [BlockManager].
+ *
+ * <p>Every bucket is stored in one block of (key, value) tuples. The directory maps the lowest globalDepth bits
+ * of the hash of a key to its bucket and is kept in memory together with the local depth of every bucket,
+ * so an equality lookup reads exactly one block.
+ *
+ * <p>A bucket with local depth d holds all keys whose hashes share their lowest d bits and is referenced by
+ * 2^(globalDepth - d) directory slots. When a full bucket overflows, only this bucket is split by one more bit.
+ * The directory is doubled first if the bucket was referenced by a single slot.
+ * Buckets which become empty are merged with their buddy bucket and the directory is halved again
+ * once no bucket needs all of its bits.
+ */
+public class ExtendibleHashIndex implements Index<Integer, ValueReference> {
+    /**
+     * The directory can not grow further, as it is indexed by ints
+     */
+    private static final int MAX_GLOBAL_DEPTH = 30;
+
+    private final BlockManager blockManager;
+    public final int bucketCapacity;
+
+    /**
+     * Block references by bucket id, null for freed buckets
+     */
+    private final List<Block> buckets = new ArrayList<>();
+    private final List<Integer> localDepths = new ArrayList<>();
+    private final Deque<Integer> freeBucketIds = new ArrayDeque<>();
+    /**
+     * Bucket ids by the lowest globalDepth bits of the hashes
+     */
+    private int[] directory;
+    private int globalDepth = 0;
+    private int size = 0;
+
+    public ExtendibleHashIndex(@NotNull BlockManager blockManager) {
+        this.blockManager = blockManager;
+
+        Block bucket = blockManager.allocate(true);
+        this.bucketCapacity = bucket.getCapacity();
+        directory = new int[]{addBucket(bucket, 0)};
+        saveBucket(directory[0], bucket);
+    }
+
+    public int getGlobalDepth() {
+        return globalDepth;
+    }
+
+    /**
+     * @return the number of buckets (blocks) used by this index
+     */
+    public int getBucketCount() {
+        return buckets.size() - freeBucketIds.size();
+    }
+
+    /**
+     * @return the number of entries in this index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Spreads the key bits over the whole hash. Multiplying by an odd number and the xor-shift can both be reversed,
+     * so distinct keys have distinct hashes and keys can always be separated by splitting.
+     */
+    private static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int getDirectoryIndex(int key) {
+        return hash(key) & ((1 << globalDepth) - 1);
+    }
+
+    // Bucket access
+
+    /**
+     * Loads the bucket, which has to be passed to [saveBucket] or [releaseBucket] afterwards.
+     */
+    private Block loadBucket(int bucketId) {
+        Block bucket = blockManager.load(buckets.get(bucketId));
+        buckets.set(bucketId, bucket);
+        return bucket;
+    }
+
+    private void saveBucket(int bucketId, Block bucket) {
+        buckets.set(bucketId, blockManager.release(bucket, true));
+    }
+
+    private void releaseBucket(Block bucket) {
+        blockManager.release(bucket, false);
+    }
+
+    /**
+     * Adds the given loaded block as new bucket, which has to be passed to [saveBucket] afterwards.
+     * @return the bucket id of the new bucket
+     */
+    private int addBucket(Block bucket, int localDepth) {
+        Integer bucketId = freeBucketIds.poll();
+        if (bucketId == null) {
+            buckets.add(bucket);
+            localDepths.add(localDepth);
+            return buckets.size() - 1;
+        }
+        buckets.set(bucketId, bucket);
+        localDepths.set(bucketId, localDepth);
+        return bucketId;
+    }
+
+    /**
+     * Frees the given loaded bucket without saving it.
+     */
+    private void removeBucket(int bucketId, Block bucket) {
+        releaseBucket(bucket);
+        buckets.set(bucketId, null);
+        localDepths.set(bucketId, 0);
+        freeBucketIds.push(bucketId);
+    }
+
+    private static int getKey(Block bucket, int entryIndex) {
+        return (int) bucket.get(entryIndex).get(0);
+    }
+
+    private static int getPointer(Block bucket, int entryIndex) {
+        return (int) bucket.get(entryIndex).get(1);
+    }
+
+    /**
+     * @return the index of the entry of the key in the bucket or -1
+     */
+    private static int search(Block bucket, int key) {
+        for (int i = 0; i < bucket.getSize(); i++) {
+            if (getKey(bucket, i) == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Index
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        int bucketId = directory[getDirectoryIndex(searchKey)];
+        Block bucket = loadBucket(bucketId);
+        int index = search(bucket, searchKey);
+        ValueReference value = (index >= 0) ? new ValueReference(getPointer(bucket, index)) : null;
+        releaseBucket(bucket);
+        return value;
+    }
+
+    /**
+     * Hashing does not preserve the key order, so every bucket is read once
+     * and the entries within the bounds are sorted afterwards.
+     */
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        if (lowerBound > upperBound) {
+            return List.<ValueReference>of().iterator();
+        }
+        List<AbstractBPlusTree.Entry> entries = new ArrayList<>();
+        for (int bucketId = 0; bucketId < buckets.size(); bucketId++) {
+            if (buckets.get(bucketId) == null) continue;
+            Block bucket = loadBucket(bucketId);
+            for (int i = 0; i < bucket.getSize(); i++) {
+                int key = getKey(bucket, i);
+                if (lowerBound <= key && key <= upperBound) {
+                    entries.add(new AbstractBPlusTree.Entry(key, new ValueReference(getPointer(bucket, i))));
+                }
+            }
+            releaseBucket(bucket);
+        }
+        return entries.stream()
+            .sorted(Comparator.comparingInt(AbstractBPlusTree.Entry::getKey))
+            .map(AbstractBPlusTree.Entry::getValue)
+            .iterator();
+    }
+
+    @Nullable
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        Tuple entry = new Tuple(2, key, value.getDummyValue());
+        while (true) {
+            int bucketId = directory[getDirectoryIndex(key)];
+            Block bucket = loadBucket(bucketId);
+            int index = search(bucket, key);
+            if (index >= 0) {
+                ValueReference oldValue = new ValueReference(getPointer(bucket, index));
+                bucket.set(index, entry);
+                saveBucket(bucketId, bucket);
+                return oldValue;
+            }
+            if (!bucket.isFull()) {
+                bucket.append(entry);
+                saveBucket(bucketId, bucket);
+                size++;
+                return null;
+            }
+            // all entries may end up in the same bucket again, so the insert is retried
+            splitBucket(bucketId, bucket);
+        }
+    }
+
+    /**
+     * Splits the loaded bucket by the next bit of the hashes and saves both halves.
+     */
+    private void splitBucket(int bucketId, Block bucket) {
+        int localDepth = localDepths.get(bucketId);
+        if (localDepth == globalDepth) {
+            Preconditions.checkState(globalDepth < MAX_GLOBAL_DEPTH, "directory can not grow any further");
+            // the new upper half of the directory references the same buckets as the lower half
+            directory = Arrays.copyOf(directory, 2 * directory.length);
+            System.arraycopy(directory, 0, directory, directory.length / 2, directory.length / 2);
+            globalDepth++;
+        }
+
+        int splitBit = 1 << localDepth;
+        localDepths.set(bucketId, localDepth + 1);
+        Block newBucket = blockManager.allocate(true);
+        int newBucketId = addBucket(newBucket, localDepth + 1);
+
+        List<Tuple> entries = new ArrayList<>();
+        bucket.forEach(entries::add);
+        bucket.clear();
+        for (Tuple entry : entries) {
+            boolean isMoved = (hash((int) entry.get(0)) & splitBit) != 0;
+            (isMoved ? newBucket : bucket).append(entry);
+        }
+        for (int i = 0; i < directory.length; i++) {
+            if (directory[i] == bucketId && (i & splitBit) != 0) {
+                directory[i] = newBucketId;
+            }
+        }
+        saveBucket(bucketId, bucket);
+        saveBucket(newBucketId, newBucket);
+    }
+
+    @Nullable
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        int directoryIndex = getDirectoryIndex(key);
+        int bucketId = directory[directoryIndex];
+        Block bucket = loadBucket(bucketId);
+        int index = search(bucket, key);
+        if (index < 0) {
+            releaseBucket(bucket);
+            return null;
+        }
+        ValueReference oldValue = new ValueReference(getPointer(bucket, index));
+        size--;
+
+        // blocks can not remove tuples, so the last entry takes the place of the removed one
+        List<Tuple> entries = new ArrayList<>();
+        bucket.forEach(entries::add);
+        entries.set(index, entries.get(entries.size() - 1));
+        entries.remove(entries.size() - 1);
+        bucket.clear();
+        entries.forEach(bucket::append);
+
+        int localDepth = localDepths.get(bucketId);
+        if (bucket.isEmpty() && localDepth > 0) {
+            int buddyBucketId = directory[directoryIndex ^ (1 << (localDepth - 1))];
+            if (localDepths.get(buddyBucketId) == localDepth) {
+                mergeIntoBuddy(bucketId, bucket, buddyBucketId);
+                return oldValue;
+            }
+        }
+        saveBucket(bucketId, bucket);
+        return oldValue;
+    }
+
+    /**
+     * Frees the loaded empty bucket and lets its directory slots reference its buddy, which differs only
+     * in the highest bit of their local depth. The buddy is not read, as the local depths are kept in memory.
+     */
+    private void mergeIntoBuddy(int bucketId, Block bucket, int buddyBucketId) {
+        removeBucket(bucketId, bucket);
+        localDepths.set(buddyBucketId, localDepths.get(buddyBucketId) - 1);
+        for (int i = 0; i < directory.length; i++) {
+            if (directory[i] == bucketId) {
+                directory[i] = buddyBucketId;
+            }
+        }
+
+        // halve the directory while its upper half only repeats the lower half
+        while (globalDepth > 0 && localDepths.stream().noneMatch(depth -> depth == globalDepth)) {
+            directory = Arrays.copyOf(directory, directory.length / 2);
+            globalDepth--;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An immutable, read-optimized B+-Tree, e.g. created by [AbstractBPlusTree.freeze] once a tree is complete.
+ *
+ * <p>The layout follows cache-sensitive search trees (CSS-trees):
+ * <ul>
+ *     <li>All keys and values are stored in one sorted array each. Every [#KEYS_PER_NODE] consecutive keys
+ *         form a leaf.</li>
+ *     <li>All inner nodes are stored level by level in a single int array. Every node consists of
+ *         [#KEYS_PER_NODE] separator keys, which fill exactly one 64 byte cache line.</li>
+ *     <li>There are no child pointers: the children of node i are the nodes i * fanout to
+ *         i * fanout + fanout - 1 of the next level, so a lookup is a tight loop over the key array.</li>
+ * </ul>
+ */
+public class FrozenBPlusTree implements Index<Integer, ValueReference> {
+    /**
+     * 16 int keys take 64 bytes, the cache line size of most CPUs
+     */
+    public static final int KEYS_PER_NODE = 16;
+    private static final int FANOUT = KEYS_PER_NODE + 1;
+
+    private final int[] keys;
+    private final ValueReference[] values;
+    /**
+     * Separator keys of all inner nodes from the root level down to the level above the leaves.
+     * Separator j of a node is the smallest key of its child j + 1, unused separators are [Integer.MAX_VALUE].
+     */
+    private final int[] innerKeys;
+    /**
+     * Index of the first node of each inner level in innerKeys (in nodes, not keys)
+     */
+    private final int[] levelOffsets;
+    /**
+     * Number of nodes of each inner level and, as last element, the number of leaves
+     */
+    private final int[] levelNodeCounts;
+
+    /**
+     * @param sortedEntries entries with strictly ascending keys
+     * @throws IllegalArgumentException if the keys are not strictly ascending
+     */
+    public FrozenBPlusTree(@NotNull Iterator<? extends AbstractBPlusTree.Entry> sortedEntries) {
+        List<AbstractBPlusTree.Entry> entries = new ArrayList<>();
+        sortedEntries.forEachRemaining(entries::add);
+        keys = new int[entries.size()];
+        values = new ValueReference[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i).getKey();
+            values[i] = entries.get(i).getValue();
+            Preconditions.checkArgument(i == 0 || keys[i - 1] < keys[i], "keys must be strictly ascending");
+        }
+
+        // count the nodes of each level from the leaves up to a single root node
+        List<Integer> nodeCounts = new ArrayList<>();
+        int nodeCount = Math.max(1, (keys.length + KEYS_PER_NODE - 1) / KEYS_PER_NODE);
+        nodeCounts.add(nodeCount);
+        while (nodeCount > 1) {
+            nodeCount = (nodeCount + FANOUT - 1) / FANOUT;
+            nodeCounts.add(0, nodeCount);
+        }
+        int innerLevels = nodeCounts.size() - 1;
+        levelNodeCounts = nodeCounts.stream().mapToInt(Integer::intValue).toArray();
+        levelOffsets = new int[innerLevels];
+        int totalInnerNodes = 0;
+        for (int level = 0; level < innerLevels; level++) {
+            levelOffsets[level] = totalInnerNodes;
+            totalInnerNodes += levelNodeCounts[level];
+        }
+
+        innerKeys = new int[totalInnerNodes * KEYS_PER_NODE];
+        Arrays.fill(innerKeys, Integer.MAX_VALUE);
+        // the smallest key of each node of the level below, starting with the leaves
+        int[] smallestKeys = IntStream.range(0, levelNodeCounts[innerLevels])
+            .map(leaf -> keys.length == 0 ? Integer.MAX_VALUE : keys[leaf * KEYS_PER_NODE])
+            .toArray();
+        for (int level = innerLevels - 1; level >= 0; level--) {
+            int[] levelSmallestKeys = new int[levelNodeCounts[level]];
+            for (int node = 0; node < levelNodeCounts[level]; node++) {
+                int firstChild = node * FANOUT;
+                levelSmallestKeys[node] = smallestKeys[firstChild];
+                int base = (levelOffsets[level] + node) * KEYS_PER_NODE;
+                for (int child = firstChild + 1; child < Math.min(firstChild + FANOUT, smallestKeys.length); child++) {
+                    innerKeys[base + child - firstChild - 1] = smallestKeys[child];
+                }
+            }
+            smallestKeys = levelSmallestKeys;
+        }
+    }
+
+    /**
+     * @return the number of inner levels above the leaves
+     */
+    public int getHeight() {
+        return levelOffsets.length;
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Descends through the inner levels by computing the child positions.
+     * @return the index of the search key in the key array or (-(insertion point) - 1)
+     */
+    private int search(int searchKey) {
+        int node = 0;
+        for (int level = 0; level < levelOffsets.length; level++) {
+            int base = (levelOffsets[level] + node) * KEYS_PER_NODE;
+            int childIndex = 0;
+            // scanning a single cache line is faster than a binary search with unpredictable branches
+            while (childIndex < KEYS_PER_NODE && innerKeys[base + childIndex] <= searchKey) {
+                childIndex++;
+            }
+            // Integer.MAX_VALUE also matches the unused separators of the last node of a level
+            node = Math.min(node * FANOUT + childIndex, levelNodeCounts[level + 1] - 1);
+        }
+        int from = node * KEYS_PER_NODE;
+        int to = Math.min(from + KEYS_PER_NODE, keys.length);
+        // the insertion point of a key larger than all keys of the leaf is the first key of the next leaf
+        return Arrays.binarySearch(keys, from, to, searchKey);
+    }
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        int index = search(searchKey);
+        return (index >= 0) ? values[index] : null;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        if (lowerBound > upperBound) {
+            return Collections.emptyIterator();
+        }
+        int index = search(lowerBound);
+        int from = (index >= 0) ? index : -(index + 1);
+        return new Iterator<>() {
+            private int position = from;
+
+            @Override
+            public boolean hasNext() {
+                return position < keys.length && keys[position] <= upperBound;
+            }
+
+            @Override
+            public ValueReference next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return values[position++];
+            }
+        };
+    }
+
+    /**
+     * @return a stream over all entries of this tree in key order
+     */
+    public Stream<AbstractBPlusTree.Entry> getEntries() {
+        return IntStream.range(0, keys.length)
+            .mapToObj(i -> new AbstractBPlusTree.Entry(keys[i], values[i]));
+    }
+
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        throw new UnsupportedOperationException("This tree is read-only.");
+    }
+
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        throw new UnsupportedOperationException("This tree is read-only.");
+    }
+}
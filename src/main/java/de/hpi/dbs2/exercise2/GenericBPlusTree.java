@@ -0,0 +1,685 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A B+-Tree for arbitrary keys, e.g. [String] or [Long] keys or composite keys ordered by a comparator.
+ *
+ * <p>By default, every node holds at most order - 1 keys like in [AbstractBPlusTree].
+ * With a [KeyCompression], nodes are instead limited by the total size of their keys ([pageSize])
+ * and store their keys compressed:
+ * <ul>
+ *     <li>prefix truncation: the common prefix of all keys of a node is only stored once</li>
+ *     <li>suffix truncation: the separators in inner nodes are the shortest keys
+ *         which separate two leaves instead of the smallest key of the right leaf</li>
+ * </ul>
+ * Thus, more keys fit into each node and the tree gets shallower.
+ */
+public class GenericBPlusTree<K extends Comparable<K>, V> implements Index<K, V> {
+    /**
+     * Operations for compressing keys, which requires the keys to be ordered lexicographically
+     * by their natural order like [String]s.
+     */
+    public interface KeyCompression<K> {
+        /**
+         * @return the size of the key in a node, e.g. in bytes
+         */
+        int size(@NotNull K key);
+
+        @NotNull
+        K commonPrefix(@NotNull K key1, @NotNull K key2);
+
+        boolean startsWith(@NotNull K key, @NotNull K prefix);
+
+        @NotNull
+        K removePrefix(@NotNull K key, @NotNull K prefix);
+
+        @NotNull
+        K addPrefix(@NotNull K prefix, @NotNull K suffix);
+
+        /**
+         * @return a preferably short key s with lower < s <= upper
+         */
+        @NotNull
+        K shortestSeparator(@NotNull K lower, @NotNull K upper);
+    }
+
+    /**
+     * Compression for [String] keys. The size of a string is its length plus one for storing the length.
+     */
+    public static final KeyCompression<String> STRINGS = new KeyCompression<>() {
+        @Override
+        public int size(@NotNull String key) {
+            return key.length() + 1;
+        }
+
+        @NotNull
+        @Override
+        public String commonPrefix(@NotNull String key1, @NotNull String key2) {
+            int maxLength = Math.min(key1.length(), key2.length());
+            int length = 0;
+            while (length < maxLength && key1.charAt(length) == key2.charAt(length)) {
+                length++;
+            }
+            return key1.substring(0, length);
+        }
+
+        @Override
+        public boolean startsWith(@NotNull String key, @NotNull String prefix) {
+            return key.startsWith(prefix);
+        }
+
+        @NotNull
+        @Override
+        public String removePrefix(@NotNull String key, @NotNull String prefix) {
+            return key.substring(prefix.length());
+        }
+
+        @NotNull
+        @Override
+        public String addPrefix(@NotNull String prefix, @NotNull String suffix) {
+            return prefix.concat(suffix);
+        }
+
+        @NotNull
+        @Override
+        public String shortestSeparator(@NotNull String lower, @NotNull String upper) {
+            // the shortest prefix of upper which differs from lower
+            int length = commonPrefix(lower, upper).length() + 1;
+            return upper.substring(0, Math.min(length, upper.length()));
+        }
+    };
+
+    /**
+     * Maximum total size of the keys in a node
+     */
+    public final int pageSize;
+    private final Comparator<? super K> comparator;
+    @Nullable
+    private final KeyCompression<K> compression;
+
+    private Node rootNode;
+    /**
+     * Number of inner node levels above the leaves
+     */
+    private int height = 0;
+    private int size = 0;
+
+    /**
+     * Creates a tree with uncompressed keys, in which every node holds at most order - 1 keys.
+     */
+    public GenericBPlusTree(int order, @NotNull Comparator<? super K> comparator) {
+        Preconditions.checkArgument(order > 2, "order must be larger than 2");
+        this.pageSize = order - 1;
+        this.comparator = comparator;
+        this.compression = null;
+        this.rootNode = new Leaf(List.of(), List.of());
+    }
+
+    /**
+     * Creates a tree with compressed keys in their natural order.
+     * @param pageSize maximum total size of the keys in a node, as measured by [KeyCompression.size].
+     *                 Every key may take at most a quarter of it.
+     */
+    public GenericBPlusTree(int pageSize, @NotNull KeyCompression<K> compression) {
+        Preconditions.checkArgument(pageSize >= 4, "pageSize must be at least 4");
+        this.pageSize = pageSize;
+        this.comparator = Comparator.naturalOrder();
+        this.compression = compression;
+        this.rootNode = new Leaf(List.of(), List.of());
+    }
+
+    /**
+     * @return a tree for [String] keys with prefix and suffix truncation
+     */
+    public static <V> GenericBPlusTree<String, V> forStrings(int pageSize) {
+        return new GenericBPlusTree<>(pageSize, STRINGS);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    private int keySize(K key) {
+        return (compression == null) ? 1 : compression.size(key);
+    }
+
+    private Leaf findLeaf(K searchKey) {
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            node = ((Inner) node).selectChild(searchKey);
+        }
+        return (Leaf) node;
+    }
+
+    @Nullable
+    @Override
+    public V getOrNull(@NotNull K searchKey) {
+        Leaf leaf = findLeaf(searchKey);
+        int index = leaf.search(searchKey);
+        return (index >= 0) ? leaf.values.get(index) : null;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<V> getRange(@NotNull K lowerBound, @NotNull K upperBound) {
+        if (comparator.compare(lowerBound, upperBound) > 0) {
+            return Collections.emptyIterator();
+        }
+        Leaf startLeaf = findLeaf(lowerBound);
+        int startIndex = startLeaf.search(lowerBound);
+        int startPosition = (startIndex >= 0) ? startIndex : -(startIndex + 1);
+
+        return new Iterator<>() {
+            private Leaf leaf = startLeaf;
+            private int position = startPosition;
+
+            private boolean skipExhaustedLeaves() {
+                while (leaf != null && position >= leaf.getKeyCount()) {
+                    leaf = leaf.nextSibling;
+                    position = 0;
+                }
+                return leaf != null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return skipExhaustedLeaves() && comparator.compare(leaf.getKey(position), upperBound) <= 0;
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return leaf.values.get(position++);
+            }
+        };
+    }
+
+    /**
+     * @return a stream over all entries of this tree in key order
+     */
+    public Stream<IndexEntry<K, V>> getEntries() {
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            node = ((Inner) node).children.get(0);
+        }
+        return Stream.iterate((Leaf) node, leaf -> leaf != null, leaf -> leaf.nextSibling)
+            .flatMap(leaf -> IntStream.range(0, leaf.getKeyCount())
+                .mapToObj(i -> new IndexEntry<>(leaf.getKey(i), leaf.values.get(i))));
+    }
+
+    @Nullable
+    @Override
+    public V insert(@NotNull K key, @NotNull V value) {
+        Preconditions.checkArgument(compression == null || keySize(key) <= pageSize / 4,
+            "key is too large for the page size");
+
+        // remember the path to the leaf for propagating splits
+        List<Inner> path = new ArrayList<>(height);
+        int[] pathChildIndexes = new int[height];
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int childIndex = inner.selectChildIndex(key);
+            path.add(inner);
+            pathChildIndexes[level] = childIndex;
+            node = inner.children.get(childIndex);
+        }
+        Leaf leaf = (Leaf) node;
+
+        int position = leaf.search(key);
+        if (position >= 0) {
+            return leaf.values.set(position, value);
+        }
+        position = -(position + 1);
+        size++;
+        if (leaf.tryInsert(position, key, value)) {
+            return null;
+        }
+
+        List<K> keys = leaf.getKeys();
+        keys.add(position, key);
+        List<V> values = new ArrayList<>(leaf.values);
+        values.add(position, value);
+        List<Leaf> leaves = new ArrayList<>();
+        splitLeaf(keys, values, leaves);
+
+        // the first leaf replaces the old one, so that its parent and previous sibling stay valid
+        leaf.assign(leaves.get(0));
+        leaves.set(0, leaf);
+        List<Node> splitNodes = new ArrayList<>(leaves);
+        List<K> separatorKeys = new ArrayList<>();
+        for (int i = 1; i < leaves.size(); i++) {
+            Leaf leftLeaf = leaves.get(i - 1);
+            Leaf rightLeaf = leaves.get(i);
+            rightLeaf.nextSibling = leftLeaf.nextSibling;
+            leftLeaf.nextSibling = rightLeaf;
+            separatorKeys.add(separatorKey(leftLeaf.getKey(leftLeaf.getKeyCount() - 1), rightLeaf.getKey(0)));
+        }
+
+        for (int level = height - 1; level >= 0 && splitNodes.size() > 1; level--) {
+            Inner parent = path.get(level);
+            int childIndex = pathChildIndexes[level];
+            List<K> parentKeys = parent.getKeys();
+            parentKeys.addAll(childIndex, separatorKeys);
+            List<Node> parentChildren = new ArrayList<>(parent.children);
+            parentChildren.addAll(childIndex + 1, splitNodes.subList(1, splitNodes.size()));
+
+            List<Inner> inners = new ArrayList<>();
+            separatorKeys = new ArrayList<>();
+            splitInner(parentKeys, parentChildren, inners, separatorKeys);
+            parent.assign(inners.get(0));
+            inners.set(0, parent);
+            splitNodes = new ArrayList<>(inners);
+        }
+
+        addRootLevels(splitNodes, separatorKeys);
+        return null;
+    }
+
+    /**
+     * Adds new root nodes above the nodes resulting from splitting the root, until a single root is left.
+     */
+    private void addRootLevels(List<Node> splitNodes, List<K> separatorKeys) {
+        while (splitNodes.size() > 1) {
+            List<Inner> inners = new ArrayList<>();
+            List<K> rootSeparatorKeys = new ArrayList<>();
+            splitInner(separatorKeys, splitNodes, inners, rootSeparatorKeys);
+            splitNodes = new ArrayList<>(inners);
+            separatorKeys = rootSeparatorKeys;
+            height++;
+            rootNode = inners.get(0);
+        }
+    }
+
+    /**
+     * @return the separator between two neighboring leaves, see [KeyCompression.shortestSeparator]
+     */
+    private K separatorKey(K largestLeftKey, K smallestRightKey) {
+        return (compression == null) ? smallestRightKey : compression.shortestSeparator(largestLeftKey, smallestRightKey);
+    }
+
+    /**
+     * Distributes the entries over as many leaves as needed for them to fit into a page.
+     */
+    private void splitLeaf(List<K> keys, List<V> values, List<Leaf> leaves) {
+        Leaf leaf = new Leaf(keys, values);
+        if (leaf.getSize() <= pageSize) {
+            leaves.add(leaf);
+            return;
+        }
+        int splitIndex = findSplitIndex(keys, false);
+        splitLeaf(keys.subList(0, splitIndex), values.subList(0, splitIndex), leaves);
+        splitLeaf(keys.subList(splitIndex, keys.size()), values.subList(splitIndex, values.size()), leaves);
+    }
+
+    /**
+     * Distributes the keys and children over as many inner nodes as needed for them to fit into a page.
+     * The keys between the resulting nodes move up and are added to separatorKeys.
+     */
+    private void splitInner(List<K> keys, List<Node> children, List<Inner> inners, List<K> separatorKeys) {
+        Inner inner = new Inner(keys, children);
+        if (inner.getSize() <= pageSize) {
+            inners.add(inner);
+            return;
+        }
+        int splitIndex = findSplitIndex(keys, true);
+        splitInner(keys.subList(0, splitIndex), children.subList(0, splitIndex + 1), inners, separatorKeys);
+        separatorKeys.add(keys.get(splitIndex));
+        splitInner(keys.subList(splitIndex + 1, keys.size()), children.subList(splitIndex + 1, children.size()),
+            inners, separatorKeys);
+    }
+
+    /**
+     * Without compression, this splits like the other trees: a leaf keeps ceil(order/2) entries
+     * and an inner node keeps ceil((order+1)/2) children.
+     * @param isInner whether the key at the split index moves up instead of into the right node
+     * @return the index which splits the keys into two parts of about the same size, preferring a larger left part
+     */
+    private int findSplitIndex(List<K> keys, boolean isInner) {
+        int totalSize = 0;
+        for (K key : keys) {
+            totalSize += keySize(key);
+        }
+        int splitIndex = 1;
+        int smallestDifference = Integer.MAX_VALUE;
+        int leftSize = 0;
+        int maxSplitIndex = isInner ? keys.size() - 2 : keys.size() - 1;
+        for (int i = 1; i <= maxSplitIndex; i++) {
+            leftSize += keySize(keys.get(i - 1));
+            int rightSize = totalSize - leftSize - (isInner ? keySize(keys.get(i)) : 0);
+            int difference = Math.abs(leftSize - rightSize);
+            if (difference <= smallestDifference) {
+                smallestDifference = difference;
+                splitIndex = i;
+            }
+        }
+        return splitIndex;
+    }
+
+    @Nullable
+    @Override
+    public V remove(@NotNull K key) {
+        // remember the path to the leaf for rebalancing underfull nodes
+        List<Inner> path = new ArrayList<>(height);
+        int[] pathChildIndexes = new int[height];
+        Node node = rootNode;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int childIndex = inner.selectChildIndex(key);
+            path.add(inner);
+            pathChildIndexes[level] = childIndex;
+            node = inner.children.get(childIndex);
+        }
+        Leaf leaf = (Leaf) node;
+
+        int position = leaf.search(key);
+        if (position < 0) {
+            return null;
+        }
+        size--;
+        V oldValue = leaf.values.remove(position);
+        List<K> keys = leaf.getKeys();
+        keys.remove(position);
+        // the remaining keys may share a longer prefix
+        leaf.setKeys(keys);
+
+        for (int level = height - 1; level >= 0; level--) {
+            Inner parent = path.get(level);
+            int childIndex = pathChildIndexes[level];
+            Node child = parent.children.get(childIndex);
+            if (child.getSize() > pageSize) {
+                // merged separators may not fit into the inner node anymore, when their common prefix got shorter
+                Inner inner = (Inner) child;
+                List<Inner> inners = new ArrayList<>();
+                List<K> separatorKeys = new ArrayList<>();
+                splitInner(inner.getKeys(), inner.children, inners, separatorKeys);
+                inner.assign(inners.get(0));
+                inners.set(0, inner);
+                parent.replaceChildren(childIndex, childIndex + 1, inners, separatorKeys);
+            } else if (isUnderfull(child)) {
+                rebalance(parent, childIndex);
+            } else {
+                break;
+            }
+        }
+
+        if (rootNode.getSize() > pageSize) {
+            Inner root = (Inner) rootNode;
+            List<Inner> inners = new ArrayList<>();
+            List<K> separatorKeys = new ArrayList<>();
+            splitInner(root.getKeys(), root.children, inners, separatorKeys);
+            root.assign(inners.get(0));
+            inners.set(0, root);
+            addRootLevels(new ArrayList<>(inners), separatorKeys);
+        }
+        while (height > 0 && ((Inner) rootNode).children.size() == 1) {
+            rootNode = ((Inner) rootNode).children.get(0);
+            height--;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Without compression, this checks the same fill criteria as [AbstractBPlusTree],
+     * otherwise nodes are merged with a neighbor when less than half of their page is used.
+     */
+    private boolean isUnderfull(Node node) {
+        if (compression != null) {
+            return node.getSize() < pageSize / 2;
+        }
+        int order = pageSize + 1;
+        return (node instanceof Inner inner)
+            ? inner.children.size() < (order + 1) / 2
+            : node.getKeyCount() < order / 2;
+    }
+
+    /**
+     * Merges the child with a neighbor and distributes their entries again over as many nodes as needed,
+     * which borrows entries from the neighbor if both do not fit into a single node.
+     */
+    private void rebalance(Inner parent, int childIndex) {
+        int leftIndex = (childIndex > 0) ? childIndex - 1 : childIndex;
+        Node leftNode = parent.children.get(leftIndex);
+        Node rightNode = parent.children.get(leftIndex + 1);
+
+        if (leftNode instanceof Leaf leftLeaf) {
+            Leaf rightLeaf = (Leaf) rightNode;
+            List<K> keys = leftLeaf.getKeys();
+            keys.addAll(rightLeaf.getKeys());
+            List<V> values = new ArrayList<>(leftLeaf.values);
+            values.addAll(rightLeaf.values);
+            List<Leaf> leaves = new ArrayList<>();
+            splitLeaf(keys, values, leaves);
+
+            // the left leaf is kept, so that its previous sibling stays valid
+            leftLeaf.assign(leaves.get(0));
+            leaves.set(0, leftLeaf);
+            List<K> separatorKeys = new ArrayList<>();
+            for (int i = 1; i < leaves.size(); i++) {
+                Leaf previousLeaf = leaves.get(i - 1);
+                previousLeaf.nextSibling = leaves.get(i);
+                separatorKeys.add(separatorKey(previousLeaf.getKey(previousLeaf.getKeyCount() - 1), leaves.get(i).getKey(0)));
+            }
+            leaves.get(leaves.size() - 1).nextSibling = rightLeaf.nextSibling;
+            parent.replaceChildren(leftIndex, leftIndex + 2, leaves, separatorKeys);
+        } else {
+            Inner leftInner = (Inner) leftNode;
+            Inner rightInner = (Inner) rightNode;
+            // the separator moves down between the children of both nodes
+            List<K> keys = leftInner.getKeys();
+            keys.add(parent.getKey(leftIndex));
+            keys.addAll(rightInner.getKeys());
+            List<Node> children = new ArrayList<>(leftInner.children);
+            children.addAll(rightInner.children);
+            List<Inner> inners = new ArrayList<>();
+            List<K> separatorKeys = new ArrayList<>();
+            splitInner(keys, children, inners, separatorKeys);
+
+            leftInner.assign(inners.get(0));
+            inners.set(0, leftInner);
+            parent.replaceChildren(leftIndex, leftIndex + 2, inners, separatorKeys);
+        }
+    }
+
+    /**
+     * For testing purposes.
+     * @return if the tree structure is valid. Without compression, the same fill criteria
+     *         as in [AbstractBPlusTree] are checked, otherwise all nodes must fit into a page.
+     */
+    public boolean isValid() {
+        int order = pageSize + 1;
+        BPlusTreeValidator<K, Node> validator = (compression == null)
+            ? new NodeValidator(order / 2, (order + 1) / 2, order)
+            : new NodeValidator(1, 2, Integer.MAX_VALUE);
+        return validator.getHeight(rootNode) == height;
+    }
+
+    private final class NodeValidator extends BPlusTreeValidator<K, Node> {
+        NodeValidator(int minLeafKeys, int minInnerChildren, int maxChildren) {
+            super(comparator, minLeafKeys, minInnerChildren, maxChildren);
+        }
+
+        @Override
+        List<K> getKeys(Node node) {
+            return node.getKeys();
+        }
+
+        @Nullable
+        @Override
+        List<Node> getChildren(Node node) {
+            return (node instanceof Inner inner) ? inner.children : null;
+        }
+
+        @Override
+        boolean isNodeValid(Node node) {
+            return node.getSize() <= pageSize;
+        }
+    }
+
+    private abstract sealed class Node permits Leaf, Inner {
+        /**
+         * Common prefix of all keys, null without compression or without keys
+         */
+        @Nullable
+        K prefix;
+        /**
+         * The sorted keys without their common prefix
+         */
+        List<K> suffixes;
+
+        Node(List<K> keys) {
+            setKeys(keys);
+        }
+
+        final void setKeys(List<K> keys) {
+            if (compression == null || keys.isEmpty()) {
+                prefix = null;
+                suffixes = new ArrayList<>(keys);
+                return;
+            }
+            // the keys are sorted, so the first and the last key have the shortest common prefix
+            prefix = compression.commonPrefix(keys.get(0), keys.get(keys.size() - 1));
+            suffixes = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                suffixes.add(compression.removePrefix(key, prefix));
+            }
+        }
+
+        int getKeyCount() {
+            return suffixes.size();
+        }
+
+        K getKey(int index) {
+            K suffix = suffixes.get(index);
+            return (prefix == null) ? suffix : compression.addPrefix(prefix, suffix);
+        }
+
+        List<K> getKeys() {
+            List<K> keys = new ArrayList<>(getKeyCount() + 1);
+            for (int i = 0; i < getKeyCount(); i++) {
+                keys.add(getKey(i));
+            }
+            return keys;
+        }
+
+        /**
+         * @return the total size of the stored prefix and suffixes
+         */
+        int getSize() {
+            int nodeSize = (prefix == null) ? 0 : keySize(prefix);
+            for (K suffix : suffixes) {
+                nodeSize += keySize(suffix);
+            }
+            return nodeSize;
+        }
+
+        /**
+         * @return the index of the search key, if it is contained,
+         * otherwise (-(insertion point) - 1) like [Collections.binarySearch]
+         */
+        int search(K searchKey) {
+            if (prefix == null) {
+                return Collections.binarySearch(suffixes, searchKey, comparator);
+            }
+            if (!compression.startsWith(searchKey, prefix)) {
+                // all keys start with the prefix, so the search key is either smaller or larger than all of them
+                return (comparator.compare(searchKey, prefix) < 0) ? -1 : -(getKeyCount() + 1);
+            }
+            return Collections.binarySearch(suffixes, compression.removePrefix(searchKey, prefix), comparator);
+        }
+    }
+
+    private final class Leaf extends Node {
+        List<V> values;
+        Leaf nextSibling;
+
+        Leaf(List<K> keys, List<V> values) {
+            super(keys);
+            this.values = new ArrayList<>(values);
+        }
+
+        /**
+         * Inserts the entry without re-compressing the other keys, if it fits into the page.
+         * @return false if the leaf has to be split or the key does not share the common prefix
+         */
+        boolean tryInsert(int position, K key, V value) {
+            K suffix = key;
+            if (prefix != null) {
+                if (!compression.startsWith(key, prefix)) return false;
+                suffix = compression.removePrefix(key, prefix);
+            } else if (compression != null) {
+                // the first key of a leaf determines its prefix
+                return false;
+            }
+            if (getSize() + keySize(suffix) > pageSize) return false;
+            suffixes.add(position, suffix);
+            values.add(position, value);
+            return true;
+        }
+
+        void assign(Leaf other) {
+            prefix = other.prefix;
+            suffixes = other.suffixes;
+            values = other.values;
+        }
+    }
+
+    private final class Inner extends Node {
+        /**
+         * keyCount + 1 children, where all keys of children[i + 1] are at least the key at index i
+         */
+        List<Node> children;
+
+        Inner(List<K> keys, List<Node> children) {
+            super(keys);
+            this.children = new ArrayList<>(children);
+        }
+
+        int selectChildIndex(K searchKey) {
+            int index = search(searchKey);
+            // equal keys are located in the right subtree
+            return (index >= 0) ? index + 1 : -(index + 1);
+        }
+
+        Node selectChild(K searchKey) {
+            return children.get(selectChildIndex(searchKey));
+        }
+
+        /**
+         * Replaces the children from fromIndex (inclusive) to toIndex (exclusive) and the keys between them.
+         */
+        void replaceChildren(int fromIndex, int toIndex, List<? extends Node> nodes, List<K> separatorKeys) {
+            List<K> keys = getKeys();
+            keys.subList(fromIndex, toIndex - 1).clear();
+            keys.addAll(fromIndex, separatorKeys);
+            setKeys(keys);
+            children.subList(fromIndex, toIndex).clear();
+            children.addAll(fromIndex, nodes);
+        }
+
+        void assign(Inner other) {
+            prefix = other.prefix;
+            suffixes = other.suffixes;
+            children = other.children;
+        }
+    }
+}
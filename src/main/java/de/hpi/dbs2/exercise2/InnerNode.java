@@ -64,17 +64,8 @@ public non-sealed class InnerNode extends BPlusTreeNode<BPlusTreeNode<?>> {
      */
     @NotNull
     public BPlusTreeNode<?> selectChild(@NotNull Integer searchKey) {
-        for (int i = 0; i < keys.length; i++) {
-            Integer key = keys[i];
-            if (key != null) {
-                if (searchKey < key) {
-                    return references[i]; // "left" reference
-                }
-            } else {
-                return references[i]; // "right" reference
-            }
-        }
-        return references[order - 1]; // "rightest" reference
+        // the "left" reference of the first larger key or the "right" reference of the last key
+        return references[upperBound(searchKey)];
     }
 
     @NotNull
@@ -97,10 +88,21 @@ public non-sealed class InnerNode extends BPlusTreeNode<BPlusTreeNode<?>> {
 
     @Override
     public boolean isValid() {
+        return isValid((int) Math.ceil(order / 2.0));
+    }
+
+    /**
+     * Like [isValid], but the root of a tree only needs two child nodes.
+     */
+    public boolean isValidRoot() {
+        return isValid(2);
+    }
+
+    private boolean isValid(int minSize) {
         if (keys.length != n)
             return false;
         int size = getNodeSize();
-        if (isEmpty() || size < (int) Math.ceil(order / 2.0))
+        if (isEmpty() || size < minSize)
             return false;
         if (references.length != order)
             return false;
@@ -0,0 +1,392 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A B+-Tree which is served directly from a memory-mapped file written by [#write],
+ * so opening it takes the same time for every tree size. Pages are only read by the OS once they are visited.
+ *
+ * <p>The file starts with a header, followed by one page per node in breadth-first order:
+ * <ul>
+ *     <li>inner node: key count, page id of the first child and n = order - 1 keys.
+ *         The children of a node are stored next to each other, so only the first one is referenced.</li>
+ *     <li>leaf: key count, n keys and n values. The leaves are the last level and thus stored in key order,
+ *         so the next leaf of a range scan is the next page.</li>
+ * </ul>
+ *
+ * <p>The mapped pages are never modified. Inserting or removing a key materializes only its leaf in memory.
+ * The inner nodes still route to it correctly, as a materialized leaf keeps its key range.
+ * In exchange, materialized leaves are neither split nor merged, until the tree is written again by [#save].
+ */
+public class MappedBPlusTree implements Index<Integer, ValueReference> {
+    private static final int MAGIC = 0x42504C54;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    public final int order;
+    /**
+     * Number of inner node levels above the leaves
+     */
+    private final int height;
+    private final int firstLeafPageId;
+    private final int pageCount;
+    private final int innerPageSize;
+    private final int leafPageSize;
+    private int size;
+
+    /**
+     * Entries of the modified leaves by their page id
+     */
+    private final Map<Integer, TreeMap<Integer, ValueReference>> materializedLeaves = new HashMap<>();
+
+    private MappedBPlusTree(ByteBuffer buffer, Path file) {
+        this.buffer = buffer;
+        Preconditions.checkArgument(buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC,
+            "%s is not a B+-Tree file", file);
+        Preconditions.checkArgument(buffer.getInt(4) == VERSION, "%s has an unsupported version", file);
+        this.order = buffer.getInt(8);
+        this.height = buffer.getInt(12);
+        this.size = buffer.getInt(16);
+        this.firstLeafPageId = buffer.getInt(20);
+        this.pageCount = buffer.getInt(24);
+        this.innerPageSize = getInnerPageSize(order);
+        this.leafPageSize = getLeafPageSize(order);
+        Preconditions.checkArgument(
+            buffer.capacity() == HEADER_SIZE + (long) firstLeafPageId * innerPageSize
+                + (long) (pageCount - firstLeafPageId) * leafPageSize,
+            "%s is truncated", file);
+    }
+
+    private static int getInnerPageSize(int order) {
+        return (2 + (order - 1)) * Integer.BYTES;
+    }
+
+    private static int getLeafPageSize(int order) {
+        return (1 + 2 * (order - 1)) * Integer.BYTES;
+    }
+
+    /**
+     * Writes the nodes of the tree as they are, without rebalancing them.
+     * The file is replaced atomically, so trees mapped from the old file stay usable.
+     * @throws IllegalArgumentException if the leaves of the tree are not all on the same level
+     */
+    public static void write(@NotNull AbstractBPlusTree tree, @NotNull Path file) throws IOException {
+        BPlusTreeNode<?> root = tree.getRootNode();
+        int height = root.getHeight();
+        // nodes are numbered in breadth-first order while they are written
+        Queue<BPlusTreeNode<?>> nodes = new ArrayDeque<>();
+        nodes.add(root);
+        int nodeCount = 1;
+        int innerNodeCount = (int) root.getDepthFirstNodeStream().filter(node -> node instanceof InnerNode).count();
+        int leafCount = (int) root.getDepthFirstNodeStream().filter(node -> node instanceof LeafNode).count();
+        long entryCount = tree.getEntries().count();
+        Preconditions.checkArgument(entryCount <= Integer.MAX_VALUE, "tree has too many entries");
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(tree.order);
+            output.writeInt(height);
+            output.writeInt((int) entryCount);
+            output.writeInt(innerNodeCount);
+            output.writeInt(innerNodeCount + leafCount);
+
+            int pageId = 0;
+            while (!nodes.isEmpty()) {
+                BPlusTreeNode<?> node = nodes.poll();
+                int keyCount = node.getKeyCount();
+                if (node instanceof InnerNode innerNode) {
+                    Preconditions.checkArgument(pageId < innerNodeCount, "leaves must be on the same level");
+                    output.writeInt(keyCount);
+                    output.writeInt(nodeCount);
+                    for (int i = 0; i <= keyCount; i++) {
+                        nodes.add(innerNode.getChildNode(i));
+                    }
+                    nodeCount += keyCount + 1;
+                    writeKeys(output, node);
+                } else {
+                    Preconditions.checkArgument(pageId >= innerNodeCount, "leaves must be on the same level");
+                    LeafNode leaf = (LeafNode) node;
+                    output.writeInt(keyCount);
+                    writeKeys(output, node);
+                    for (int i = 0; i < leaf.n; i++) {
+                        output.writeInt((i < keyCount) ? leaf.references[i].getDummyValue() : 0);
+                    }
+                }
+                pageId++;
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeKeys(DataOutputStream output, BPlusTreeNode<?> node) throws IOException {
+        for (int i = 0; i < node.n; i++) {
+            output.writeInt((node.keys[i] != null) ? node.keys[i] : 0);
+        }
+    }
+
+    /**
+     * Maps the file into memory. The file must not be modified while the tree is in use.
+     */
+    @NotNull
+    public static MappedBPlusTree open(@NotNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Preconditions.checkArgument(channel.size() <= Integer.MAX_VALUE, "%s is too large to be mapped", file);
+            // the mapping stays valid after closing the channel
+            return new MappedBPlusTree(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * Writes the current entries, including the materialized leaves, as a newly bulk loaded tree.
+     * The file may be the one this tree is mapped from.
+     */
+    public void save(@NotNull Path file) throws IOException {
+        BPlusTreeNode<?> root = (size == 0)
+            ? new InitialRootNode(order)
+            : new BPlusTreeBulkLoader(order, 1.0).load(getEntries().iterator());
+        write(new ReadOnlyBPlusTree(root), file);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of leaves which have been copied into memory because they were modified
+     */
+    public int getMaterializedLeafCount() {
+        return materializedLeaves.size();
+    }
+
+    // Page layout
+
+    private int getPageOffset(int pageId) {
+        return (pageId < firstLeafPageId)
+            ? HEADER_SIZE + pageId * innerPageSize
+            : HEADER_SIZE + firstLeafPageId * innerPageSize + (pageId - firstLeafPageId) * leafPageSize;
+    }
+
+    private int getKeyCount(int pageOffset) {
+        return buffer.getInt(pageOffset);
+    }
+
+    private int getInnerKey(int pageOffset, int keyIndex) {
+        return buffer.getInt(pageOffset + (2 + keyIndex) * Integer.BYTES);
+    }
+
+    private int getLeafKey(int pageOffset, int keyIndex) {
+        return buffer.getInt(pageOffset + (1 + keyIndex) * Integer.BYTES);
+    }
+
+    private int getLeafValue(int pageOffset, int keyIndex) {
+        return buffer.getInt(pageOffset + (order + keyIndex) * Integer.BYTES);
+    }
+
+    /**
+     * Binary search over the keys of the leaf page.
+     * @return the key index of the key or -(insertion index)-1, like [java.util.Arrays.binarySearch]
+     */
+    private int searchLeaf(int pageOffset, int key) {
+        int low = 0;
+        int high = getKeyCount(pageOffset) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleKey = getLeafKey(pageOffset, middle);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Descends from the root to the leaf which may contain the key.
+     * @return the page id of the leaf
+     */
+    private int findLeaf(int key) {
+        int pageId = 0;
+        for (int depth = 0; depth < height; depth++) {
+            int pageOffset = getPageOffset(pageId);
+            pageId = buffer.getInt(pageOffset + Integer.BYTES) + searchInner(pageOffset, key);
+        }
+        return pageId;
+    }
+
+    /**
+     * Binary search over the keys of the inner page, equal keys are located in the right subtree.
+     * @return the index of the child which may contain the key
+     */
+    private int searchInner(int pageOffset, int key) {
+        int low = 0;
+        int high = getKeyCount(pageOffset);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getInnerKey(pageOffset, middle) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies the entries of the leaf page into memory, unless this happened already.
+     */
+    private TreeMap<Integer, ValueReference> materializeLeaf(int pageId) {
+        return materializedLeaves.computeIfAbsent(pageId, id -> {
+            TreeMap<Integer, ValueReference> entries = new TreeMap<>();
+            int pageOffset = getPageOffset(id);
+            for (int i = 0; i < getKeyCount(pageOffset); i++) {
+                entries.put(getLeafKey(pageOffset, i), new ValueReference(getLeafValue(pageOffset, i)));
+            }
+            return entries;
+        });
+    }
+
+    // Index
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        int leafPageId = findLeaf(searchKey);
+        TreeMap<Integer, ValueReference> materializedLeaf = materializedLeaves.get(leafPageId);
+        if (materializedLeaf != null) {
+            return materializedLeaf.get(searchKey);
+        }
+        int pageOffset = getPageOffset(leafPageId);
+        int index = searchLeaf(pageOffset, searchKey);
+        return (index >= 0) ? new ValueReference(getLeafValue(pageOffset, index)) : null;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        return Iterators.transform(new RangeIterator(lowerBound, upperBound), AbstractBPlusTree.Entry::getValue);
+    }
+
+    /**
+     * @return a stream over all entries of this tree in key order
+     */
+    public Stream<AbstractBPlusTree.Entry> getEntries() {
+        Iterable<AbstractBPlusTree.Entry> entries = () -> new RangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return StreamSupport.stream(entries.spliterator(), false);
+    }
+
+    @Nullable
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        ValueReference oldValue = materializeLeaf(findLeaf(key)).put(key, value);
+        if (oldValue == null) {
+            size++;
+        }
+        return oldValue;
+    }
+
+    @Nullable
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        if (getOrNull(key) == null) {
+            return null;
+        }
+        size--;
+        return materializeLeaf(findLeaf(key)).remove(key);
+    }
+
+    private class RangeIterator implements Iterator<AbstractBPlusTree.Entry> {
+        private final int upperBound;
+        private final Queue<AbstractBPlusTree.Entry> buffer = new ArrayDeque<>();
+        private int nextLeafPageId;
+
+        RangeIterator(int lowerBound, int upperBound) {
+            this.upperBound = upperBound;
+            if (lowerBound > upperBound) {
+                nextLeafPageId = pageCount;
+                return;
+            }
+            nextLeafPageId = findLeaf(lowerBound);
+            bufferNextLeaf(lowerBound);
+        }
+
+        /**
+         * Buffers the entries of the next leaves within the bounds until at least one is found.
+         */
+        private void bufferNextLeaf(int lowerBound) {
+            while (buffer.isEmpty() && nextLeafPageId < pageCount) {
+                int leafPageId = nextLeafPageId++;
+                TreeMap<Integer, ValueReference> materializedLeaf = materializedLeaves.get(leafPageId);
+                if (materializedLeaf != null) {
+                    materializedLeaf.subMap(lowerBound, true, upperBound, true).forEach((key, value) ->
+                        buffer.add(new AbstractBPlusTree.Entry(key, value)));
+                    if (!materializedLeaf.isEmpty() && materializedLeaf.lastKey() >= upperBound) {
+                        nextLeafPageId = pageCount;
+                    }
+                    continue;
+                }
+                int pageOffset = getPageOffset(leafPageId);
+                int index = searchLeaf(pageOffset, lowerBound);
+                int keyCount = getKeyCount(pageOffset);
+                for (int i = (index >= 0) ? index : -(index + 1); i < keyCount; i++) {
+                    int key = getLeafKey(pageOffset, i);
+                    if (key > upperBound) break;
+                    buffer.add(new AbstractBPlusTree.Entry(key, new ValueReference(getLeafValue(pageOffset, i))));
+                }
+                if (keyCount > 0 && getLeafKey(pageOffset, keyCount - 1) >= upperBound) {
+                    nextLeafPageId = pageCount;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public AbstractBPlusTree.Entry next() {
+            AbstractBPlusTree.Entry entry = buffer.poll();
+            if (entry == null) throw new NoSuchElementException();
+            if (buffer.isEmpty()) {
+                bufferNextLeaf(Integer.MIN_VALUE);
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,627 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import de.hpi.dbs2.dbms.Block;
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.Tuple;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A disk-resident B+-Tree whose nodes are blocks of a [BlockManager], so index accesses count as block I/O
+ * just like scans and joins.
+ *
+ * <p>Every node is stored in one page (block), identified by its page id. The first tuple of a page is a header
+ * (node kind, link), followed by one tuple per entry:
+ * <ul>
+ *     <li>leaf: (key, value) entries, the link is the page id of the next leaf or {@link #NO_PAGE}</li>
+ *     <li>inner node: (key, child page id) entries, where all keys of the child are at least the key.
+ *         The link is the page id of the leftmost child.</li>
+ * </ul>
+ * Thus, the order of the tree equals the block capacity. Pages emptied by merging nodes on removal
+ * are reused by later splits.
+ *
+ * <p>Each page is loaded whenever it is visited and released right afterwards, which costs one input
+ * and, if the page has been modified, one output. The upper [residentLevels] levels of the tree are kept
+ * in memory once they have been loaded and are only written back when they are evicted by [close]
+ * or because a root split moved them below the resident levels.
+ */
+public class PagedBPlusTree implements Index<Integer, ValueReference>, AutoCloseable {
+    private static final int LEAF = 0;
+    private static final int INNER = 1;
+    public static final int NO_PAGE = -1;
+
+    private final BlockManager blockManager;
+    public final int order;
+    private final int residentLevels;
+
+    /**
+     * Block references by page id
+     */
+    private final List<Block> pages = new ArrayList<>();
+    /**
+     * Page ids of merged pages, which are not part of the tree anymore
+     */
+    private final Queue<Integer> freePageIds = new ArrayDeque<>();
+    private final Map<Integer, ResidentPage> residentPages = new HashMap<>();
+    private int rootPageId;
+    /**
+     * Number of inner node levels above the leaves
+     */
+    private int height = 0;
+    private int size = 0;
+
+    /**
+     * @param residentLevels number of upper tree levels which stay loaded in memory, 0 for none.
+     *                       Up to order^residentLevels blocks are occupied by them.
+     */
+    public PagedBPlusTree(@NotNull BlockManager blockManager, int residentLevels) {
+        Preconditions.checkArgument(residentLevels >= 0, "residentLevels must not be negative");
+        this.blockManager = blockManager;
+        this.residentLevels = residentLevels;
+
+        Block rootPage = blockManager.allocate(true);
+        Preconditions.checkArgument(rootPage.getCapacity() > 2, "block capacity must be larger than 2");
+        this.order = rootPage.getCapacity();
+        rootPageId = addPage(rootPage, 0, LEAF, NO_PAGE);
+        unpinPage(rootPageId, rootPage, true);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of entries in this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of pages (blocks) used by this tree
+     */
+    public int getPageCount() {
+        return pages.size() - freePageIds.size();
+    }
+
+    private static final class ResidentPage {
+        final Block page;
+        int depth;
+        boolean dirty = false;
+
+        ResidentPage(Block page, int depth) {
+            this.page = page;
+            this.depth = depth;
+        }
+    }
+
+    // Page access
+
+    /**
+     * Loads the page, unless it is resident already.
+     * Every page returned by this method has to be passed to [unpinPage] afterwards.
+     */
+    private Block readPage(int pageId, int depth) {
+        ResidentPage residentPage = residentPages.get(pageId);
+        if (residentPage != null) return residentPage.page;
+
+        Block page = blockManager.load(pages.get(pageId));
+        pages.set(pageId, page);
+        if (depth < residentLevels) {
+            residentPages.put(pageId, new ResidentPage(page, depth));
+        }
+        return page;
+    }
+
+    /**
+     * Releases the page, unless it is resident. Modified pages are saved to disk.
+     */
+    private void unpinPage(int pageId, Block page, boolean modified) {
+        ResidentPage residentPage = residentPages.get(pageId);
+        if (residentPage != null) {
+            residentPage.dirty |= modified;
+            return;
+        }
+        Block pageReference = blockManager.release(page, modified);
+        if (pageReference != null) {
+            pages.set(pageId, pageReference);
+        }
+    }
+
+    /**
+     * Adds the given loaded and empty block as new page with the given header.
+     * The page has to be passed to [unpinPage] afterwards.
+     * @return the page id of the new page
+     */
+    private int addPage(Block page, int depth, int kind, int link) {
+        page.append(new Tuple(2, kind, link));
+        Integer freePageId = freePageIds.poll();
+        int pageId;
+        if (freePageId != null) {
+            pageId = freePageId;
+            pages.set(pageId, page);
+        } else {
+            pages.add(page);
+            pageId = pages.size() - 1;
+        }
+        if (depth < residentLevels) {
+            residentPages.put(pageId, new ResidentPage(page, depth));
+        }
+        return pageId;
+    }
+
+    /**
+     * Releases the loaded page without saving it and marks its page id as free.
+     */
+    private void freePage(int pageId, Block page) {
+        residentPages.remove(pageId);
+        blockManager.release(page, false);
+        pages.set(pageId, null);
+        freePageIds.add(pageId);
+    }
+
+    private void evict(int pageId, ResidentPage residentPage) {
+        Block pageReference = blockManager.release(residentPage.page, residentPage.dirty);
+        if (pageReference != null) {
+            pages.set(pageId, pageReference);
+        }
+    }
+
+    /**
+     * Evicts all resident pages, saving the modified ones to disk.
+     * The tree remains usable and reloads resident pages on demand.
+     */
+    @Override
+    public void close() {
+        residentPages.forEach(this::evict);
+        residentPages.clear();
+    }
+
+    // Page layout
+
+    private static boolean isLeaf(Block page) {
+        return (int) page.get(0).get(0) == LEAF;
+    }
+
+    private static int getLink(Block page) {
+        return (int) page.get(0).get(1);
+    }
+
+    private static void setLink(Block page, int link) {
+        page.get(0).set(1, link);
+    }
+
+    private static int getEntryCount(Block page) {
+        return page.getSize() - 1;
+    }
+
+    private static int getKey(Block page, int entryIndex) {
+        return (int) page.get(entryIndex + 1).get(0);
+    }
+
+    private static int getPointer(Block page, int entryIndex) {
+        return (int) page.get(entryIndex + 1).get(1);
+    }
+
+    /**
+     * Binary search over the entry keys of the page.
+     * @return the entry index of the key or -(insertion index)-1, like [java.util.Arrays.binarySearch]
+     */
+    private static int search(Block page, int key) {
+        int low = 0;
+        int high = getEntryCount(page) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleKey = getKey(page, middle);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the index of the child of the inner node page which may contain the key
+     */
+    private static int selectChildIndex(Block innerPage, int key) {
+        int index = search(innerPage, key);
+        // equal keys are located in the right subtree
+        return (index >= 0) ? index + 1 : -(index + 1);
+    }
+
+    private static int getChildPageId(Block innerPage, int childIndex) {
+        return (childIndex == 0) ? getLink(innerPage) : getPointer(innerPage, childIndex - 1);
+    }
+
+    /**
+     * @return the page id of the child of the inner node page which may contain the key
+     */
+    private static int selectChild(Block innerPage, int key) {
+        return getChildPageId(innerPage, selectChildIndex(innerPage, key));
+    }
+
+    private static List<Tuple> removeEntries(Block page) {
+        List<Tuple> entries = new ArrayList<>(page.getSize() - 1);
+        Tuple header = page.get(0);
+        for (int i = 1; i < page.getSize(); i++) {
+            entries.add(page.get(i));
+        }
+        page.clear();
+        page.append(header);
+        return entries;
+    }
+
+    // Index
+
+    /**
+     * Descends from the root to the leaf which may contain the key.
+     * @param path if not null, the page ids of the inner nodes on the way are stored in it
+     * @return the page id of the leaf
+     */
+    private int findLeaf(int key, @Nullable int[] path) {
+        int pageId = rootPageId;
+        for (int depth = 0; depth < height; depth++) {
+            if (path != null) path[depth] = pageId;
+            Block page = readPage(pageId, depth);
+            int childPageId = selectChild(page, key);
+            unpinPage(pageId, page, false);
+            pageId = childPageId;
+        }
+        return pageId;
+    }
+
+    @Nullable
+    @Override
+    public ValueReference getOrNull(@NotNull Integer searchKey) {
+        int leafPageId = findLeaf(searchKey, null);
+        Block leaf = readPage(leafPageId, height);
+        int index = search(leaf, searchKey);
+        ValueReference value = (index >= 0) ? new ValueReference(getPointer(leaf, index)) : null;
+        unpinPage(leafPageId, leaf, false);
+        return value;
+    }
+
+    /**
+     * Only one leaf is loaded at a time. Its values within the bounds are buffered
+     * before the leaf is released again, so an unfinished iterator does not occupy any blocks.
+     */
+    @NotNull
+    @Override
+    public Iterator<ValueReference> getRange(@NotNull Integer lowerBound, @NotNull Integer upperBound) {
+        return Iterators.transform(new RangeIterator(lowerBound, upperBound), AbstractBPlusTree.Entry::getValue);
+    }
+
+    /**
+     * @return a stream over all entries of this tree in key order
+     */
+    public Stream<AbstractBPlusTree.Entry> getEntries() {
+        return StreamSupport.stream(Spliterators.spliterator(
+            new RangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE),
+            size,
+            Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL
+        ), false);
+    }
+
+    @Nullable
+    @Override
+    public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
+        int[] path = new int[height];
+        int leafPageId = findLeaf(key, path);
+        Block leaf = readPage(leafPageId, height);
+
+        Tuple entry = new Tuple(2, key, value.getDummyValue());
+        int index = search(leaf, key);
+        if (index >= 0) {
+            ValueReference oldValue = new ValueReference(getPointer(leaf, index));
+            leaf.set(index + 1, entry);
+            unpinPage(leafPageId, leaf, true);
+            return oldValue;
+        }
+        index = -(index + 1);
+        size++;
+
+        if (!leaf.isFull()) {
+            leaf.insert(index + 1, entry);
+            unpinPage(leafPageId, leaf, true);
+            return null;
+        }
+
+        // order - 1 old entries and the new one, the left leaf keeps ceil(order/2) of them
+        List<Tuple> entries = removeEntries(leaf);
+        entries.add(index, entry);
+        int leftCount = (order + 1) / 2;
+        int rightPageId = addPage(blockManager.allocate(true), height, LEAF, getLink(leaf));
+        Block rightLeaf = pages.get(rightPageId);
+        for (int i = 0; i < entries.size(); i++) {
+            (i < leftCount ? leaf : rightLeaf).append(entries.get(i));
+        }
+        setLink(leaf, rightPageId);
+        int separatorKey = getKey(rightLeaf, 0);
+        unpinPage(leafPageId, leaf, true);
+        unpinPage(rightPageId, rightLeaf, true);
+
+        for (int depth = height - 1; depth >= 0; depth--) {
+            int parentPageId = path[depth];
+            Block parent = readPage(parentPageId, depth);
+            Tuple separator = new Tuple(2, separatorKey, rightPageId);
+            index = -(search(parent, separatorKey) + 1);
+
+            if (!parent.isFull()) {
+                parent.insert(index + 1, separator);
+                unpinPage(parentPageId, parent, true);
+                return null;
+            }
+
+            // order keys and order + 1 children, the left node keeps ceil((order+1)/2) children
+            entries = removeEntries(parent);
+            entries.add(index, separator);
+            int leftChildCount = (order + 2) / 2;
+            // the separator between the split nodes moves up, its child becomes the leftmost one on the right
+            Tuple middleEntry = entries.get(leftChildCount - 1);
+            rightPageId = addPage(blockManager.allocate(true), depth, INNER, (int) middleEntry.get(1));
+            Block rightInner = pages.get(rightPageId);
+            for (int i = 0; i < entries.size(); i++) {
+                if (i < leftChildCount - 1) {
+                    parent.append(entries.get(i));
+                } else if (i > leftChildCount - 1) {
+                    rightInner.append(entries.get(i));
+                }
+            }
+            separatorKey = (int) middleEntry.get(0);
+            unpinPage(parentPageId, parent, true);
+            unpinPage(rightPageId, rightInner, true);
+        }
+
+        growRoot(separatorKey, rightPageId);
+        return null;
+    }
+
+    /**
+     * Adds a new root above the old root and its new right sibling.
+     */
+    private void growRoot(int separatorKey, int rightPageId) {
+        // all pages move one level down, which may push some of them below the resident levels
+        Iterator<Map.Entry<Integer, ResidentPage>> residentIterator = residentPages.entrySet().iterator();
+        while (residentIterator.hasNext()) {
+            Map.Entry<Integer, ResidentPage> residentEntry = residentIterator.next();
+            ResidentPage residentPage = residentEntry.getValue();
+            if (++residentPage.depth >= residentLevels) {
+                evict(residentEntry.getKey(), residentPage);
+                residentIterator.remove();
+            }
+        }
+
+        int newRootPageId = addPage(blockManager.allocate(true), 0, INNER, rootPageId);
+        Block newRoot = pages.get(newRootPageId);
+        newRoot.append(new Tuple(2, separatorKey, rightPageId));
+        unpinPage(newRootPageId, newRoot, true);
+        rootPageId = newRootPageId;
+        height++;
+    }
+
+    @Nullable
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        int[] path = new int[height];
+        int leafPageId = findLeaf(key, path);
+        Block leaf = readPage(leafPageId, height);
+
+        int index = search(leaf, key);
+        if (index < 0) {
+            unpinPage(leafPageId, leaf, false);
+            return null;
+        }
+        size--;
+        List<Tuple> entries = removeEntries(leaf);
+        ValueReference oldValue = new ValueReference((int) entries.remove(index).get(1));
+        entries.forEach(leaf::append);
+
+        // the modified page stays loaded until its parent has been rebalanced
+        int pageId = leafPageId;
+        Block page = leaf;
+        for (int depth = height - 1; depth >= 0 && isUnderfull(page); depth--) {
+            int parentPageId = path[depth];
+            Block parent = readPage(parentPageId, depth);
+            rebalance(parent, selectChildIndex(parent, key), pageId, page, depth + 1);
+            pageId = parentPageId;
+            page = parent;
+        }
+
+        if (pageId == rootPageId && height > 0 && getEntryCount(page) == 0) {
+            shrinkRoot(page);
+        } else {
+            unpinPage(pageId, page, true);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Uses the same fill criteria as [AbstractBPlusTree].
+     */
+    private boolean isUnderfull(Block page) {
+        return isLeaf(page)
+            ? getEntryCount(page) < order / 2
+            : getEntryCount(page) + 1 < (order + 1) / 2;
+    }
+
+    /**
+     * Merges the loaded child with a sibling, or borrows entries from the sibling
+     * if both do not fit into a single page. Both children are unpinned afterwards.
+     */
+    private void rebalance(Block parent, int childIndex, int childPageId, Block child, int childDepth) {
+        int leftIndex = (childIndex > 0) ? childIndex - 1 : childIndex;
+        int siblingPageId = getChildPageId(parent, (childIndex > 0) ? childIndex - 1 : childIndex + 1);
+        Block sibling = readPage(siblingPageId, childDepth);
+        int leftPageId = (childIndex > 0) ? siblingPageId : childPageId;
+        Block left = (childIndex > 0) ? sibling : child;
+        int rightPageId = (childIndex > 0) ? childPageId : siblingPageId;
+        Block right = (childIndex > 0) ? child : sibling;
+
+        List<Tuple> parentEntries = removeEntries(parent);
+        int rightLink = getLink(right);
+        List<Tuple> entries = removeEntries(left);
+        if (!isLeaf(left)) {
+            // the separator moves down, the leftmost child of the right node becomes its child
+            entries.add(new Tuple(2, parentEntries.get(leftIndex).get(0), rightLink));
+        }
+        entries.addAll(removeEntries(right));
+
+        // leaves hold up to order - 1 entries, inner nodes up to order - 1 keys and order children
+        if (entries.size() <= order - 1) {
+            entries.forEach(left::append);
+            if (isLeaf(left)) {
+                setLink(left, rightLink);
+            }
+            parentEntries.remove(leftIndex);
+            unpinPage(leftPageId, left, true);
+            freePage(rightPageId, right);
+        } else {
+            int leftCount = isLeaf(left) ? (entries.size() + 1) / 2 : entries.size() / 2;
+            int separatorKey;
+            for (int i = 0; i < leftCount; i++) {
+                left.append(entries.get(i));
+            }
+            if (isLeaf(left)) {
+                separatorKey = (int) entries.get(leftCount).get(0);
+            } else {
+                // the entry between both nodes moves up, its child becomes the leftmost one on the right
+                Tuple middleEntry = entries.get(leftCount++);
+                separatorKey = (int) middleEntry.get(0);
+                setLink(right, (int) middleEntry.get(1));
+            }
+            for (int i = leftCount; i < entries.size(); i++) {
+                right.append(entries.get(i));
+            }
+            parentEntries.set(leftIndex, new Tuple(2, separatorKey, rightPageId));
+            unpinPage(leftPageId, left, true);
+            unpinPage(rightPageId, right, true);
+        }
+        parentEntries.forEach(parent::append);
+    }
+
+    /**
+     * Replaces the loaded root without any keys by its only child.
+     */
+    private void shrinkRoot(Block root) {
+        int childPageId = getLink(root);
+        freePage(rootPageId, root);
+        rootPageId = childPageId;
+        height--;
+        // all pages move one level up, they become resident the next time they are loaded
+        residentPages.values().forEach(residentPage -> residentPage.depth--);
+    }
+
+    /**
+     * For testing purposes. This reads every page of the tree once.
+     * @return if the tree structure is valid, using the same fill criteria as [AbstractBPlusTree]
+     */
+    public boolean isValid() {
+        BPlusTreeValidator<Integer, PageCopy> validator = new BPlusTreeValidator<>(Comparator.naturalOrder(), order) {
+            @Override
+            List<Integer> getKeys(PageCopy page) {
+                return Arrays.stream(page.keys()).boxed().toList();
+            }
+
+            @Nullable
+            @Override
+            List<PageCopy> getChildren(PageCopy page) {
+                if (page.childPageIds() == null) return null;
+                return Arrays.stream(page.childPageIds())
+                    .mapToObj(childPageId -> copyPage(childPageId, page.depth() + 1))
+                    .toList();
+            }
+        };
+        return validator.getHeight(copyPage(rootPageId, 0)) == height;
+    }
+
+    /**
+     * The keys and child page ids of a page, which is not kept loaded while its subtree is validated.
+     * @param childPageIds null for leaves
+     */
+    private record PageCopy(int depth, int[] keys, @Nullable int[] childPageIds) {
+    }
+
+    private PageCopy copyPage(int pageId, int depth) {
+        Block page = readPage(pageId, depth);
+        int entryCount = getEntryCount(page);
+        int[] keys = new int[entryCount];
+        int[] childPageIds = new int[entryCount + 1];
+        childPageIds[0] = getLink(page);
+        for (int i = 0; i < entryCount; i++) {
+            keys[i] = getKey(page, i);
+            childPageIds[i + 1] = getPointer(page, i);
+        }
+        boolean isLeaf = isLeaf(page);
+        unpinPage(pageId, page, false);
+        return new PageCopy(depth, keys, isLeaf ? null : childPageIds);
+    }
+
+    private class RangeIterator implements Iterator<AbstractBPlusTree.Entry> {
+        private final int upperBound;
+        private final Queue<AbstractBPlusTree.Entry> buffer = new ArrayDeque<>();
+        private int nextLeafPageId;
+
+        RangeIterator(int lowerBound, int upperBound) {
+            this.upperBound = upperBound;
+            if (lowerBound > upperBound) {
+                nextLeafPageId = NO_PAGE;
+                return;
+            }
+            nextLeafPageId = findLeaf(lowerBound, null);
+            bufferNextLeaf(lowerBound);
+        }
+
+        private void bufferNextLeaf(int lowerBound) {
+            while (buffer.isEmpty() && nextLeafPageId != NO_PAGE) {
+                int leafPageId = nextLeafPageId;
+                Block leaf = readPage(leafPageId, height);
+                int index = search(leaf, lowerBound);
+                int entryCount = getEntryCount(leaf);
+                for (int i = (index >= 0) ? index : -(index + 1); i < entryCount; i++) {
+                    int key = getKey(leaf, i);
+                    if (key > upperBound) break;
+                    buffer.add(new AbstractBPlusTree.Entry(key, new ValueReference(getPointer(leaf, i))));
+                }
+                boolean reachedUpperBound = entryCount > 0 && getKey(leaf, entryCount - 1) >= upperBound;
+                nextLeafPageId = reachedUpperBound ? NO_PAGE : getLink(leaf);
+                unpinPage(leafPageId, leaf, false);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public AbstractBPlusTree.Entry next() {
+            AbstractBPlusTree.Entry entry = buffer.poll();
+            if (entry == null) throw new NoSuchElementException();
+            if (buffer.isEmpty()) {
+                bufferNextLeaf(Integer.MIN_VALUE);
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sorted set of non-negative ints, e.g. the record ids of all tuples with the same key in a non-unique index.
+ *
+ * <p>Short lists are stored as a plain int array. Once a list grows beyond [#UNCOMPRESSED_LIMIT] values,
+ * it is stored as the differences between consecutive values, each encoded as a varint
+ * (7 bits per byte, the highest bit marks that another byte follows).
+ * As record ids of the same key are usually close to each other, most differences take a single byte.
+ * Appending a value larger than all others is cheap in both representations,
+ * any other insertion rewrites the list.
+ */
+public class PostingList implements Iterable<Integer> {
+    /**
+     * Lists with up to this many values are stored uncompressed
+     */
+    public static final int UNCOMPRESSED_LIMIT = 8;
+
+    private int size = 0;
+    private int lastValue = -1;
+    /**
+     * The values while the list is uncompressed, null afterwards
+     */
+    private int[] values = new int[1];
+    private byte[] encoded;
+    private int encodedLength = 0;
+
+    public PostingList() {
+    }
+
+    public PostingList(int value) {
+        add(value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes used for the values
+     */
+    public int getByteSize() {
+        return (values != null) ? size * Integer.BYTES : encodedLength;
+    }
+
+    /**
+     * @return false if the value was already contained
+     */
+    public boolean add(int value) {
+        Preconditions.checkArgument(value >= 0, "values must not be negative");
+        if (value <= lastValue) {
+            int[] allValues = toArray();
+            int position = Arrays.binarySearch(allValues, value);
+            if (position >= 0) {
+                return false;
+            }
+            position = -(position + 1);
+            int[] newValues = new int[allValues.length + 1];
+            System.arraycopy(allValues, 0, newValues, 0, position);
+            newValues[position] = value;
+            System.arraycopy(allValues, position, newValues, position + 1, allValues.length - position);
+            rebuild(newValues);
+            return true;
+        }
+        append(value);
+        return true;
+    }
+
+    private void append(int value) {
+        if (values != null) {
+            if (size < UNCOMPRESSED_LIMIT) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, Math.min(2 * size, UNCOMPRESSED_LIMIT));
+                }
+                values[size++] = value;
+                lastValue = value;
+                return;
+            }
+            compress();
+        }
+        writeVarint(value - lastValue);
+        size++;
+        lastValue = value;
+    }
+
+    private void compress() {
+        int[] uncompressedValues = Arrays.copyOf(values, size);
+        values = null;
+        encoded = new byte[2 * size];
+        encodedLength = 0;
+        int previous = 0;
+        for (int value : uncompressedValues) {
+            writeVarint(value - previous);
+            previous = value;
+        }
+    }
+
+    private void rebuild(int[] sortedValues) {
+        size = 0;
+        lastValue = -1;
+        values = new int[Math.min(Math.max(1, sortedValues.length), UNCOMPRESSED_LIMIT)];
+        encoded = null;
+        encodedLength = 0;
+        for (int value : sortedValues) {
+            append(value);
+        }
+    }
+
+    private void writeVarint(int delta) {
+        if (encodedLength + 5 > encoded.length) {
+            encoded = Arrays.copyOf(encoded, Math.max(encodedLength + 5, 2 * encoded.length));
+        }
+        while ((delta & ~0x7F) != 0) {
+            encoded[encodedLength++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        encoded[encodedLength++] = (byte) delta;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0 || value > lastValue) {
+            return false;
+        }
+        if (values != null) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+        for (PrimitiveIterator.OfInt iterator = iterator(); iterator.hasNext(); ) {
+            int next = iterator.nextInt();
+            if (next >= value) {
+                return next == value;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the first and thus smallest value
+     * @throws NoSuchElementException if the list is empty
+     */
+    public int first() {
+        return iterator().nextInt();
+    }
+
+    @NotNull
+    public int[] toArray() {
+        if (values != null) {
+            return Arrays.copyOf(values, size);
+        }
+        int[] allValues = new int[size];
+        PrimitiveIterator.OfInt iterator = iterator();
+        for (int i = 0; i < size; i++) {
+            allValues[i] = iterator.nextInt();
+        }
+        return allValues;
+    }
+
+    /**
+     * @return an iterator over all values in ascending order, which is invalidated by later insertions
+     */
+    @NotNull
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        if (values != null) {
+            return Arrays.stream(values, 0, size).iterator();
+        }
+        return new PrimitiveIterator.OfInt() {
+            private int position = 0;
+            private int value = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < encodedLength;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int delta = 0;
+                int shift = 0;
+                byte next;
+                do {
+                    next = encoded[position++];
+                    delta |= (next & 0x7F) << shift;
+                    shift += 7;
+                } while ((next & 0x80) != 0);
+                value += delta;
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -17,4 +17,9 @@ public class ReadOnlyBPlusTree extends AbstractBPlusTree {
     public ValueReference insert(@NotNull Integer key, @NotNull ValueReference value) {
         throw new UnsupportedOperationException("This tree is read-only.");
     }
+
+    @Override
+    public ValueReference remove(@NotNull Integer key) {
+        throw new UnsupportedOperationException("This tree is read-only.");
+    }
 }
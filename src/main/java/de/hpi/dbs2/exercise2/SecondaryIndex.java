@@ -0,0 +1,304 @@
+package de.hpi.dbs2.exercise2;
+
+import com.google.common.base.Preconditions;
+import de.hpi.dbs2.dbms.Block;
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.BlockOutput;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A secondary index on a column of a [Relation], similar to CREATE INDEX.
+ * It maps each column value to the [RecordId]s of its tuples, so predicates on the column only
+ * have to load the blocks containing matching tuples instead of scanning the whole relation.
+ *
+ * <p>A unique index ([#create]) rejects duplicate values, a non-unique index ([#createNonUnique])
+ * stores all record ids of a value in a compressed [PostingList]. Inside of the posting lists,
+ * a record id is stored as blockNumber * block capacity + slot.
+ *
+ * <p>Tuples with null values in the indexed column are not indexed.
+ * The index only stays consistent if all blocks are appended through [#getBlockOutput].
+ */
+public class SecondaryIndex<K extends Comparable<K>> implements Index<K, RecordId> {
+    private final BlockManager blockManager;
+    public final Relation relation;
+    public final int columnIndex;
+    public final boolean unique;
+    private final GenericBPlusTree<K, PostingList> tree;
+    private int recordCount = 0;
+    /**
+     * The capacity of the relation's blocks, known once the first block was indexed
+     */
+    private int blockCapacity = 0;
+    /**
+     * The block references of the relation by their block number
+     */
+    private final List<Block> blocks = new ArrayList<>();
+
+    private SecondaryIndex(BlockManager blockManager, Relation relation, int columnIndex, int order, boolean unique) {
+        Preconditions.checkElementIndex(columnIndex, relation.getColumns().getColumnCount(), "columnIndex");
+        this.blockManager = blockManager;
+        this.relation = relation;
+        this.columnIndex = columnIndex;
+        this.unique = unique;
+        this.tree = new GenericBPlusTree<>(order, Comparator.<K>naturalOrder());
+    }
+
+    /**
+     * Creates a unique index on the given column by loading every block of the relation once.
+     * @param order order of the underlying B+-Tree
+     * @throws IllegalArgumentException if the column contains a value more than once
+     */
+    public static <K extends Comparable<K>> SecondaryIndex<K> create(
+        @NotNull BlockManager blockManager,
+        @NotNull Relation relation,
+        int columnIndex,
+        int order
+    ) {
+        return build(new SecondaryIndex<K>(blockManager, relation, columnIndex, order, true));
+    }
+
+    /**
+     * Creates an index on the given column, which may contain the same value multiple times,
+     * by loading every block of the relation once.
+     * @param order order of the underlying B+-Tree
+     */
+    public static <K extends Comparable<K>> SecondaryIndex<K> createNonUnique(
+        @NotNull BlockManager blockManager,
+        @NotNull Relation relation,
+        int columnIndex,
+        int order
+    ) {
+        return build(new SecondaryIndex<K>(blockManager, relation, columnIndex, order, false));
+    }
+
+    private static <K extends Comparable<K>> SecondaryIndex<K> build(SecondaryIndex<K> index) {
+        BlockManager blockManager = index.blockManager;
+        for (Block blockReference : index.relation) {
+            Block block = blockManager.load(blockReference);
+            try {
+                index.addBlock(block);
+            } finally {
+                blockManager.release(block, false);
+            }
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private K getKey(Tuple tuple) {
+        return (K) tuple.get(columnIndex);
+    }
+
+    /**
+     * Indexes all tuples of the given loaded block as the next block of the relation.
+     */
+    private void addBlock(Block block) {
+        if (blockCapacity == 0) {
+            blockCapacity = block.getCapacity();
+        }
+        Preconditions.checkArgument(block.getCapacity() == blockCapacity, "all blocks must have the same capacity");
+        if (unique) {
+            // check all keys first, so a rejected block leaves the index unchanged
+            Set<K> blockKeys = new HashSet<>();
+            for (Tuple tuple : block) {
+                K key = getKey(tuple);
+                if (key != null && (tree.getOrNull(key) != null || !blockKeys.add(key))) {
+                    throw new IllegalArgumentException("Duplicate value in unique column " + columnIndex + ": " + key);
+                }
+            }
+        }
+        int blockNumber = blocks.size();
+        for (int slot = 0; slot < block.getSize(); slot++) {
+            K key = getKey(block.get(slot));
+            if (key == null) {
+                continue;
+            }
+            int recordId = blockNumber * blockCapacity + slot;
+            PostingList postingList = tree.getOrNull(key);
+            if (postingList == null) {
+                tree.insert(key, new PostingList(recordId));
+            } else {
+                // record ids only grow, so this appends to the end of the list
+                postingList.add(recordId);
+            }
+            recordCount++;
+        }
+        blocks.add(block);
+    }
+
+    private RecordId toRecordId(int recordId) {
+        return new RecordId(recordId / blockCapacity, recordId % blockCapacity);
+    }
+
+    private Iterator<RecordId> recordIds(PostingList postingList) {
+        PrimitiveIterator.OfInt iterator = postingList.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public RecordId next() {
+                return toRecordId(iterator.nextInt());
+            }
+        };
+    }
+
+    /**
+     * @return a block output which appends blocks to the relation and indexes their tuples
+     */
+    public BlockOutput getBlockOutput() {
+        BlockOutput relationOutput = relation.getBlockOutput();
+        return outputBlock -> {
+            addBlock(outputBlock);
+            relationOutput.move(outputBlock);
+        };
+    }
+
+    /**
+     * @return the number of inner levels of the underlying B+-Tree
+     */
+    public int getHeight() {
+        return tree.getHeight();
+    }
+
+    /**
+     * @return the number of indexed tuples
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * @return the number of distinct indexed values
+     */
+    public int keyCount() {
+        return tree.size();
+    }
+
+    /**
+     * @return the record ids of all tuples with the given value in physical order
+     */
+    @NotNull
+    public Iterator<RecordId> getAll(@NotNull K searchKey) {
+        PostingList postingList = tree.getOrNull(searchKey);
+        return (postingList == null) ? Collections.emptyIterator() : recordIds(postingList);
+    }
+
+    /**
+     * Loads the block of the given record, which costs 1 disk read.
+     * @return the addressed tuple
+     */
+    @NotNull
+    public Tuple fetch(@NotNull RecordId recordId) {
+        Block block = blockManager.load(blocks.get(recordId.getBlockNumber()));
+        try {
+            return block.get(recordId.getSlot());
+        } finally {
+            blockManager.release(block, false);
+        }
+    }
+
+    /**
+     * Loads all tuples whose indexed value is between the given bounds.
+     * Every block containing at least one of them is loaded exactly once.
+     * @return the found tuples ordered by their indexed value
+     */
+    @NotNull
+    public List<Tuple> fetchRange(@NotNull K lowerBound, @NotNull K upperBound) {
+        Map<RecordId, Integer> positions = new HashMap<>();
+        getRange(lowerBound, upperBound).forEachRemaining(recordId -> positions.put(recordId, positions.size()));
+
+        Tuple[] tuples = new Tuple[positions.size()];
+        fetchAll(positions.keySet(), (recordId, tuple) -> tuples[positions.get(recordId)] = tuple);
+        return List.of(tuples);
+    }
+
+    /**
+     * Loads the given records in physical order, so every block containing at least one of them
+     * is loaded exactly once and only one block is in memory at a time.
+     * @param consumer receives every record id together with its tuple
+     */
+    public void fetchAll(@NotNull Collection<RecordId> recordIds, @NotNull BiConsumer<RecordId, Tuple> consumer) {
+        List<RecordId> sortedRecordIds = recordIds.stream().sorted().toList();
+        int i = 0;
+        while (i < sortedRecordIds.size()) {
+            int blockNumber = sortedRecordIds.get(i).getBlockNumber();
+            Block block = blockManager.load(blocks.get(blockNumber));
+            try {
+                for (; i < sortedRecordIds.size() && sortedRecordIds.get(i).getBlockNumber() == blockNumber; i++) {
+                    consumer.accept(sortedRecordIds.get(i), block.get(sortedRecordIds.get(i).getSlot()));
+                }
+            } finally {
+                blockManager.release(block, false);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if this index is not unique, use [#getAll] instead
+     */
+    @Nullable
+    @Override
+    public RecordId getOrNull(@NotNull K searchKey) {
+        Preconditions.checkState(unique, "Values are not unique in this index, use getAll instead.");
+        PostingList postingList = tree.getOrNull(searchKey);
+        return (postingList == null) ? null : toRecordId(postingList.first());
+    }
+
+    /**
+     * @return the record ids of all tuples with values between the given bounds,
+     *         ordered by their value and then by their physical position
+     */
+    @NotNull
+    @Override
+    public Iterator<RecordId> getRange(@NotNull K lowerBound, @NotNull K upperBound) {
+        Iterator<PostingList> postingLists = tree.getRange(lowerBound, upperBound);
+        return new Iterator<>() {
+            private Iterator<RecordId> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && postingLists.hasNext()) {
+                    current = recordIds(postingLists.next());
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public RecordId next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public RecordId insert(@NotNull K key, @NotNull RecordId value) {
+        throw new UnsupportedOperationException("Secondary indexes are only updated through their block output.");
+    }
+
+    @Override
+    public RecordId remove(@NotNull K key) {
+        throw new UnsupportedOperationException("Secondary indexes are only updated through their block output.");
+    }
+}
@@ -0,0 +1,93 @@
+package de.hpi.dbs2.exercise3;
+
+import com.google.common.base.Preconditions;
+import de.hpi.dbs2.dbms.*;
+import de.hpi.dbs2.exercise2.RecordId;
+import de.hpi.dbs2.exercise2.SecondaryIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Joins each block of the left relation with the matching tuples of the right relation,
+ * which are found by probing a [SecondaryIndex] on the right join column.
+ * Only right blocks containing matches are loaded, so a small left relation
+ * can be joined with a large right relation without scanning it.
+ * The index may be non-unique, e.g. on a foreign key column.
+ *
+ * <p>Tuples with a null join value never match.
+ */
+public class IndexNestedLoopEquiInnerJoin<K extends Comparable<K>> extends InnerJoinOperation {
+
+	private final SecondaryIndex<K> rightIndex;
+
+	/**
+	 * @param rightIndex index on the right join column of the right relation
+	 */
+	public IndexNestedLoopEquiInnerJoin(
+		@NotNull BlockManager blockManager, int leftColumnIndex, @NotNull SecondaryIndex<K> rightIndex
+	) {
+		super(blockManager, new JoinAttributePair.EquiJoinAttributePair(leftColumnIndex, rightIndex.columnIndex));
+		this.rightIndex = rightIndex;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K getLeftKey(Tuple leftTuple) {
+		return (K) leftTuple.get(getJoinAttributePair().getLeftColumnIndex());
+	}
+
+	@Override
+	public void join(
+		@NotNull Relation leftInputRelation, @NotNull Relation rightInputRelation,
+		@NotNull Relation outputRelation
+	) {
+		Preconditions.checkArgument(rightIndex.relation == rightInputRelation,
+			"the index does not belong to the right relation");
+
+		TupleAppender tupleAppender = new TupleAppender(getBlockManager(), outputRelation.getBlockOutput());
+		for(Block leftBlockRef : leftInputRelation) {
+			Block leftBlock = getBlockManager().load(leftBlockRef);
+			// probe the index once per distinct key and in key order, which keeps the visited index nodes hot
+			TreeMap<K, List<Tuple>> leftTuplesByKey = new TreeMap<>();
+			for(Tuple leftTuple : leftBlock) {
+				K key = getLeftKey(leftTuple);
+				if(key != null) {
+					leftTuplesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(leftTuple);
+				}
+			}
+			Map<RecordId, K> matches = new HashMap<>();
+			leftTuplesByKey.keySet().forEach(key ->
+				rightIndex.getAll(key).forEachRemaining(recordId -> matches.put(recordId, key))
+			);
+			// loads every right block with matches once while the left block stays loaded
+			rightIndex.fetchAll(matches.keySet(), (recordId, rightTuple) -> {
+				for(Tuple leftTuple : leftTuplesByKey.get(matches.get(recordId))) {
+					tupleAppender.accept(constructJoinedTuple(leftTuple, rightTuple, outputRelation.getColumns()));
+				}
+			});
+			getBlockManager().release(leftBlock, false);
+		}
+		tupleAppender.close();
+	}
+
+	/**
+	 * The index itself is kept in memory, so probing it is free regardless of its height.
+	 * Every left block is loaded once. Each of its tuples is expected to match as many right tuples
+	 * as there are on average per indexed value, which are loaded in at most as many right blocks.
+	 */
+	@Override
+	public int estimatedIOCost(@NotNull Relation leftInputRelation, @NotNull Relation rightInputRelation) {
+		int leftBlockCount = leftInputRelation.estimatedBlockCount();
+		if(leftBlockCount == 0 || rightIndex.keyCount() == 0) {
+			return leftBlockCount;
+		}
+		int tuplesPerBlock = leftInputRelation.iterator().next().getCapacity();
+		int matchesPerKey = (rightIndex.size() + rightIndex.keyCount() - 1) / rightIndex.keyCount();
+		int rightBlocksPerLeftBlock = Math.min(tuplesPerBlock * matchesPerKey, rightInputRelation.estimatedBlockCount());
+		return leftBlockCount + leftBlockCount * rightBlocksPerLeftBlock;
+	}
+}
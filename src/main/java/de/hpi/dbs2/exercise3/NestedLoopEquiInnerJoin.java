@@ -3,8 +3,6 @@ package de.hpi.dbs2.exercise3;
 import de.hpi.dbs2.dbms.*;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.function.Consumer;
-
 public class NestedLoopEquiInnerJoin extends InnerJoinOperation {
 
 	public NestedLoopEquiInnerJoin(
@@ -23,7 +21,7 @@ public class NestedLoopEquiInnerJoin extends InnerJoinOperation {
 		Relation outerRelation = (swapped) ? rightInputRelation : leftInputRelation;
 		Relation innerRelation = (swapped) ? leftInputRelation : rightInputRelation;
 
-		TupleAppender tupleAppender = new TupleAppender(outputRelation.getBlockOutput());
+		TupleAppender tupleAppender = new TupleAppender(getBlockManager(), outputRelation.getBlockOutput());
 		for(Block outerBlockRef : outerRelation) {
 			Block outerBlock = getBlockManager().load(outerBlockRef);
 			for(Block innerBlockRef : innerRelation) {
@@ -41,35 +39,6 @@ public class NestedLoopEquiInnerJoin extends InnerJoinOperation {
 		tupleAppender.close();
 	}
 
-	class TupleAppender implements AutoCloseable, Consumer<Tuple> {
-
-		BlockOutput blockOutput;
-
-		TupleAppender(BlockOutput blockOutput) {
-			this.blockOutput = blockOutput;
-		}
-
-		Block outputBlock = getBlockManager().allocate(true);
-
-		@Override
-		public void accept(Tuple tuple) {
-			if(outputBlock.isFull()) {
-				blockOutput.move(outputBlock);
-				outputBlock = getBlockManager().allocate(true);
-			}
-			outputBlock.append(tuple);
-		}
-
-		@Override
-		public void close() {
-			if(!outputBlock.isEmpty()) {
-				blockOutput.move(outputBlock);
-			} else {
-				getBlockManager().release(outputBlock, false);
-			}
-		}
-	}
-
 	@Override
 	public int estimatedIOCost(@NotNull Relation leftInputRelation, @NotNull Relation rightInputRelation) {
 		boolean swapped = rightInputRelation.estimatedBlockCount() < leftInputRelation.estimatedBlockCount();
@@ -0,0 +1,42 @@
+package de.hpi.dbs2.exercise3;
+
+import de.hpi.dbs2.dbms.Block;
+import de.hpi.dbs2.dbms.BlockManager;
+import de.hpi.dbs2.dbms.BlockOutput;
+import de.hpi.dbs2.dbms.Tuple;
+
+import java.util.function.Consumer;
+
+/**
+ * Collects tuples in a single output block and moves it to the block output whenever it is full.
+ */
+class TupleAppender implements AutoCloseable, Consumer<Tuple> {
+
+	private final BlockManager blockManager;
+	private final BlockOutput blockOutput;
+	private Block outputBlock;
+
+	TupleAppender(BlockManager blockManager, BlockOutput blockOutput) {
+		this.blockManager = blockManager;
+		this.blockOutput = blockOutput;
+		this.outputBlock = blockManager.allocate(true);
+	}
+
+	@Override
+	public void accept(Tuple tuple) {
+		if(outputBlock.isFull()) {
+			blockOutput.move(outputBlock);
+			outputBlock = blockManager.allocate(true);
+		}
+		outputBlock.append(tuple);
+	}
+
+	@Override
+	public void close() {
+		if(!outputBlock.isEmpty()) {
+			blockOutput.move(outputBlock);
+		} else {
+			blockManager.release(outputBlock, false);
+		}
+	}
+}
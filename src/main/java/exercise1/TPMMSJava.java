@@ -1,5 +1,6 @@
 package exercise1;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -7,7 +8,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import de.hpi.dbs2.ChosenImplementation;
@@ -19,32 +22,97 @@ import de.hpi.dbs2.dbms.Tuple;
 import de.hpi.dbs2.dbms.utils.BlockSorter;
 import de.hpi.dbs2.exercise1.SortOperation;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 @ChosenImplementation(true)
 public class TPMMSJava extends SortOperation {
+    @Nullable
+    private final Executor executor;
+    private final int mergeWorkers;
+    /**
+     * Run blocks loaded by the parallel merge workers and how many workers currently read them.
+     * Neighbouring ranges share the run blocks around their splitter, which can only be loaded once at a time.
+     */
+    private final Map<Block, Integer> mergeBlockPins = new HashMap<>();
+
     public TPMMSJava(@NotNull BlockManager manager, int sortColumnIndex) {
+        this(manager, sortColumnIndex, null);
+    }
+
+    /**
+     * @param prefetchExecutor if set, the merge phase loads the next block of a run on this executor
+     *                         while the current block is merged (as long as there are enough free blocks)
+     */
+    public TPMMSJava(@NotNull BlockManager manager, int sortColumnIndex, @Nullable Executor prefetchExecutor) {
+        this(manager, sortColumnIndex, prefetchExecutor, 1);
+    }
+
+    /**
+     * @param executor     runs the merge workers if mergeWorkers > 1, otherwise it is used for prefetching
+     * @param mergeWorkers the maximum number of workers which merge disjoint key ranges of all runs in parallel.
+     *                     Every worker needs one block per run and one output block,
+     *                     so fewer workers are used if there are not enough free blocks.
+     */
+    public TPMMSJava(@NotNull BlockManager manager, int sortColumnIndex, @Nullable Executor executor, int mergeWorkers) {
         super(manager, sortColumnIndex);
+        if (mergeWorkers < 1) {
+            throw new IllegalArgumentException("mergeWorkers must be positive");
+        }
+        if (mergeWorkers > 1 && executor == null) {
+            throw new IllegalArgumentException("a parallel merge requires an executor");
+        }
+        this.executor = executor;
+        this.mergeWorkers = mergeWorkers;
     }
 
     @Override
     public int estimatedIOCost(@NotNull Relation relation) {
-        return relation.getEstimatedSize() * 4;
+        int blockCount = relation.estimatedBlockCount();
+        int freeBlocks = getBlockManager().getFreeBlocks();
+        if (fitsInMemory(blockCount, freeBlocks)) {
+            return blockCount;
+        }
+        int runCount = (freeBlocks == 0) ? 0 : (blockCount + freeBlocks - 1) / freeBlocks;
+        int workers = mergeWorkerCount(runCount, freeBlocks);
+        if (workers <= 1) {
+            return blockCount * 4;
+        }
+        // Every worker after the first may read the block it starts with in each run a second time.
+        return blockCount * 4 + (workers - 1) * runCount;
+    }
+
+    private static boolean fitsInMemory(int blockCount, int freeBlocks) {
+        // one block is needed for the output
+        return blockCount <= freeBlocks - 1;
+    }
+
+    private int mergeWorkerCount(int runCount, int freeBlocks) {
+        if (mergeWorkers <= 1 || runCount == 0) return 1;
+        return Math.max(1, Math.min(mergeWorkers, freeBlocks / (runCount + 1)));
     }
 
     @Override
-    public void sort(@NotNull Relation relation, @NotNull BlockOutput outputRelation) {
+    public void sort(@NotNull Relation relation, @NotNull Relation outputRelation) {
         BlockManager blockManager = getBlockManager();
+        BlockOutput output = outputRelation.getBlockOutput();
 
         // Check for valid relation size
-        if (relation.getEstimatedSize() > blockManager.getFreeBlocks() * (blockManager.getFreeBlocks() - 1)) {
+        if (relation.estimatedBlockCount() > blockManager.getFreeBlocks() * (blockManager.getFreeBlocks() - 1)) {
             throw new RelationSizeExceedsCapacityException();
         }
 
         Comparator<Tuple> tupleComparator = relation.getColumns().getColumnComparator(getSortColumnIndex());
 
+        if (fitsInMemory(relation.estimatedBlockCount(), blockManager.getFreeBlocks())) {
+            sortInMemory(relation, output);
+            return;
+        }
+
         List<Block> blocksInMemory = new LinkedList<>();
         // We know it's not that optimal to use a 2D-List, but we cant be certain whether the block is saved back to the same place on disk
         List<List<Block>> phaseOneLists = new LinkedList<>();
+        // The first tuple of every block of every run, used to partition the runs for a parallel merge
+        List<List<Tuple>> phaseOneFirstTuples = new LinkedList<>();
 
         // Phase 1
         for (Iterator<Block> blockIterator = relation.iterator(); blockIterator.hasNext();) {
@@ -55,8 +123,17 @@ public class TPMMSJava extends SortOperation {
             blocksInMemory.add(blockInMemory); // temporarily save
 
             if (blockManager.getFreeBlocks() == 0 || !blockIterator.hasNext()) {
-                BlockSorter.INSTANCE.sort(relation, blocksInMemory, tupleComparator); // in-place
-
+                BlockSorter.INSTANCE.sort(blocksInMemory, relation.getColumns(), getSortColumnIndex()); // in-place
+                // Sorting keeps the block sizes, empty blocks are left out of the run so every run block has a first tuple
+                for (Iterator<Block> sortedBlockIterator = blocksInMemory.iterator(); sortedBlockIterator.hasNext();) {
+                    Block sortedBlock = sortedBlockIterator.next();
+                    if (sortedBlock.isEmpty()) {
+                        sortedBlockIterator.remove();
+                        blockManager.release(sortedBlock, false);
+                    }
+                }
+                if (blocksInMemory.isEmpty()) continue;
+                phaseOneFirstTuples.add(blocksInMemory.stream().map(block -> block.get(0)).collect(Collectors.toList()));
 
                 List<Block> savedSortedBlocks = blocksInMemory
                         .stream()
@@ -70,62 +147,396 @@ public class TPMMSJava extends SortOperation {
         }
 
         // Phase 2
+        int workers = mergeWorkerCount(phaseOneLists.size(), blockManager.getFreeBlocks());
+        if (workers > 1) {
+            mergeInParallel(
+                new ArrayList<>(phaseOneLists), new ArrayList<>(phaseOneFirstTuples), tupleComparator, workers, output);
+            return;
+        }
+
+        // Every run needs one block and the output needs one block.
+        // Spare blocks are handed out as second buffers to the first runs, if a prefetch executor is set.
+        int spareBlocks = (executor == null) ? 0 : blockManager.getFreeBlocks() - 1 - phaseOneLists.size();
+
         Block outputBlock = blockManager.allocate(true);
 
-        PriorityQueue<Tuple> tuplePriorityQueue = new PriorityQueue<>(tupleComparator);
-        Map<Block, List<Block>> blockToPhaseOneList = new HashMap<>();
-        // Unfortunately, there is no `remove` on the Block interface :(
-        // So we need to track the current size of the block by ourselves
-        // in order to correctly detect that a block is "half full" for example.
-        Map<Block, Integer> blockToCurrentSize = new HashMap<>();
-        Map<Tuple, Block> tupleToBlock = new HashMap<>();
+        PriorityQueue<RunReader> runReaderPriorityQueue = new PriorityQueue<>(
+            Math.max(1, phaseOneLists.size()),
+            (runReader1, runReader2) -> tupleComparator.compare(runReader1.current(), runReader2.current())
+        );
+        for (List<Block> phaseOneList : phaseOneLists) {
+            RunReader runReader = new RunReader(phaseOneList, spareBlocks > 0);
+            if (runReader.isExhausted()) continue;
+            spareBlocks--;
+            runReaderPriorityQueue.add(runReader);
+        }
 
-        Consumer<List<Block>> loadFirstBlockOfList = phaseOneList -> {
-            if (phaseOneList.isEmpty()) return;
+        while (!runReaderPriorityQueue.isEmpty()) {
+            RunReader headRunReader = runReaderPriorityQueue.remove();
+            outputBlock.append(headRunReader.current());
 
-            Block loadedFirstBlock = blockManager.load(phaseOneList.remove(0));
+            if (outputBlock.isFull()) {
+                output.move(outputBlock);
+                outputBlock = blockManager.allocate(true);
+            }
 
-            if (loadedFirstBlock.isEmpty()) {
-                // should not happen though
-                blockManager.release(loadedFirstBlock, false);
-                return;
+            // Re-insert the run with its next tuple, which might require (or use a prefetched) next block
+            if (headRunReader.advance()) {
+                runReaderPriorityQueue.add(headRunReader);
             }
+        }
 
-            blockToPhaseOneList.put(loadedFirstBlock, phaseOneList);
-            blockToCurrentSize.put(loadedFirstBlock, loadedFirstBlock.getSize());
+        if (!outputBlock.isEmpty()) {
+            output.move(outputBlock);
+        } else {
+            blockManager.release(outputBlock, false);
+        }
+        phaseOneLists.clear();
+    }
+
+    /**
+     * Reads the tuples of a phase one list one block at a time.
+     * If double buffered, the next block of the list is loaded asynchronously
+     * while the tuples of the current block are merged.
+     */
+    private class RunReader {
+        private final Iterator<Block> remainingBlocks;
+        private final boolean doubleBuffered;
+        @Nullable
+        private Block currentBlock = null;
+        private int position = 0;
+        private CompletableFuture<Block> prefetchedBlock = null;
 
-            for (Tuple tuple : loadedFirstBlock) {
-                tuplePriorityQueue.add(tuple);
-                tupleToBlock.put(tuple, loadedFirstBlock);
+        RunReader(List<Block> phaseOneList, boolean doubleBuffered) {
+            this.remainingBlocks = phaseOneList.iterator();
+            this.doubleBuffered = doubleBuffered;
+            if (remainingBlocks.hasNext()) {
+                this.currentBlock = getBlockManager().load(remainingBlocks.next());
+                prefetch();
+                // skips empty blocks at the start of the run the same way as moving on to the next tuple
+                this.position = -1;
+                advance();
             }
-        };
+        }
 
-        // Initial loading with first blocks for each phase one list
-        phaseOneLists.forEach(loadFirstBlockOfList);
+        private void prefetch() {
+            if (doubleBuffered && remainingBlocks.hasNext()) {
+                Block nextBlockOnDisk = remainingBlocks.next();
+                prefetchedBlock = CompletableFuture.supplyAsync(() -> getBlockManager().load(nextBlockOnDisk), executor);
+            }
+        }
 
-        while (!tuplePriorityQueue.isEmpty()) {
-            Tuple headTuple = tuplePriorityQueue.remove();
-            outputBlock.append(headTuple);
+        /**
+         * @return true if all tuples of this run have been read, the current tuple must not be accessed then
+         */
+        boolean isExhausted() {
+            return currentBlock == null;
+        }
+
+        Tuple current() {
+            return currentBlock.get(position);
+        }
 
-            if (outputBlock.isFull()) outputRelation.output(outputBlock);
+        /**
+         * @return false if all tuples of this run have been read
+         */
+        boolean advance() {
+            position++;
+            while (position >= currentBlock.getSize()) {
+                getBlockManager().release(currentBlock, false);
+                if (prefetchedBlock != null) {
+                    currentBlock = prefetchedBlock.join();
+                    prefetchedBlock = null;
+                } else if (remainingBlocks.hasNext()) {
+                    currentBlock = getBlockManager().load(remainingBlocks.next());
+                } else {
+                    currentBlock = null;
+                    return false;
+                }
+                position = 0;
+                prefetch();
+            }
+            return true;
+        }
+    }
 
-            Block sourceBlock = tupleToBlock.remove(headTuple);
-            blockToCurrentSize.compute(sourceBlock, (Block block, Integer prevBlockSize) -> prevBlockSize - 1);
+    /**
+     * Sorts a relation which fits into memory next to one output block without writing any runs.
+     */
+    private void sortInMemory(Relation relation, BlockOutput output) {
+        BlockManager blockManager = getBlockManager();
+        List<Block> blocksInMemory = new ArrayList<>(relation.estimatedBlockCount());
+        for (Block blockOnDisk : relation) {
+            blocksInMemory.add(blockManager.load(blockOnDisk));
+        }
+        BlockSorter.INSTANCE.sort(blocksInMemory, relation.getColumns(), getSortColumnIndex());
 
-            if (blockToCurrentSize.get(sourceBlock) == 0) {
-                List<Block> phaseOneList = blockToPhaseOneList.remove(sourceBlock);
+        Block outputBlock = blockManager.allocate(true);
+        for (Block sortedBlock : blocksInMemory) {
+            for (Tuple tuple : sortedBlock) {
+                outputBlock.append(tuple);
+                if (outputBlock.isFull()) {
+                    output.move(outputBlock);
+                    outputBlock = blockManager.allocate(true);
+                }
+            }
+            blockManager.release(sortedBlock, false);
+        }
+        if (!outputBlock.isEmpty()) {
+            output.move(outputBlock);
+        } else {
+            blockManager.release(outputBlock, false);
+        }
+    }
 
-                blockToCurrentSize.remove(sourceBlock);
-                blockManager.release(sourceBlock, false);
+    /**
+     * Merges the runs with one worker per key range.
+     * The splitters between the ranges are chosen from the first tuples of the run blocks,
+     * which are known from phase 1 and thus need no additional IO.
+     * The merged blocks of all ranges are appended to the output in range order by an [OrderedRangeOutput].
+     */
+    private void mergeInParallel(
+        List<List<Block>> runs,
+        List<List<Tuple>> runFirstTuples,
+        Comparator<Tuple> tupleComparator,
+        int workers,
+        BlockOutput output
+    ) {
+        List<Tuple> samples = new ArrayList<>();
+        runFirstTuples.forEach(samples::addAll);
+        samples.sort(tupleComparator);
 
-                // Load next block of used phase one list into memory
-                loadFirstBlockOfList.accept(phaseOneList);
+        // Equal keys always belong to the same range, so duplicate splitters are skipped
+        List<Tuple> splitters = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            Tuple splitter = samples.get(i * samples.size() / workers);
+            if (tupleComparator.compare(splitter, samples.get(0)) > 0 && (splitters.isEmpty()
+                || tupleComparator.compare(splitter, splitters.get(splitters.size() - 1)) > 0)) {
+                splitters.add(splitter);
             }
         }
 
-        if (!outputBlock.isEmpty()) outputRelation.output(outputBlock);
-        blockManager.release(outputBlock, false);
-        phaseOneLists.clear();
+        int rangeCount = splitters.size() + 1;
+        // every worker needs one block per run and one output block, the remaining blocks buffer finished blocks
+        int spareBlocks = getBlockManager().getFreeBlocks() - rangeCount * (runs.size() + 1);
+        OrderedRangeOutput rangeOutput = new OrderedRangeOutput(output, rangeCount, spareBlocks);
+        List<CompletableFuture<Void>> rangeMerges = new ArrayList<>();
+        for (int range = 0; range < rangeCount; range++) {
+            int rangeIndex = range;
+            Tuple lowerBound = (range == 0) ? null : splitters.get(range - 1);
+            Tuple upperBound = (range == splitters.size()) ? null : splitters.get(range);
+            rangeMerges.add(CompletableFuture.runAsync(
+                () -> mergeRange(runs, runFirstTuples, tupleComparator, lowerBound, upperBound, rangeIndex, rangeOutput),
+                executor
+            ));
+        }
+        CompletableFuture.allOf(rangeMerges.toArray(CompletableFuture<?>[]::new)).join();
     }
-}
 
+    /**
+     * Collects the merged blocks of all ranges and moves them into the output in range order.
+     * The blocks of the first unfinished range are moved into the output directly.
+     * Later ranges keep their full blocks in memory until all ranges before them are finished,
+     * using only the blocks which are not needed by the workers.
+     * If there are none left, a worker waits until its range is the first unfinished one.
+     */
+    private static class OrderedRangeOutput {
+        private final BlockOutput output;
+        private final List<List<Block>> pendingBlocks = new ArrayList<>();
+        private final boolean[] finished;
+        private int firstUnfinishedRange = 0;
+        private int spareBlocks;
+
+        OrderedRangeOutput(BlockOutput output, int rangeCount, int spareBlocks) {
+            this.output = output;
+            this.finished = new boolean[rangeCount];
+            this.spareBlocks = spareBlocks;
+            for (int range = 0; range < rangeCount; range++) {
+                pendingBlocks.add(new ArrayList<>());
+            }
+        }
+
+        synchronized void add(int range, Block block) {
+            while (range != firstUnfinishedRange && spareBlocks == 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }
+            if (range == firstUnfinishedRange) {
+                output.move(block);
+            } else {
+                spareBlocks--;
+                pendingBlocks.get(range).add(block);
+            }
+        }
+
+        synchronized void finish(int range) {
+            finished[range] = true;
+            while (firstUnfinishedRange < finished.length && finished[firstUnfinishedRange]) {
+                firstUnfinishedRange++;
+                if (firstUnfinishedRange < finished.length) {
+                    List<Block> blocks = pendingBlocks.get(firstUnfinishedRange);
+                    blocks.forEach(output::move);
+                    spareBlocks += blocks.size();
+                    blocks.clear();
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Merges all tuples t of the runs with lowerBound <= t < upperBound (null bounds are open)
+     * and adds the merged blocks to the range output in order.
+     */
+    private void mergeRange(
+        List<List<Block>> runs,
+        List<List<Tuple>> runFirstTuples,
+        Comparator<Tuple> tupleComparator,
+        @Nullable Tuple lowerBound,
+        @Nullable Tuple upperBound,
+        int range,
+        OrderedRangeOutput rangeOutput
+    ) {
+        BlockManager blockManager = getBlockManager();
+        try {
+            PriorityQueue<RangeRunReader> runReaders = new PriorityQueue<>(
+                Math.max(1, runs.size()),
+                (runReader1, runReader2) -> tupleComparator.compare(runReader1.current(), runReader2.current())
+            );
+            for (int i = 0; i < runs.size(); i++) {
+                RangeRunReader runReader = new RangeRunReader(
+                    runs.get(i), runFirstTuples.get(i), tupleComparator, lowerBound, upperBound);
+                if (runReader.current() != null) {
+                    runReaders.add(runReader);
+                }
+            }
+
+            Block outputBlock = blockManager.allocate(true);
+            while (!runReaders.isEmpty()) {
+                RangeRunReader headRunReader = runReaders.remove();
+                outputBlock.append(headRunReader.current());
+
+                if (outputBlock.isFull()) {
+                    rangeOutput.add(range, outputBlock);
+                    outputBlock = blockManager.allocate(true);
+                }
+
+                if (headRunReader.advance()) {
+                    runReaders.add(headRunReader);
+                }
+            }
+
+            if (outputBlock.isEmpty()) {
+                blockManager.release(outputBlock, false);
+            } else {
+                rangeOutput.add(range, outputBlock);
+            }
+        } finally {
+            // later ranges would wait forever for a failed range
+            rangeOutput.finish(range);
+        }
+    }
+
+    /**
+     * Reads only the tuples of a phase one list which lie in the given key range.
+     * Blocks entirely below or above the range are skipped using the first tuples of the blocks.
+     */
+    private class RangeRunReader {
+        private final List<Block> phaseOneList;
+        private final List<Tuple> firstTuples;
+        private final Comparator<Tuple> tupleComparator;
+        @Nullable
+        private final Tuple upperBound;
+        private int blockIndex;
+        private Block currentBlock = null;
+        private int position = 0;
+
+        RangeRunReader(
+            List<Block> phaseOneList,
+            List<Tuple> firstTuples,
+            Comparator<Tuple> tupleComparator,
+            @Nullable Tuple lowerBound,
+            @Nullable Tuple upperBound
+        ) {
+            this.phaseOneList = phaseOneList;
+            this.firstTuples = firstTuples;
+            this.tupleComparator = tupleComparator;
+            this.upperBound = upperBound;
+
+            // All blocks before the last block starting below the lower bound only contain smaller tuples
+            blockIndex = 0;
+            if (lowerBound != null) {
+                while (blockIndex + 1 < firstTuples.size()
+                    && tupleComparator.compare(firstTuples.get(blockIndex + 1), lowerBound) < 0) {
+                    blockIndex++;
+                }
+            }
+            if (loadBlock()) {
+                while (lowerBound != null && tupleComparator.compare(currentBlock.get(position), lowerBound) < 0) {
+                    if (!advance()) break;
+                }
+                if (currentBlock != null && !inRange(currentBlock.get(position))) {
+                    close();
+                }
+            }
+        }
+
+        private boolean inRange(Tuple tuple) {
+            return upperBound == null || tupleComparator.compare(tuple, upperBound) < 0;
+        }
+
+        private boolean loadBlock() {
+            if (blockIndex >= phaseOneList.size() || !inRange(firstTuples.get(blockIndex))) {
+                return false;
+            }
+            currentBlock = phaseOneList.get(blockIndex);
+            synchronized (mergeBlockPins) {
+                // another worker might be reading the same block, which is then shared read-only
+                if (mergeBlockPins.merge(currentBlock, 1, Integer::sum) == 1) {
+                    getBlockManager().load(currentBlock);
+                }
+            }
+            position = 0;
+            return true;
+        }
+
+        private void close() {
+            synchronized (mergeBlockPins) {
+                if (mergeBlockPins.merge(currentBlock, -1, Integer::sum) == 0) {
+                    mergeBlockPins.remove(currentBlock);
+                    getBlockManager().release(currentBlock, false);
+                }
+            }
+            currentBlock = null;
+        }
+
+        /**
+         * @return the current tuple or null if the range of this run is exhausted
+         */
+        @Nullable
+        Tuple current() {
+            return (currentBlock == null) ? null : currentBlock.get(position);
+        }
+
+        /**
+         * @return false if all tuples of this run in the range have been read
+         */
+        boolean advance() {
+            position++;
+            if (position >= currentBlock.getSize()) {
+                close();
+                blockIndex++;
+                if (!loadBlock()) return false;
+            }
+            if (!inRange(currentBlock.get(position))) {
+                close();
+                return false;
+            }
+            return true;
+        }
+    }
+}
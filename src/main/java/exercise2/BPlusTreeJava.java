@@ -1,7 +1,7 @@
 package exercise2;
 
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Stack;
 
 import de.hpi.dbs2.ChosenImplementation;
@@ -25,72 +25,26 @@ public class BPlusTreeJava extends AbstractBPlusTree {
     }
 
     private void optimisticallyInsertInLeaf(LeafNode leafToInsert, Integer key, ValueReference value) {
-        for (int pos = 0; pos < leafToInsert.keys.length; pos++) {
-            if (leafToInsert.keys[pos] == null) {
-                // We found a free slot in the Node.
-                leafToInsert.keys[pos] = key;
-                leafToInsert.references[pos] = value;
-                return;
-            }
-
-            if (leafToInsert.keys[pos] > key) {
-                // Key needs to be inserted between other keys in the node --> shift
-                Entry entryToShift = new Entry(leafToInsert.keys[pos], leafToInsert.references[pos]);
-
-                for (int shiftPos = pos + 1; shiftPos < leafToInsert.keys.length; shiftPos++) {
-                    if (leafToInsert.keys[shiftPos] == null) {
-                        leafToInsert.keys[shiftPos] = entryToShift.getKey();
-                        leafToInsert.references[shiftPos] = entryToShift.getValue();
-
-                        // Insert on now free pos
-                        leafToInsert.keys[pos] = key;
-                        leafToInsert.references[pos] = value;
-                        return;
-                    } else {
-                        Entry nextEntryToShift = new Entry(leafToInsert.keys[shiftPos], leafToInsert.references[shiftPos]);
-                        leafToInsert.keys[shiftPos] = entryToShift.getKey();
-                        leafToInsert.references[shiftPos] = entryToShift.getValue();
-                        entryToShift = nextEntryToShift;
-                    }
-                }
-            }
-        }
+        int size = leafToInsert.getKeyCount();
+        // The key is not contained yet, so this is its insertion point
+        int pos = -(leafToInsert.findKeyIndex(key) + 1);
+
+        // Shift the larger keys and values one slot to the right
+        System.arraycopy(leafToInsert.keys, pos, leafToInsert.keys, pos + 1, size - pos);
+        System.arraycopy(leafToInsert.references, pos, leafToInsert.references, pos + 1, size - pos);
+        leafToInsert.keys[pos] = key;
+        leafToInsert.references[pos] = value;
     }
 
     private void optimisticallyInsertInInner(InnerNode innerToInsert, Integer key, BPlusTreeNode<?> nodeReferenceRight) {
-        for (int pos = 0; pos < innerToInsert.keys.length; pos++) {
-            if (innerToInsert.keys[pos] == null) {
-                // We found a free slot in the node.
-                innerToInsert.keys[pos] = key;
-                innerToInsert.references[pos + 1] = nodeReferenceRight;
-                return;
-            }
-
-            if (innerToInsert.keys[pos] > key) {
-                // Key needs to be inserted between other keys in the node --> shift
-                Integer keyToShift = innerToInsert.keys[pos];
-                BPlusTreeNode<?> nodeReferenceToShift = innerToInsert.references[pos + 1];
-
-                for (int shiftPos = pos + 1; shiftPos < innerToInsert.keys.length; shiftPos++) {
-                    if (innerToInsert.keys[shiftPos] == null) {
-                        innerToInsert.keys[shiftPos] = keyToShift;
-                        innerToInsert.references[shiftPos + 1] = nodeReferenceToShift;
-
-                        // Insert on now free pos
-                        innerToInsert.keys[pos] = key;
-                        innerToInsert.references[pos + 1] = nodeReferenceRight;
-                        return;
-                    } else {
-                        Integer nextKeyToShift = innerToInsert.keys[shiftPos];
-                        BPlusTreeNode<?> nextNodeReferenceToShift = innerToInsert.references[shiftPos + 1];
-                        innerToInsert.keys[shiftPos] = keyToShift;
-                        innerToInsert.references[shiftPos + 1] = nodeReferenceToShift;
-                        keyToShift = nextKeyToShift;
-                        nodeReferenceToShift = nextNodeReferenceToShift;
-                    }
-                }
-            }
-        }
+        int keyCount = innerToInsert.getKeyCount();
+        int pos = -(innerToInsert.findKeyIndex(key) + 1);
+
+        // Shift the larger keys and their "right" references one slot to the right
+        System.arraycopy(innerToInsert.keys, pos, innerToInsert.keys, pos + 1, keyCount - pos);
+        System.arraycopy(innerToInsert.references, pos + 1, innerToInsert.references, pos + 2, keyCount - pos);
+        innerToInsert.keys[pos] = key;
+        innerToInsert.references[pos + 1] = nodeReferenceRight;
     }
 
     @Nullable
@@ -119,139 +73,157 @@ public class BPlusTreeJava extends AbstractBPlusTree {
         }
 
         // Does the key already exist? Overwrite! But remember to return the old value!
-        for (int pos = 0; pos < leafNode.keys.length; pos++) {
-            if (leafNode.keys[pos] == key) {
-                ValueReference oldValue = leafNode.references[pos];
-                leafNode.references[pos] = value;
-                return oldValue;
-            }
+        int existingPos = leafNode.findKeyIndex(key);
+        if (existingPos >= 0) {
+            ValueReference oldValue = leafNode.references[existingPos];
+            leafNode.references[existingPos] = value;
+            return oldValue;
         }
 
         if (!leafNode.isFull()) {
             optimisticallyInsertInLeaf(leafNode, key, value);
-            return null;
         } else {
-            // Split the LeafNode in two!
-            LeafNode leftLeaf;
-            LeafNode rightLeaf = new LeafNode(order);
-            if (leafNode instanceof InitialRootNode) {
-                // If the leafNode is the InitialRootNode, we cant re-use it as the new left leaf.
-                // So create a new one and first, copy all keys and values to this new node.
-                leftLeaf = new LeafNode(order);
-                for (int i = 0; i < leafNode.keys.length; i++) {
-                    leftLeaf.keys[i] = leafNode.keys[i];
-                    leftLeaf.references[i] = leafNode.references[i];
-                }
-            } else {
-                // Otherwise, we can re-use it as the new left leaf.
-                // This is quite handy, because we then don't need to change the reference to this node
-                // in the parent node!
-                leftLeaf = leafNode;
-            }
-
-            // Set references between (new) leafs
-            rightLeaf.nextSibling = leafNode.nextSibling;
-            leftLeaf.nextSibling = rightLeaf;
-
-            LeafNode leafToInsert = rightLeaf;
-            int splitPos = (int) Math.ceil(order / 2.0);
-            // Because we did not insert the value which would cause the overflow in the leafNode yet,
-            // splitting at the expected n+1/2 pos will not work everytime.
-            if (leftLeaf.keys[splitPos - 1] > key) {
-                // We need to insert the key/value pair in the left leaf!
-                // So we need to copy more to the right leaf
-                splitPos -= 1;
-                leafToInsert = leftLeaf;
-            }
+            splitLeafAndInsert(nodePathToLeaf, leafNode, key, value);
+        }
+        return null;
+    }
 
-            // Copy part of the keys and values to right leaf to distribute
-            for (int copyToRightPos = splitPos; copyToRightPos < leftLeaf.keys.length; copyToRightPos++) {
-                int posInRight = copyToRightPos - splitPos;
-                rightLeaf.keys[posInRight] = leftLeaf.keys[copyToRightPos];
-                rightLeaf.references[posInRight] = leftLeaf.references[copyToRightPos];
-                leftLeaf.keys[copyToRightPos] = null;
-                leftLeaf.references[copyToRightPos] = null;
+    /**
+     * Consecutive entries reuse the path to the previous leaf instead of descending from the root again,
+     * and the path is only partially rebuilt after a split.
+     */
+    @Override
+    public int insertAll(@NotNull Iterator<? extends Entry> sortedEntries) {
+        PathCursor cursor = new PathCursor();
+        int insertedCount = 0;
+        while (sortedEntries.hasNext()) {
+            Entry entry = sortedEntries.next();
+            LeafNode leafNode = cursor.seek(entry.getKey());
+
+            int existingPos = leafNode.findKeyIndex(entry.getKey());
+            if (existingPos >= 0) {
+                leafNode.references[existingPos] = entry.getValue();
+                continue;
             }
-
-            optimisticallyInsertInLeaf(leafToInsert, key, value);
-
-            // Is parent node root?
-            if (leafNode.equals(rootNode)) {
-                InnerNode newRoot = new InnerNode(order);
-                newRoot.keys[0] = rightLeaf.getSmallestKey();
-                newRoot.references[0] = leftLeaf;
-                newRoot.references[1] = rightLeaf;
-                this.rootNode = newRoot;
-                return null;
+            insertedCount++;
+            if (!leafNode.isFull()) {
+                optimisticallyInsertInLeaf(leafNode, entry.getKey(), entry.getValue());
+            } else {
+                Stack<BPlusTreeNode<?>> nodePathToLeaf = cursor.getInnerPath();
+                splitLeafAndInsert(nodePathToLeaf, leafNode, entry.getKey(), entry.getValue());
+                // the nodes left on the stack did not change, except for the last one getting a new child
+                cursor.invalidateBelow(nodePathToLeaf.size());
             }
+        }
+        return insertedCount;
+    }
 
-            // If we arrive here, we know a leaf was split.
-            Integer keyToInsertInParent = rightLeaf.getSmallestKey();
-            BPlusTreeNode<?> nodeReferenceToInsertInParentRight = rightLeaf;
-
-            while (!nodePathToLeaf.isEmpty()) {
-                // Leafs don't get pushed to the stack, and at this point the root node already is am InnerNode.
-                InnerNode currentNode = (InnerNode) nodePathToLeaf.pop();
-                if (!currentNode.isFull()) {
-                    optimisticallyInsertInInner(currentNode, keyToInsertInParent, nodeReferenceToInsertInParentRight);
-                    return null;
-                } else {
-                    // Parent innerNode needs to be split in two
-                    // We again want to re-use the currentNode as the new left inner node.
-                    InnerNode leftInner = currentNode;
-
-                    // Create right inner node and distribute values
-                    InnerNode rightInner = new InnerNode(order);
-
-                    InnerNode innerNodeToInsert = rightInner;
-                    int innerNodeSplitPos = (int) Math.ceil(order / 2.0);
-                    // Because we did not insert the key/reference which would cause the overflow in the innerNode yet,
-                    // splitting at the expected n+1/2 pos will not work everytime.
-                    if (leftInner.keys[innerNodeSplitPos - 1] > keyToInsertInParent) {
-                        // We need to insert the key/reference pair in the left inner!
-                        // So we need to copy more to the right inner node
-                        innerNodeSplitPos -= 1;
-                        innerNodeToInsert = leftInner;
-                    }
-
-                    // Copy part of the keys and references to right to distribute
-                    for (int copyToRightPos = innerNodeSplitPos; copyToRightPos < leftInner.references.length; copyToRightPos++) {
-                        int posInRight = copyToRightPos - innerNodeSplitPos;
-                        if (copyToRightPos < leftInner.keys.length) {
-                            rightInner.keys[posInRight] = leftInner.keys[copyToRightPos];
-                            leftInner.keys[copyToRightPos] = null;
-                        }
-                        rightInner.references[posInRight] = leftInner.references[copyToRightPos];
-                        leftInner.references[copyToRightPos] = null;
-                    }
+    /**
+     * Splits the full leaf, inserts the entry and propagates the split up the given path.
+     * The inner nodes which are not affected by the split remain on the stack.
+     */
+    private void splitLeafAndInsert(Stack<BPlusTreeNode<?>> nodePathToLeaf, LeafNode leafNode, Integer key, ValueReference value) {
+        // Split the LeafNode in two!
+        LeafNode leftLeaf;
+        LeafNode rightLeaf = new LeafNode(order);
+        if (leafNode instanceof InitialRootNode) {
+            // If the leafNode is the InitialRootNode, we cant re-use it as the new left leaf.
+            // So create a new one and first, copy all keys and values to this new node.
+            leftLeaf = new LeafNode(order);
+            System.arraycopy(leafNode.keys, 0, leftLeaf.keys, 0, leafNode.keys.length);
+            System.arraycopy(leafNode.references, 0, leftLeaf.references, 0, leafNode.references.length);
+        } else {
+            // Otherwise, we can re-use it as the new left leaf.
+            // This is quite handy, because we then don't need to change the reference to this node
+            // in the parent node!
+            leftLeaf = leafNode;
+        }
 
-                    optimisticallyInsertInInner(innerNodeToInsert, keyToInsertInParent, nodeReferenceToInsertInParentRight);
+        // Set references between (new) leafs
+        rightLeaf.nextSibling = leafNode.nextSibling;
+        leftLeaf.nextSibling = rightLeaf;
+
+        LeafNode leafToInsert = rightLeaf;
+        int splitPos = (int) Math.ceil(order / 2.0);
+        // Because we did not insert the value which would cause the overflow in the leafNode yet,
+        // splitting at the expected n+1/2 pos will not work everytime.
+        if (leftLeaf.keys[splitPos - 1] > key) {
+            // We need to insert the key/value pair in the left leaf!
+            // So we need to copy more to the right leaf
+            splitPos -= 1;
+            leafToInsert = leftLeaf;
+        }
 
-                    // Move the biggest of the left inner node key to parent (part 1: delete the key from the left node)
-                    // Part 2 (insert in the parent node) is part of next iteration.
-                    keyToInsertInParent = Arrays.stream(leftInner.keys).filter(leftInnerKey -> leftInnerKey != null).max(Comparator.comparing(myInt -> myInt)).get();
-                    for (int i = 0; i < leftInner.keys.length; i++) {
-                        if (leftInner.keys[i] == keyToInsertInParent) {
-                            leftInner.keys[i] = null;
-                        }
-                    }
+        // Copy part of the keys and values to right leaf to distribute
+        int movedToRight = leftLeaf.keys.length - splitPos;
+        System.arraycopy(leftLeaf.keys, splitPos, rightLeaf.keys, 0, movedToRight);
+        System.arraycopy(leftLeaf.references, splitPos, rightLeaf.references, 0, movedToRight);
+        Arrays.fill(leftLeaf.keys, splitPos, leftLeaf.keys.length, null);
+        Arrays.fill(leftLeaf.references, splitPos, leftLeaf.references.length, null);
+
+        optimisticallyInsertInLeaf(leafToInsert, key, value);
+
+        // Is parent node root?
+        if (leafNode.equals(rootNode)) {
+            InnerNode newRoot = new InnerNode(order);
+            newRoot.keys[0] = rightLeaf.getSmallestKey();
+            newRoot.references[0] = leftLeaf;
+            newRoot.references[1] = rightLeaf;
+            this.rootNode = newRoot;
+            return;
+        }
 
-                    // Special case: Part 2 is handled here if the node is the current root
-                    if (currentNode.equals(rootNode)) {
-                        InnerNode newRoot = new InnerNode(order);
-                        newRoot.keys[0] = keyToInsertInParent;
-                        newRoot.references[0] = leftInner;
-                        newRoot.references[1] = rightInner;
-                        this.rootNode = newRoot;
-                        return null;
-                    }
+        // If we arrive here, we know a leaf was split.
+        Integer keyToInsertInParent = rightLeaf.getSmallestKey();
+        BPlusTreeNode<?> nodeReferenceToInsertInParentRight = rightLeaf;
 
-                    // Prepare next iteration (update the parent node of the now split node)
-                    nodeReferenceToInsertInParentRight = rightInner;
+        while (!nodePathToLeaf.isEmpty()) {
+            // Leafs don't get pushed to the stack, and at this point the root node already is am InnerNode.
+            InnerNode currentNode = (InnerNode) nodePathToLeaf.pop();
+            if (!currentNode.isFull()) {
+                optimisticallyInsertInInner(currentNode, keyToInsertInParent, nodeReferenceToInsertInParentRight);
+                return;
+            } else {
+                // Parent innerNode needs to be split in two
+                // Collect all keys and references including the new ones in order
+                int keyPos = -(currentNode.findKeyIndex(keyToInsertInParent) + 1);
+                Integer[] allKeys = new Integer[order];
+                BPlusTreeNode<?>[] allReferences = new BPlusTreeNode<?>[order + 1];
+                System.arraycopy(currentNode.keys, 0, allKeys, 0, keyPos);
+                allKeys[keyPos] = keyToInsertInParent;
+                System.arraycopy(currentNode.keys, keyPos, allKeys, keyPos + 1, order - 1 - keyPos);
+                System.arraycopy(currentNode.references, 0, allReferences, 0, keyPos + 1);
+                allReferences[keyPos + 1] = nodeReferenceToInsertInParentRight;
+                System.arraycopy(currentNode.references, keyPos + 1, allReferences, keyPos + 2, order - 1 - keyPos);
+
+                // We again want to re-use the currentNode as the new left inner node.
+                InnerNode leftInner = currentNode;
+                InnerNode rightInner = new InnerNode(order);
+                int leftSize = (int) Math.ceil((order + 1) / 2.0);
+
+                Arrays.fill(leftInner.keys, null);
+                Arrays.fill(leftInner.references, null);
+                System.arraycopy(allKeys, 0, leftInner.keys, 0, leftSize - 1);
+                System.arraycopy(allReferences, 0, leftInner.references, 0, leftSize);
+                System.arraycopy(allKeys, leftSize, rightInner.keys, 0, order - leftSize);
+                System.arraycopy(allReferences, leftSize, rightInner.references, 0, order + 1 - leftSize);
+
+                // The key between both nodes moves to the parent. It is inserted in the next iteration.
+                keyToInsertInParent = allKeys[leftSize - 1];
+
+                // Special case: Part 2 is handled here if the node is the current root
+                if (currentNode.equals(rootNode)) {
+                    InnerNode newRoot = new InnerNode(order);
+                    newRoot.keys[0] = keyToInsertInParent;
+                    newRoot.references[0] = leftInner;
+                    newRoot.references[1] = rightInner;
+                    this.rootNode = newRoot;
+                    return;
                 }
+
+                // Prepare next iteration (update the parent node of the now split node)
+                nodeReferenceToInsertInParentRight = rightInner;
             }
         }
-
-        return null;
     }
 }
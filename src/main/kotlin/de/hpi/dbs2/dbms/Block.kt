@@ -33,6 +33,12 @@ interface Block : AutoCloseable, Iterable<Tuple> {
      */
     operator fun get(tupleIndex: Int): Tuple
 
+    /**
+     * replaces the tuple at the given index and returns the previous one
+     * @throws IllegalStateException if block is not loaded
+     */
+    operator fun set(tupleIndex: Int, tuple: Tuple): Tuple
+
     /**
      * Remove all tuples from this block.
      * The block will be empty after this operation.
@@ -15,6 +15,11 @@ class ColumnDefinition(
             { it as Int },
             { it.toInt() }
         ),
+        LONG(
+            Long::class.javaObjectType,
+            { it as Long },
+            { it.toLong() }
+        ),
         DOUBLE(
             Double::class.javaObjectType,
             { it as Double },
@@ -46,16 +46,21 @@ class DBMS(
             ioCostTracker = prevTracker
         }
 
+    /**
+     * Blocks may be allocated, loaded and released from multiple threads.
+     */
     private inner class BlockManagerImpl : BlockManager {
         override val usedBlocks: Int get() = activeMap.size
         override val freeBlocks: Int get() = totalBlocks - usedBlocks
 
+        @Synchronized
         override fun allocate(inMemory: Boolean): Block =
             BlockImpl().also {
                 if (inMemory)
                     setActive(it)
             }
 
+        @Synchronized
         override fun release(block: Block, saveToDisk: Boolean): Block? {
             check(block.isLoaded()) { "block is not loaded in memory" }
             activeMap -= block
@@ -65,6 +70,7 @@ class DBMS(
             } else null
         }
 
+        @Synchronized
         override fun load(blockReference: Block): Block {
             check(!blockReference.isLoaded()) { "block is already loaded in memory" }
             return setActive(blockReference).also {
@@ -74,7 +80,8 @@ class DBMS(
 
         override fun toString(): String = "BlockManager[free=${freeBlocks}/${totalBlocks}]"
 
-        private val activeMap: MutableSet<Block> = Sets.newIdentityHashSet()
+        // blocks only have identity equality, so a concurrent set behaves like an identity set
+        private val activeMap: MutableSet<Block> = Sets.newConcurrentHashSet()
         private fun isActive(block: Block): Boolean = block in activeMap
         private fun setActive(block: Block): Block = block.also {
             if (freeBlocks <= 0)
@@ -106,6 +113,7 @@ class DBMS(
             override fun isFull(): Boolean = size >= capacity
 
             override fun get(tupleIndex: Int): Tuple = tuples[tupleIndex]
+            override fun set(tupleIndex: Int, tuple: Tuple): Tuple = tuples.set(tupleIndex, tuple)
             override fun clear() = tuples.clear()
             override fun append(tuple: Tuple): Tuple = tuple.also {
                 check(!isFull()) { "block is full" }
@@ -1,6 +1,8 @@
 package de.hpi.dbs2.dbms.utils
 
 import de.hpi.dbs2.dbms.Block
+import de.hpi.dbs2.dbms.ColumnDefinition
+import de.hpi.dbs2.dbms.ColumnDefinition.ColumnType
 import de.hpi.dbs2.dbms.Tuple
 
 /**
@@ -8,21 +10,257 @@ import de.hpi.dbs2.dbms.Tuple
  */
 object BlockSorter {
     /**
-     * sorts the given blocks' tuples "in-place" by the given column index
+     * ranges of at most this many tuples are sorted by insertion sort
+     */
+    private const val INSERTION_SORT_THRESHOLD = 16
+
+    private const val RADIX_BITS = 8
+    private const val RADIX = 1 shl RADIX_BITS
+    private const val RADIX_MASK = (RADIX - 1).toLong()
+
+    /**
+     * sorts the given blocks' tuples in-place and stable by the given comparator
+     *
+     * The blocks may contain a different number of tuples each.
+     * Tuples are swapped directly between the blocks without any intermediate collections.
      */
     fun sort(blocks: List<Block>, tupleComparator: Comparator<Tuple>) {
-        val blockSize = blocks.first().size
-        blocks
-            .flatten()
-            .sortedWith(tupleComparator)
-            .chunked(blockSize)
-            .forEachIndexed { i, tupleList ->
-                blocks[i].apply {
-                    clear()
-                    tupleList.forEach {
-                        append(it)
+        mergeSort(TupleSlots(blocks), tupleComparator)
+    }
+
+    /**
+     * sorts the given blocks' tuples in-place and stable by the given column index
+     *
+     * INTEGER, LONG and DOUBLE columns are sorted by a stable LSD radix sort,
+     * other columns fall back to the stable merge sort with the column comparator of [columns].
+     */
+    fun sort(blocks: List<Block>, columns: ColumnDefinition, sortColumnIndex: Int) {
+        val columnType = columns.getColumnType(sortColumnIndex)
+        val slots = TupleSlots(blocks)
+        if (columnType == ColumnType.STRING || slots.size <= INSERTION_SORT_THRESHOLD) {
+            mergeSort(slots, columns.getColumnComparator(sortColumnIndex))
+        } else {
+            radixSort(slots, columnType, sortColumnIndex)
+        }
+    }
+
+    /**
+     * Stable merge sort: insertion sort of short ranges, which are then merged pairwise in-place.
+     */
+    private fun mergeSort(slots: TupleSlots, tupleComparator: Comparator<Tuple>) {
+        val size = slots.size
+        for (lo in 0 until size step INSERTION_SORT_THRESHOLD) {
+            insertionSort(slots, lo, minOf(lo + INSERTION_SORT_THRESHOLD, size) - 1, tupleComparator)
+        }
+        var width = INSERTION_SORT_THRESHOLD
+        while (width < size) {
+            for (lo in 0 until size - width step 2 * width) {
+                merge(slots, lo, lo + width, minOf(lo + 2 * width, size), tupleComparator)
+            }
+            width *= 2
+        }
+    }
+
+    /**
+     * Merges the sorted ranges [lo, mid) and [mid, hi) without a buffer by rotating the tuples between them.
+     * The larger range is split in half, the other range at the matching position, so equal tuples keep their order.
+     */
+    private fun merge(slots: TupleSlots, lo: Int, mid: Int, hi: Int, tupleComparator: Comparator<Tuple>) {
+        if (lo == mid || mid == hi) return
+        // the ranges are already in order
+        if (tupleComparator.compare(slots[mid - 1], slots[mid]) <= 0) return
+        if (hi - lo == 2) {
+            slots.swap(lo, mid)
+            return
+        }
+
+        val leftCut: Int
+        val rightCut: Int
+        if (mid - lo > hi - mid) {
+            leftCut = (lo + mid) ushr 1
+            // first tuple of the right range which is not less than the tuple at the left cut
+            val leftCutTuple = slots[leftCut]
+            rightCut = searchFirst(slots, mid, hi) { tupleComparator.compare(it, leftCutTuple) >= 0 }
+        } else {
+            rightCut = (mid + hi) ushr 1
+            // first tuple of the left range which is greater than the tuple at the right cut
+            val rightCutTuple = slots[rightCut]
+            leftCut = searchFirst(slots, lo, mid) { tupleComparator.compare(it, rightCutTuple) > 0 }
+        }
+        rotate(slots, leftCut, mid, rightCut)
+        val newMid = leftCut + (rightCut - mid)
+        merge(slots, lo, leftCut, newMid, tupleComparator)
+        merge(slots, newMid, rightCut, hi, tupleComparator)
+    }
+
+    /**
+     * @return the first slot in [lo, hi) whose tuple fulfills the predicate, which has to hold for all later slots
+     */
+    private inline fun searchFirst(slots: TupleSlots, lo: Int, hi: Int, predicate: (Tuple) -> Boolean): Int {
+        var first = lo
+        var last = hi
+        while (first < last) {
+            val mid = (first + last) ushr 1
+            if (predicate(slots[mid])) last = mid else first = mid + 1
+        }
+        return first
+    }
+
+    /**
+     * Swaps the ranges [lo, mid) and [mid, hi) by three reversals.
+     */
+    private fun rotate(slots: TupleSlots, lo: Int, mid: Int, hi: Int) {
+        reverse(slots, lo, mid - 1)
+        reverse(slots, mid, hi - 1)
+        reverse(slots, lo, hi - 1)
+    }
+
+    private fun reverse(slots: TupleSlots, from: Int, to: Int) {
+        var i = from
+        var j = to
+        while (i < j) {
+            slots.swap(i++, j--)
+        }
+    }
+
+    private fun insertionSort(slots: TupleSlots, lo: Int, hi: Int, tupleComparator: Comparator<Tuple>) {
+        for (i in lo + 1..hi) {
+            val tuple = slots[i]
+            var j = i - 1
+            while (j >= lo && tupleComparator.compare(slots[j], tuple) > 0) {
+                slots[j + 1] = slots[j]
+                j--
+            }
+            slots[j + 1] = tuple
+        }
+    }
+
+    /**
+     * Sorts the slot indices by their radix keys and then applies the resulting permutation to the blocks.
+     * Only the key and index arrays are copied between the passes, the tuples are moved exactly once.
+     */
+    private fun radixSort(slots: TupleSlots, columnType: ColumnType, sortColumnIndex: Int) {
+        val size = slots.size
+        var keys = LongArray(size) { slot -> radixKey(columnType, slots[slot][sortColumnIndex]) }
+        var order = IntArray(size) { slot -> slot }
+        var keysBuffer = LongArray(size)
+        var orderBuffer = IntArray(size)
+        val counts = IntArray(RADIX)
+
+        val keyBits = if (columnType == ColumnType.INTEGER) Int.SIZE_BITS else Long.SIZE_BITS
+        for (shift in 0 until keyBits step RADIX_BITS) {
+            counts.fill(0)
+            for (key in keys) {
+                counts[((key ushr shift) and RADIX_MASK).toInt()]++
+            }
+            // all keys share this digit, so this pass would not change the order
+            if (counts[((keys[0] ushr shift) and RADIX_MASK).toInt()] == size) continue
+
+            var offset = 0
+            for (digit in 0 until RADIX) {
+                val count = counts[digit]
+                counts[digit] = offset
+                offset += count
+            }
+            for (i in 0 until size) {
+                val target = counts[((keys[i] ushr shift) and RADIX_MASK).toInt()]++
+                keysBuffer[target] = keys[i]
+                orderBuffer[target] = order[i]
+            }
+
+            keys = keysBuffer.also { keysBuffer = keys }
+            order = orderBuffer.also { orderBuffer = order }
+        }
+        slots.permute(order)
+    }
+
+    /**
+     * @return a key whose unsigned order matches the natural order of the given value
+     */
+    private fun radixKey(columnType: ColumnType, value: Any?): Long =
+        when (columnType) {
+            ColumnType.INTEGER -> (value as Int).toLong() - Int.MIN_VALUE.toLong()
+            ColumnType.LONG -> (value as Long) xor Long.MIN_VALUE
+            ColumnType.DOUBLE -> java.lang.Double.doubleToLongBits(value as Double).let { bits ->
+                if (bits < 0) bits.inv() else bits xor Long.MIN_VALUE
+            }
+            ColumnType.STRING -> throw IllegalArgumentException("strings have no radix key")
+        }
+
+    /**
+     * Addresses the tuples of all given blocks by one continuous slot index.
+     */
+    private class TupleSlots(blockList: List<Block>) {
+        private val blocks: Array<Block> = blockList.toTypedArray()
+        private val offsets = IntArray(blocks.size + 1)
+
+        /**
+         * size of all blocks but the last one, if they are equally sized; otherwise 0
+         */
+        private val uniformBlockSize: Int
+
+        init {
+            blocks.forEachIndexed { i, block ->
+                offsets[i + 1] = offsets[i] + block.size
+            }
+            val firstBlockSize = blocks.firstOrNull()?.size ?: 0
+            uniformBlockSize = if (
+                blocks.isNotEmpty()
+                && (0 until blocks.size - 1).all { blocks[it].size == firstBlockSize }
+                && blocks.last().size <= firstBlockSize
+            ) firstBlockSize else 0
+        }
+
+        val size: Int get() = offsets[blocks.size]
+
+        private fun blockIndexOf(slot: Int): Int {
+            if (uniformBlockSize > 0) return slot / uniformBlockSize
+            // largest block index whose offset is not after the slot (skips empty blocks)
+            var lo = 0
+            var hi = blocks.size - 1
+            while (lo < hi) {
+                val mid = (lo + hi + 1) ushr 1
+                if (offsets[mid] <= slot) lo = mid else hi = mid - 1
+            }
+            return lo
+        }
+
+        operator fun get(slot: Int): Tuple {
+            val blockIndex = blockIndexOf(slot)
+            return blocks[blockIndex][slot - offsets[blockIndex]]
+        }
+
+        operator fun set(slot: Int, tuple: Tuple) {
+            val blockIndex = blockIndexOf(slot)
+            blocks[blockIndex][slot - offsets[blockIndex]] = tuple
+        }
+
+        fun swap(slot1: Int, slot2: Int) {
+            val tuple = this[slot1]
+            this[slot1] = this[slot2]
+            this[slot2] = tuple
+        }
+
+        /**
+         * Moves the tuple from slot sourceSlots[i] to slot i by following the permutation's cycles.
+         * The given array is used to mark finished slots and will be overwritten.
+         */
+        fun permute(sourceSlots: IntArray) {
+            for (start in 0 until size) {
+                if (sourceSlots[start] == start) continue
+                val displaced = this[start]
+                var slot = start
+                while (true) {
+                    val source = sourceSlots[slot]
+                    sourceSlots[slot] = slot
+                    if (source == start) {
+                        this[slot] = displaced
+                        break
                     }
+                    this[slot] = this[source]
+                    slot = source
                 }
             }
+        }
     }
 }
@@ -17,7 +17,8 @@ interface Index<K : Comparable<K>, V : Any> {
      * @throws NoSuchElementException If the key is not in the index.
      * @return associated value for the given key
      */
-    fun get(searchKey: K): V
+    fun get(searchKey: K): V =
+        getOrNull(searchKey) ?: throw NoSuchElementException("Key not found in index: $searchKey")
 
     /**
      * Finds all values for the keys between the given bounds.
@@ -0,0 +1,11 @@
+package de.hpi.dbs2.exercise2
+
+/**
+ * The address of a tuple in a [de.hpi.dbs2.dbms.Relation]:
+ * the position of its block in the relation and its index inside of that block.
+ * Record ids are ordered by their physical position.
+ */
+data class RecordId(val blockNumber: Int, val slot: Int) : Comparable<RecordId> {
+    override fun compareTo(other: RecordId): Int =
+        compareValuesBy(this, other, RecordId::blockNumber, RecordId::slot)
+}
@@ -0,0 +1,168 @@
+package de.hpi.dbs2.dbms;
+
+import de.hpi.dbs2.dbms.utils.BlockSorter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockSorterTests {
+
+	DBMS dbms = new DBMS(8, 10);
+
+	private List<Block> loadBlocks(List<Tuple> tuples, int... blockSizes) {
+		List<Block> blocks = new ArrayList<>();
+		int tupleIndex = 0;
+		for(int blockSize : blockSizes) {
+			Block block = dbms.getBlockManager().allocate(true);
+			for(int i = 0; i < blockSize; i++) {
+				block.append(tuples.get(tupleIndex++));
+			}
+			blocks.add(block);
+		}
+		assertEquals(tuples.size(), tupleIndex);
+		return blocks;
+	}
+
+	private List<Tuple> collectAndClose(List<Block> blocks, int... expectedBlockSizes) {
+		List<Tuple> tuples = new ArrayList<>();
+		for(int i = 0; i < blocks.size(); i++) {
+			Block block = blocks.get(i);
+			assertEquals(expectedBlockSizes[i], block.getSize());
+			block.forEach(tuples::add);
+			block.close();
+		}
+		return tuples;
+	}
+
+	private List<Tuple> randomTuples(ColumnDefinition columns, int count) {
+		Random random = new Random(1);
+		List<Tuple> tuples = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			Tuple tuple = columns.createTuple();
+			tuple.set(0, random.nextInt(200) - 100);
+			tuple.set(1, random.nextGaussian() * 1e6);
+			tuple.set(2, Integer.toString(random.nextInt(1000), 36));
+			tuple.set(3, random.nextLong());
+			tuples.add(tuple);
+		}
+		tuples.get(0).set(0, Integer.MIN_VALUE);
+		tuples.get(1).set(0, Integer.MAX_VALUE);
+		tuples.get(2).set(1, -0.0);
+		tuples.get(3).set(1, Double.NEGATIVE_INFINITY);
+		tuples.get(4).set(3, Long.MIN_VALUE);
+		tuples.get(5).set(3, Long.MAX_VALUE);
+		return tuples;
+	}
+
+	@Test
+	void testSortByEveryColumnType() {
+		ColumnDefinition columns = new ColumnDefinition(
+			ColumnDefinition.ColumnType.INTEGER,
+			ColumnDefinition.ColumnType.DOUBLE,
+			ColumnDefinition.ColumnType.STRING,
+			ColumnDefinition.ColumnType.LONG
+		);
+		List<Tuple> tuples = randomTuples(columns, 54);
+
+		for(int columnIndex = 0; columnIndex < columns.getColumnCount(); columnIndex++) {
+			Comparator<Tuple> comparator = columns.getColumnComparator(columnIndex);
+			List<Tuple> expected = new ArrayList<>(tuples);
+			expected.sort(comparator);
+
+			// blocks of varying size, including an empty one
+			List<Block> blocks = loadBlocks(tuples, 10, 3, 0, 10, 9, 10, 10, 2);
+			BlockSorter.INSTANCE.sort(blocks, columns, columnIndex);
+			List<Tuple> sorted = collectAndClose(blocks, 10, 3, 0, 10, 9, 10, 10, 2);
+
+			assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+			for(int i = 0; i < expected.size(); i++) {
+				assertEquals(0, comparator.compare(expected.get(i), sorted.get(i)), "column " + columnIndex);
+			}
+			assertTrue(sorted.containsAll(tuples));
+		}
+	}
+
+	@Test
+	void testSortByComparator() {
+		ColumnDefinition columns = new ColumnDefinition(
+			ColumnDefinition.ColumnType.INTEGER,
+			ColumnDefinition.ColumnType.DOUBLE,
+			ColumnDefinition.ColumnType.STRING,
+			ColumnDefinition.ColumnType.LONG
+		);
+		List<Tuple> tuples = randomTuples(columns, 40);
+		Comparator<Tuple> comparator = columns.getColumnComparator(0);
+		List<Tuple> expected = new ArrayList<>(tuples);
+		expected.sort(comparator);
+
+		List<Block> blocks = loadBlocks(tuples, 10, 10, 10, 10);
+		BlockSorter.INSTANCE.sort(blocks, comparator);
+		List<Tuple> sorted = collectAndClose(blocks, 10, 10, 10, 10);
+
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(0, comparator.compare(expected.get(i), sorted.get(i)));
+		}
+	}
+
+	@Test
+	void testSortByComparatorIsStable() {
+		ColumnDefinition columns = new ColumnDefinition(
+			ColumnDefinition.ColumnType.STRING,
+			ColumnDefinition.ColumnType.INTEGER
+		);
+		Random random = new Random(1);
+		List<Tuple> tuples = new ArrayList<>();
+		for(int i = 0; i < 54; i++) {
+			tuples.add(new Tuple(2, Integer.toString(random.nextInt(5)), i));
+		}
+
+		// sorted by the comparator and by the column comparator, as strings are not radix sorted
+		for(boolean byColumn : new boolean[]{false, true}) {
+			List<Block> blocks = loadBlocks(tuples, 10, 3, 0, 10, 9, 10, 10, 2);
+			if(byColumn) {
+				BlockSorter.INSTANCE.sort(blocks, columns, 0);
+			} else {
+				BlockSorter.INSTANCE.sort(blocks, columns.getColumnComparator(0));
+			}
+			List<Tuple> sorted = collectAndClose(blocks, 10, 3, 0, 10, 9, 10, 10, 2);
+
+			for(int i = 1; i < sorted.size(); i++) {
+				Tuple previous = sorted.get(i - 1);
+				Tuple current = sorted.get(i);
+				int order = ((String) previous.get(0)).compareTo((String) current.get(0));
+				assertTrue(order < 0 || (order == 0 && (int) previous.get(1) < (int) current.get(1)));
+			}
+		}
+	}
+
+	@Test
+	void testRadixSortIsStable() {
+		ColumnDefinition columns = new ColumnDefinition(
+			ColumnDefinition.ColumnType.INTEGER,
+			ColumnDefinition.ColumnType.INTEGER
+		);
+		List<Tuple> tuples = new ArrayList<>();
+		for(int i = 0; i < 30; i++) {
+			tuples.add(new Tuple(2, i % 3, i));
+		}
+
+		List<Block> blocks = loadBlocks(tuples, 10, 10, 10);
+		BlockSorter.INSTANCE.sort(blocks, columns, 0);
+		List<Tuple> sorted = collectAndClose(blocks, 10, 10, 10);
+
+		for(int i = 1; i < sorted.size(); i++) {
+			Tuple previous = sorted.get(i - 1);
+			Tuple current = sorted.get(i);
+			if(previous.get(0).equals(current.get(0))) {
+				assertTrue((int) previous.get(1) < (int) current.get(1));
+			} else {
+				assertTrue((int) previous.get(0) < (int) current.get(0));
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class BPlusTreeBulkLoaderTests {
+    private static List<AbstractBPlusTree.Entry> createEntries(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new AbstractBPlusTree.Entry(2 * i, new ValueReference(i)))
+            .toList();
+    }
+
+    @Test
+    public void testLoadedTreesAreValid() {
+        for (int order : new int[]{3, 4, 5, 8}) {
+            for (double fillFactor : new double[]{1.0, 0.75, 0.1}) {
+                for (int count = 0; count < 150; count++) {
+                    List<AbstractBPlusTree.Entry> entries = createEntries(count);
+                    BPlusTreeNode<?> root = new BPlusTreeBulkLoader(order, fillFactor).load(entries.iterator());
+
+                    // the constructor checks the validity of the tree
+                    AbstractBPlusTree tree = new ReadOnlyBPlusTree(root);
+                    Assertions.assertIterableEquals(entries, tree.getEntries().toList());
+                    for (AbstractBPlusTree.Entry entry : entries) {
+                        Assertions.assertEquals(entry.getValue(), tree.getOrNull(entry.getKey()));
+                        Assertions.assertNull(tree.getOrNull(entry.getKey() + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFullyPackedLeaves() {
+        BPlusTreeNode<?> root = new BPlusTreeBulkLoader(4, 1.0).load(createEntries(27).iterator());
+        List<BPlusTreeNode<?>> leaves = root.getDepthFirstNodeStream()
+            .filter(node -> node instanceof LeafNode)
+            .toList();
+        Assertions.assertEquals(9, leaves.size());
+        Assertions.assertTrue(leaves.stream().allMatch(BPlusTreeNode::isFull));
+        Assertions.assertEquals(2, root.getHeight());
+    }
+
+    @Test
+    public void testUnsortedEntriesAreRejected() {
+        List<AbstractBPlusTree.Entry> entries = List.of(
+            new AbstractBPlusTree.Entry(1, new ValueReference(0)),
+            new AbstractBPlusTree.Entry(1, new ValueReference(1))
+        );
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new BPlusTreeBulkLoader(4, 1.0).load(entries.iterator()));
+    }
+}
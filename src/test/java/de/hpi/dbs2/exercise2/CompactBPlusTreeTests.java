@@ -0,0 +1,116 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+public class CompactBPlusTreeTests {
+    private void assertSameEntries(TreeMap<Integer, ValueReference> expected, CompactBPlusTree tree) {
+        Assertions.assertEquals(expected.size(), tree.size());
+        Assertions.assertIterableEquals(
+            expected.entrySet().stream()
+                .map(entry -> new AbstractBPlusTree.Entry(entry.getKey(), entry.getValue()))
+                .toList(),
+            tree.getEntries().toList()
+        );
+    }
+
+    @Test
+    public void testInsertRandomKeys() {
+        for (int order : new int[]{3, 4, 5, 256}) {
+            CompactBPlusTree tree = new CompactBPlusTree(order);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            Random random = new Random(order);
+
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(1500);
+                ValueReference value = new ValueReference(i);
+                Assertions.assertEquals(expected.put(key, value), tree.insert(key, value));
+            }
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            assertSameEntries(expected, tree);
+
+            for (int key = -1; key <= 1500; key++) {
+                Assertions.assertEquals(expected.get(key), tree.getOrNull(key));
+            }
+        }
+    }
+
+    @Test
+    public void testInsertAscendingAndDescendingKeys() {
+        List<Integer> keys = new ArrayList<>(IntStream.range(0, 500).boxed().toList());
+        for (int direction = 0; direction < 2; direction++) {
+            CompactBPlusTree tree = new CompactBPlusTree(4);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            for (int key : keys) {
+                tree.insert(key, new ValueReference(key));
+                expected.put(key, new ValueReference(key));
+                Assertions.assertTrue(tree.isValid());
+            }
+            assertSameEntries(expected, tree);
+            Collections.reverse(keys);
+        }
+    }
+
+    @Test
+    public void testRemoveRandomKeys() {
+        for (int order : new int[]{3, 4, 5, 16}) {
+            CompactBPlusTree tree = new CompactBPlusTree(order);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            Random random = new Random(order);
+            for (int i = 0; i < 3000; i++) {
+                int key = random.nextInt(500);
+                if (random.nextInt(3) == 0) {
+                    Assertions.assertEquals(expected.remove(key), tree.remove(key));
+                } else {
+                    ValueReference value = new ValueReference(i);
+                    Assertions.assertEquals(expected.put(key, value), tree.insert(key, value));
+                }
+                Assertions.assertTrue(tree.isValid(), "order " + order);
+            }
+            assertSameEntries(expected, tree);
+
+            for (int key = 0; key < 500; key++) {
+                Assertions.assertEquals(expected.remove(key), tree.remove(key));
+                Assertions.assertTrue(tree.isValid(), "order " + order);
+            }
+            Assertions.assertEquals(0, tree.getHeight());
+            assertSameEntries(expected, tree);
+        }
+    }
+
+    @Test
+    public void testGetRange() {
+        CompactBPlusTree tree = new CompactBPlusTree(4);
+        TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+        for (int key = 0; key < 300; key += 3) {
+            tree.insert(key, new ValueReference(key));
+            expected.put(key, new ValueReference(key));
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            int lowerBound = random.nextInt(320) - 10;
+            int upperBound = lowerBound + random.nextInt(50);
+            List<ValueReference> range = new ArrayList<>();
+            tree.getRange(lowerBound, upperBound).forEachRemaining(range::add);
+            Assertions.assertEquals(new ArrayList<>(expected.subMap(lowerBound, true, upperBound, true).values()), range);
+        }
+        Assertions.assertFalse(tree.getRange(5, 4).hasNext());
+    }
+
+    @Test
+    public void testGetMissingKey() {
+        CompactBPlusTree tree = new CompactBPlusTree(4);
+        Assertions.assertNull(tree.getOrNull(1));
+        tree.insert(1, new ValueReference(1));
+        Assertions.assertEquals(new ValueReference(1), tree.get(1));
+        Assertions.assertThrows(NoSuchElementException.class, () -> tree.get(2));
+    }
+}
@@ -0,0 +1,193 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+public class ConcurrentBPlusTreeTests {
+    @Test
+    public void testSingleThreadedInsertAndRange() {
+        for (int order : new int[]{4, 5, 6, 64}) {
+            ConcurrentBPlusTree tree = new ConcurrentBPlusTree(order);
+            List<Integer> keys = new ArrayList<>(IntStream.range(0, 1000).boxed().toList());
+            Collections.shuffle(keys, new Random(order));
+            for (int key : keys) {
+                Assertions.assertNull(tree.insert(key, new ValueReference(key)));
+            }
+            Assertions.assertEquals(new ValueReference(7), tree.insert(7, new ValueReference(-7)));
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            Assertions.assertEquals(1000, tree.size());
+            Assertions.assertEquals(1000, tree.getEntries().count());
+
+            Assertions.assertEquals(new ValueReference(-7), tree.get(7));
+            Assertions.assertNull(tree.getOrNull(1000));
+            List<ValueReference> range = new ArrayList<>();
+            tree.getRange(100, 104).forEachRemaining(range::add);
+            Assertions.assertEquals(
+                IntStream.rangeClosed(100, 104).mapToObj(ValueReference::new).toList(), range);
+            Assertions.assertFalse(tree.getRange(5, 4).hasNext());
+        }
+    }
+
+    @Test
+    public void testSingleThreadedRemove() {
+        for (int order : new int[]{4, 5, 6, 64}) {
+            ConcurrentBPlusTree tree = new ConcurrentBPlusTree(order);
+            IntStream.range(0, 1000).forEach(key -> tree.insert(key, new ValueReference(key)));
+            for (int key = 0; key < 1000; key += 3) {
+                Assertions.assertEquals(new ValueReference(key), tree.remove(key));
+            }
+            Assertions.assertNull(tree.remove(0));
+            Assertions.assertNull(tree.remove(1000));
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            Assertions.assertEquals(666, tree.size());
+            Assertions.assertIterableEquals(
+                IntStream.range(0, 1000).filter(key -> key % 3 != 0)
+                    .mapToObj(key -> new AbstractBPlusTree.Entry(key, new ValueReference(key)))
+                    .toList(),
+                tree.getEntries().toList()
+            );
+
+            // emptied leaves stay in the tree and are filled again by later inserts
+            for (int key = 0; key < 1000; key++) {
+                tree.remove(key);
+            }
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            Assertions.assertEquals(0, tree.size());
+            Assertions.assertFalse(tree.getRange(0, 1000).hasNext());
+            Assertions.assertNull(tree.insert(500, new ValueReference(500)));
+            Assertions.assertEquals(new ValueReference(500), tree.get(500));
+        }
+    }
+
+    @Test
+    public void testConcurrentRemove() throws Exception {
+        ConcurrentBPlusTree tree = new ConcurrentBPlusTree(8);
+        int writers = 4;
+        int keyCount = 20000;
+        IntStream.range(0, keyCount).forEach(key -> tree.insert(key, new ValueReference(key)));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        try {
+            List<Future<?>> writerFutures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int firstKey = writer;
+                writerFutures.add(executor.submit(() -> {
+                    // every writer removes the odd keys of its share and inserts new ones behind all keys
+                    for (int key = firstKey; key < keyCount; key += writers) {
+                        if (key % 2 == 1) {
+                            Assertions.assertEquals(new ValueReference(key), tree.remove(key));
+                            Assertions.assertNull(tree.getOrNull(key));
+                        } else {
+                            tree.insert(keyCount + key, new ValueReference(keyCount + key));
+                        }
+                    }
+                }));
+            }
+            List<Future<?>> readerFutures = new ArrayList<>();
+            for (int reader = 0; reader < 2; reader++) {
+                readerFutures.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        // the even keys are never removed, so every scan has to return all of them
+                        int evenKeys = 0;
+                        int previousValue = Integer.MIN_VALUE;
+                        for (Iterator<ValueReference> iterator = tree.getRange(0, keyCount - 1); iterator.hasNext(); ) {
+                            int value = iterator.next().getDummyValue();
+                            Assertions.assertTrue(previousValue < value);
+                            previousValue = value;
+                            if (value % 2 == 0) evenKeys++;
+                        }
+                        Assertions.assertEquals(keyCount / 2, evenKeys);
+                    }
+                }));
+            }
+            for (Future<?> future : writerFutures) {
+                future.get();
+            }
+            writing.set(false);
+            for (Future<?> future : readerFutures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertTrue(tree.isValid());
+        Assertions.assertEquals(keyCount, tree.size());
+        Assertions.assertIterableEquals(
+            IntStream.range(0, 2 * keyCount).filter(key -> key % 2 == 0)
+                .mapToObj(key -> new AbstractBPlusTree.Entry(key, new ValueReference(key)))
+                .toList(),
+            tree.getEntries().toList()
+        );
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception {
+        ConcurrentBPlusTree tree = new ConcurrentBPlusTree(8);
+        int writers = 4;
+        int keysPerWriter = 5000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        try {
+            List<Future<?>> writerFutures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int firstKey = writer;
+                writerFutures.add(executor.submit(() -> {
+                    List<Integer> keys = new ArrayList<>();
+                    for (int i = 0; i < keysPerWriter; i++) {
+                        keys.add(firstKey + i * writers);
+                    }
+                    Collections.shuffle(keys, new Random(firstKey));
+                    for (int key : keys) {
+                        tree.insert(key, new ValueReference(key));
+                        // a key is visible to the writer as soon as it has been inserted
+                        Assertions.assertEquals(new ValueReference(key), tree.getOrNull(key));
+                    }
+                }));
+            }
+            List<Future<?>> readerFutures = new ArrayList<>();
+            for (int reader = 0; reader < 2; reader++) {
+                readerFutures.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        // range scans return sorted keys with matching values while leaves are split
+                        int previousValue = Integer.MIN_VALUE;
+                        for (Iterator<ValueReference> iterator = tree.getRange(0, Integer.MAX_VALUE); iterator.hasNext(); ) {
+                            int value = iterator.next().getDummyValue();
+                            Assertions.assertTrue(previousValue < value);
+                            previousValue = value;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : writerFutures) {
+                future.get();
+            }
+            writing.set(false);
+            for (Future<?> future : readerFutures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertTrue(tree.isValid());
+        Assertions.assertEquals(writers * keysPerWriter, tree.size());
+        Assertions.assertIterableEquals(
+            IntStream.range(0, writers * keysPerWriter)
+                .mapToObj(key -> new AbstractBPlusTree.Entry(key, new ValueReference(key)))
+                .toList(),
+            tree.getEntries().toList()
+        );
+    }
+}
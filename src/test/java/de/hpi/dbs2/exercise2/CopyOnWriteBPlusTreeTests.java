@@ -0,0 +1,155 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+public class CopyOnWriteBPlusTreeTests {
+    private static List<AbstractBPlusTree.Entry> toEntries(TreeMap<Integer, ValueReference> map) {
+        return map.entrySet().stream()
+            .map(entry -> new AbstractBPlusTree.Entry(entry.getKey(), entry.getValue()))
+            .toList();
+    }
+
+    @Test
+    public void testInsertRandomKeys() {
+        for (int order : new int[]{3, 4, 5, 64}) {
+            CopyOnWriteBPlusTree tree = new CopyOnWriteBPlusTree(order);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            Random random = new Random(order);
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(1500);
+                ValueReference value = new ValueReference(i);
+                Assertions.assertEquals(expected.put(key, value), tree.insert(key, value));
+            }
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            Assertions.assertEquals(expected.size(), tree.size());
+            Assertions.assertIterableEquals(toEntries(expected), tree.getEntries().toList());
+
+            for (int key = -1; key <= 1500; key++) {
+                Assertions.assertEquals(expected.get(key), tree.getOrNull(key));
+            }
+            List<ValueReference> range = new ArrayList<>();
+            tree.getRange(100, 200).forEachRemaining(range::add);
+            Assertions.assertEquals(new ArrayList<>(expected.subMap(100, true, 200, true).values()), range);
+            Assertions.assertFalse(tree.getRange(5, 4).hasNext());
+        }
+    }
+
+    @Test
+    public void testSnapshotsAreNotAffectedByLaterInserts() {
+        CopyOnWriteBPlusTree tree = new CopyOnWriteBPlusTree(4);
+        TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+        List<CopyOnWriteBPlusTree.Snapshot> snapshots = new ArrayList<>();
+        List<List<AbstractBPlusTree.Entry>> expectedSnapshotEntries = new ArrayList<>();
+
+        List<Integer> keys = new ArrayList<>(IntStream.range(0, 200).boxed().toList());
+        Collections.shuffle(keys, new Random(1));
+        for (int key : keys) {
+            tree.insert(key, new ValueReference(key));
+            expected.put(key, new ValueReference(key));
+            if (key % 20 == 0) {
+                snapshots.add(tree.snapshot());
+                expectedSnapshotEntries.add(toEntries(expected));
+            }
+        }
+        // overwriting values must not change the snapshots either
+        tree.insert(keys.get(0), new ValueReference(-1));
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            CopyOnWriteBPlusTree.Snapshot snapshot = snapshots.get(i);
+            Assertions.assertTrue(snapshot.isValid());
+            Assertions.assertEquals(expectedSnapshotEntries.get(i).size(), snapshot.size());
+            Assertions.assertIterableEquals(expectedSnapshotEntries.get(i), snapshot.getEntries().toList());
+        }
+        Assertions.assertThrows(UnsupportedOperationException.class,
+            () -> snapshots.get(0).insert(1000, new ValueReference(1000)));
+    }
+
+    @Test
+    public void testRemoveRandomKeys() {
+        for (int order : new int[]{3, 4, 5, 64}) {
+            CopyOnWriteBPlusTree tree = new CopyOnWriteBPlusTree(order);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            Random random = new Random(order);
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(1000);
+                ValueReference value = new ValueReference(i);
+                Assertions.assertEquals(expected.put(key, value), tree.insert(key, value));
+            }
+            CopyOnWriteBPlusTree.Snapshot fullSnapshot = tree.snapshot();
+            List<AbstractBPlusTree.Entry> fullEntries = toEntries(expected);
+
+            for (int i = 0; i < 2000; i++) {
+                int key = random.nextInt(1000);
+                Assertions.assertEquals(expected.remove(key), tree.remove(key), "order " + order + ", key " + key);
+                if (i % 100 == 0) {
+                    Assertions.assertTrue(tree.isValid(), "order " + order + " after " + i + " removals");
+                }
+            }
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            Assertions.assertEquals(expected.size(), tree.size());
+            Assertions.assertIterableEquals(toEntries(expected), tree.getEntries().toList());
+
+            for (int key : new ArrayList<>(expected.keySet())) {
+                Assertions.assertEquals(expected.remove(key), tree.remove(key));
+            }
+            Assertions.assertTrue(tree.isValid());
+            Assertions.assertEquals(0, tree.size());
+            Assertions.assertEquals(0, tree.getHeight());
+
+            // removing copies the changed nodes as well
+            Assertions.assertTrue(fullSnapshot.isValid());
+            Assertions.assertIterableEquals(fullEntries, fullSnapshot.getEntries().toList());
+        }
+    }
+
+    @Test
+    public void testReadersSeeConsistentSnapshotsWhileWriting() throws Exception {
+        CopyOnWriteBPlusTree tree = new CopyOnWriteBPlusTree(8);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                List<Integer> keys = new ArrayList<>(IntStream.range(0, 20_000).boxed().toList());
+                Collections.shuffle(keys, new Random(2));
+                for (int key : keys) {
+                    tree.insert(key, new ValueReference(key));
+                }
+                writing.set(false);
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int reader = 0; reader < 2; reader++) {
+                readers.add(executor.submit(() -> {
+                    do {
+                        CopyOnWriteBPlusTree.Snapshot snapshot = tree.snapshot();
+                        List<AbstractBPlusTree.Entry> entries = snapshot.getEntries().toList();
+                        // a scan over a snapshot sees exactly the entries which existed when it was taken
+                        Assertions.assertEquals(snapshot.size(), entries.size());
+                        for (int i = 1; i < entries.size(); i++) {
+                            Assertions.assertTrue(entries.get(i - 1).getKey() < entries.get(i).getKey());
+                        }
+                    } while (writing.get());
+                }));
+            }
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            Assertions.assertEquals(20_000, tree.size());
+            Assertions.assertTrue(tree.isValid());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
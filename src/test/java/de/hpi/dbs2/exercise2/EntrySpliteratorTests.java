@@ -0,0 +1,90 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+
+public class EntrySpliteratorTests {
+    private static List<AbstractBPlusTree.Entry> createEntries(int entryCount) {
+        return IntStream.range(0, entryCount)
+            .mapToObj(i -> new AbstractBPlusTree.Entry(2 * i, new ValueReference(i)))
+            .toList();
+    }
+
+    private static AbstractBPlusTree createTree(int order, List<AbstractBPlusTree.Entry> entries) {
+        return entries.isEmpty()
+            ? new ReadOnlyBPlusTree(order)
+            : new ReadOnlyBPlusTree(new BPlusTreeBulkLoader(order, 1.0).load(entries.iterator()));
+    }
+
+    /**
+     * Splits the spliterator until its parts can not be split anymore and collects their entries in order.
+     * @return the number of parts
+     */
+    private static int splitRecursively(Spliterator<AbstractBPlusTree.Entry> spliterator, List<AbstractBPlusTree.Entry> entries) {
+        long size = spliterator.getExactSizeIfKnown();
+        Spliterator<AbstractBPlusTree.Entry> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            spliterator.forEachRemaining(entries::add);
+            return 1;
+        }
+        Assertions.assertEquals(size, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+        return splitRecursively(prefix, entries) + splitRecursively(spliterator, entries);
+    }
+
+    @Test
+    public void testSplitsCoverAllEntriesInOrder() {
+        for (int order : new int[]{3, 4, 8}) {
+            for (int entryCount : new int[]{0, 1, 5, 1000}) {
+                List<AbstractBPlusTree.Entry> expected = createEntries(entryCount);
+                AbstractBPlusTree tree = createTree(order, expected);
+
+                Spliterator<AbstractBPlusTree.Entry> spliterator = tree.getEntries().spliterator();
+                Assertions.assertTrue(spliterator.hasCharacteristics(
+                    Spliterator.ORDERED | Spliterator.SORTED | Spliterator.SIZED | Spliterator.SUBSIZED));
+                Assertions.assertEquals(entryCount, spliterator.getExactSizeIfKnown());
+
+                List<AbstractBPlusTree.Entry> entries = new ArrayList<>();
+                int parts = splitRecursively(spliterator, entries);
+                Assertions.assertIterableEquals(expected, entries);
+                // every leaf can become a part of its own
+                Assertions.assertEquals(Math.max(1, tree.getRootNode().getDepthFirstNodeStream()
+                    .filter(node -> node instanceof LeafNode).count()), parts);
+            }
+        }
+    }
+
+    @Test
+    public void testSplitAfterPartialTraversal() {
+        List<AbstractBPlusTree.Entry> expected = createEntries(100);
+        Spliterator<AbstractBPlusTree.Entry> spliterator = createTree(4, expected).getEntries().spliterator();
+        List<AbstractBPlusTree.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(spliterator.tryAdvance(entries::add));
+        }
+        Assertions.assertEquals(95, spliterator.getExactSizeIfKnown());
+
+        // the partially visited leaf stays in the prefix
+        Spliterator<AbstractBPlusTree.Entry> prefix = spliterator.trySplit();
+        Assertions.assertNotNull(prefix);
+        Assertions.assertEquals(95, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+        prefix.forEachRemaining(entries::add);
+        spliterator.forEachRemaining(entries::add);
+        Assertions.assertIterableEquals(expected, entries);
+    }
+
+    @Test
+    public void testParallelStreamsMatchSequentialStreams() {
+        AbstractBPlusTree tree = createTree(16, createEntries(100_000));
+        Assertions.assertEquals(tree.getEntries().toList(), tree.getEntries().parallel().toList());
+        Assertions.assertEquals(
+            tree.getEntries().mapToLong(AbstractBPlusTree.Entry::getKey).sum(),
+            tree.getEntries().parallel().mapToLong(AbstractBPlusTree.Entry::getKey).sum()
+        );
+        Assertions.assertEquals(100_000, tree.getEntries().parallel().count());
+    }
+}
@@ -0,0 +1,98 @@
+package de.hpi.dbs2.exercise2;
+
+import de.hpi.dbs2.dbms.DBMS;
+import de.hpi.dbs2.dbms.utils.IOCostTracker;
+import kotlin.Unit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ExtendibleHashIndexTests {
+    @Test
+    public void testRandomOperations() {
+        for (int blockCapacity : new int[]{1, 2, 4, 32}) {
+            DBMS dbms = new DBMS(4, blockCapacity);
+            ExtendibleHashIndex index = new ExtendibleHashIndex(dbms.getBlockManager());
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            Random random = new Random(blockCapacity);
+            String message = "block capacity " + blockCapacity;
+
+            for (int i = 0; i < 5000; i++) {
+                int key = random.nextInt(1000) - 500;
+                if (random.nextInt(3) == 0) {
+                    Assertions.assertEquals(expected.remove(key), index.remove(key), message);
+                } else {
+                    ValueReference value = new ValueReference(i);
+                    Assertions.assertEquals(expected.put(key, value), index.insert(key, value), message);
+                }
+            }
+            Assertions.assertEquals(expected.size(), index.size(), message);
+            for (int key = -600; key < 600; key++) {
+                Assertions.assertEquals(expected.get(key), index.getOrNull(key), message);
+            }
+            List<ValueReference> range = new ArrayList<>();
+            index.getRange(-100, 100).forEachRemaining(range::add);
+            Assertions.assertEquals(new ArrayList<>(expected.subMap(-100, true, 100, true).values()), range, message);
+            Assertions.assertFalse(index.getRange(5, 4).hasNext());
+            Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks(), message);
+        }
+    }
+
+    @Test
+    public void testLookupsReadOneBlock() {
+        DBMS dbms = new DBMS(4, 8);
+        ExtendibleHashIndex index = new ExtendibleHashIndex(dbms.getBlockManager());
+        for (int key = 0; key < 1000; key++) {
+            index.insert(key, new ValueReference(key));
+        }
+        Assertions.assertTrue(index.getBucketCount() >= 1000 / 8);
+        Assertions.assertTrue((1 << index.getGlobalDepth()) >= index.getBucketCount());
+
+        for (int key = -10; key < 1010; key++) {
+            int searchKey = key;
+            IOCostTracker cost = dbms.trackIOCost(tracker -> {
+                index.getOrNull(searchKey);
+                return Unit.INSTANCE;
+            });
+            Assertions.assertEquals(1, cost.getInputCost());
+            Assertions.assertEquals(0, cost.getOutputCost());
+        }
+
+        // an insert without split reads and writes its bucket once
+        index.remove(500);
+        IOCostTracker insertCost = dbms.trackIOCost(tracker -> {
+            index.insert(500, new ValueReference(500));
+            return Unit.INSTANCE;
+        });
+        Assertions.assertEquals(1, insertCost.getInputCost());
+        Assertions.assertEquals(1, insertCost.getOutputCost());
+    }
+
+    @Test
+    public void testRemovalsMergeBucketsAndShrinkDirectory() {
+        DBMS dbms = new DBMS(4, 4);
+        ExtendibleHashIndex index = new ExtendibleHashIndex(dbms.getBlockManager());
+        for (int key = 0; key < 1000; key++) {
+            index.insert(key, new ValueReference(key));
+        }
+        int globalDepth = index.getGlobalDepth();
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertEquals(new ValueReference(key), index.remove(key));
+        }
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertTrue(index.getGlobalDepth() < globalDepth);
+        Assertions.assertTrue(index.getBucketCount() < 1000 / 4);
+
+        // freed buckets are reused
+        for (int key = 0; key < 1000; key++) {
+            index.insert(key, new ValueReference(key));
+        }
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertEquals(new ValueReference(key), index.get(key));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class FrozenBPlusTreeTests {
+    @Test
+    public void testLookupsMatchSortedEntries() {
+        // empty, a single leaf, exactly full levels and partially filled last nodes
+        for (int entryCount : new int[]{0, 1, 16, 17, 16 * 17, 16 * 17 + 1, 5000}) {
+            Random random = new Random(entryCount);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            while (expected.size() < entryCount) {
+                expected.put(random.nextInt(4 * entryCount) - entryCount, new ValueReference(expected.size()));
+            }
+            if (entryCount > 1) {
+                expected.put(Integer.MIN_VALUE, new ValueReference(-1));
+                expected.put(Integer.MAX_VALUE, new ValueReference(-2));
+            }
+
+            FrozenBPlusTree tree = new FrozenBPlusTree(expected.entrySet().stream()
+                .map(entry -> new AbstractBPlusTree.Entry(entry.getKey(), entry.getValue()))
+                .iterator());
+            Assertions.assertEquals(expected.size(), tree.size());
+            for (int key = -entryCount - 1; key <= 3 * entryCount + 1; key++) {
+                Assertions.assertEquals(expected.get(key), tree.getOrNull(key), "key " + key);
+            }
+            Assertions.assertEquals(expected.get(Integer.MIN_VALUE), tree.getOrNull(Integer.MIN_VALUE));
+            Assertions.assertEquals(expected.get(Integer.MAX_VALUE), tree.getOrNull(Integer.MAX_VALUE));
+
+            List<ValueReference> range = new ArrayList<>();
+            tree.getRange(-10, entryCount).forEachRemaining(range::add);
+            Assertions.assertEquals(new ArrayList<>(expected.subMap(-10, true, entryCount, true).values()), range);
+            Assertions.assertFalse(tree.getRange(5, 4).hasNext());
+        }
+    }
+
+    @Test
+    public void testFreezeCopiesTree() {
+        FrozenBPlusTree frozenTree = TestFixtures.exampleTree.freeze();
+        Assertions.assertIterableEquals(TestFixtures.exampleTree.getEntries().toList(), frozenTree.getEntries().toList());
+        Assertions.assertEquals(TestFixtures.exampleTree.getOrNull(17), frozenTree.get(17));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozenTree.insert(1, new ValueReference(1)));
+    }
+
+    @Test
+    public void testRejectsUnsortedEntries() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FrozenBPlusTree(List.of(
+            new AbstractBPlusTree.Entry(2, new ValueReference(2)),
+            new AbstractBPlusTree.Entry(1, new ValueReference(1))
+        ).iterator()));
+    }
+}
@@ -0,0 +1,156 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class GenericBPlusTreeTests {
+    private static <K extends Comparable<K>, V> void assertSameEntries(TreeMap<K, V> expected, GenericBPlusTree<K, V> tree) {
+        Assertions.assertEquals(expected.size(), tree.size());
+        Assertions.assertIterableEquals(
+            expected.entrySet().stream()
+                .map(entry -> new IndexEntry<>(entry.getKey(), entry.getValue()))
+                .toList(),
+            tree.getEntries().toList()
+        );
+    }
+
+    @Test
+    public void testLongKeysWithComparator() {
+        for (int order : new int[]{3, 4, 5, 64}) {
+            GenericBPlusTree<Long, Integer> tree = new GenericBPlusTree<>(order, Comparator.<Long>reverseOrder());
+            TreeMap<Long, Integer> expected = new TreeMap<>(Comparator.reverseOrder());
+            Random random = new Random(order);
+            for (int i = 0; i < 2000; i++) {
+                long key = random.nextInt(1500) * 1_000_000_000L;
+                Assertions.assertEquals(expected.put(key, i), tree.insert(key, i));
+            }
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            assertSameEntries(expected, tree);
+
+            // the range bounds follow the order of the comparator
+            List<Integer> range = new ArrayList<>();
+            tree.getRange(900_000_000_000L, 100_000_000_000L).forEachRemaining(range::add);
+            Assertions.assertEquals(
+                new ArrayList<>(expected.subMap(900_000_000_000L, true, 100_000_000_000L, true).values()), range);
+            Assertions.assertFalse(tree.getRange(0L, 1L).hasNext());
+        }
+    }
+
+    @Test
+    public void testCompressedStringKeys() {
+        // IMDB-like identifiers share long prefixes
+        List<String> keys = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            keys.add(String.format("tt%07d", random.nextInt(200_000)));
+        }
+
+        // about 6 uncompressed keys of size 10 fit into a page of size 64
+        GenericBPlusTree<String, Integer> compressedTree = GenericBPlusTree.forStrings(64);
+        GenericBPlusTree<String, Integer> uncompressedTree = new GenericBPlusTree<>(7, Comparator.<String>naturalOrder());
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Assertions.assertEquals(expected.get(keys.get(i)), compressedTree.insert(keys.get(i), i));
+            uncompressedTree.insert(keys.get(i), i);
+            expected.put(keys.get(i), i);
+        }
+
+        Assertions.assertTrue(compressedTree.isValid());
+        Assertions.assertTrue(uncompressedTree.isValid());
+        assertSameEntries(expected, compressedTree);
+        assertSameEntries(expected, uncompressedTree);
+        Assertions.assertTrue(compressedTree.getHeight() < uncompressedTree.getHeight(),
+            compressedTree.getHeight() + " >= " + uncompressedTree.getHeight());
+
+        for (String key : List.of("tt0000000", "tt0100000", "tt9999999", "a", "tt", "tt01", "zz")) {
+            Assertions.assertEquals(expected.get(key), compressedTree.getOrNull(key), key);
+        }
+        for (String key : keys) {
+            Assertions.assertEquals(expected.get(key), compressedTree.get(key));
+        }
+        List<Integer> range = new ArrayList<>();
+        compressedTree.getRange("tt005", "tt0060000").forEachRemaining(range::add);
+        Assertions.assertEquals(new ArrayList<>(expected.subMap("tt005", true, "tt0060000", true).values()), range);
+    }
+
+    @Test
+    public void testCompressedKeysWithoutCommonPrefix() {
+        // keys take up to 9 units, a quarter of the page size
+        GenericBPlusTree<String, Integer> tree = GenericBPlusTree.forStrings(36);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            // keys of varying length, some of them being prefixes of others
+            String key = Integer.toString(random.nextInt(5000), 3);
+            Assertions.assertEquals(expected.put(key, i), tree.insert(key, i));
+        }
+        Assertions.assertTrue(tree.isValid());
+        assertSameEntries(expected, tree);
+    }
+
+    @Test
+    public void testRemoveWithoutCompression() {
+        for (int order : new int[]{3, 4, 5, 64}) {
+            GenericBPlusTree<Long, Integer> tree = new GenericBPlusTree<>(order, Comparator.<Long>naturalOrder());
+            TreeMap<Long, Integer> expected = new TreeMap<>();
+            Random random = new Random(order);
+            for (int i = 0; i < 2000; i++) {
+                long key = random.nextInt(1000);
+                Assertions.assertEquals(expected.put(key, i), tree.insert(key, i));
+            }
+            for (int i = 0; i < 2000; i++) {
+                long key = random.nextInt(1000);
+                Assertions.assertEquals(expected.remove(key), tree.remove(key), "order " + order + ", key " + key);
+                if (i % 100 == 0) {
+                    Assertions.assertTrue(tree.isValid(), "order " + order + " after " + i + " removals");
+                }
+            }
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            assertSameEntries(expected, tree);
+
+            for (long key : new ArrayList<>(expected.keySet())) {
+                Assertions.assertEquals(expected.remove(key), tree.remove(key));
+            }
+            Assertions.assertTrue(tree.isValid());
+            Assertions.assertEquals(0, tree.getHeight());
+            assertSameEntries(expected, tree);
+        }
+    }
+
+    @Test
+    public void testRemoveCompressedKeys() {
+        GenericBPlusTree<String, Integer> tree = GenericBPlusTree.forStrings(36);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 3000; i++) {
+            String key = Integer.toString(random.nextInt(2000), 3);
+            Assertions.assertEquals(expected.put(key, i), tree.insert(key, i));
+        }
+        int height = tree.getHeight();
+        for (int i = 0; i < 2000; i++) {
+            String key = Integer.toString(random.nextInt(2000), 3);
+            Assertions.assertEquals(expected.remove(key), tree.remove(key), key);
+            if (i % 100 == 0) {
+                Assertions.assertTrue(tree.isValid(), "after " + i + " removals");
+            }
+        }
+        Assertions.assertTrue(tree.isValid());
+        assertSameEntries(expected, tree);
+        Assertions.assertTrue(tree.getHeight() <= height);
+        for (String key : expected.keySet()) {
+            Assertions.assertEquals(expected.get(key), tree.get(key));
+        }
+    }
+
+    @Test
+    public void testRejectsTooLargeKeys() {
+        GenericBPlusTree<String, Integer> tree = GenericBPlusTree.forStrings(16);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.insert("a long key", 1));
+    }
+}
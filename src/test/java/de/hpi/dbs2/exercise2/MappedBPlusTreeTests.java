@@ -0,0 +1,110 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+public class MappedBPlusTreeTests {
+    @TempDir
+    Path directory;
+
+    private static List<AbstractBPlusTree.Entry> createEntries(int entryCount) {
+        return IntStream.range(0, entryCount)
+            .mapToObj(i -> new AbstractBPlusTree.Entry(3 * i, new ValueReference(i)))
+            .toList();
+    }
+
+    private static <V> List<V> toList(Iterator<V> iterator) {
+        List<V> values = new ArrayList<>();
+        iterator.forEachRemaining(values::add);
+        return values;
+    }
+
+    @Test
+    public void testMappedTreeServesSavedTree() throws IOException {
+        for (int order : new int[]{3, 4, 16}) {
+            for (int entryCount : new int[]{0, 2, 1000}) {
+                List<AbstractBPlusTree.Entry> entries = createEntries(entryCount);
+                AbstractBPlusTree tree = entries.isEmpty()
+                    ? new ReadOnlyBPlusTree(order)
+                    : new ReadOnlyBPlusTree(new BPlusTreeBulkLoader(order, 0.7).load(entries.iterator()));
+                Path file = directory.resolve("tree" + order + "_" + entryCount);
+                tree.save(file);
+
+                MappedBPlusTree mappedTree = MappedBPlusTree.open(file);
+                String message = "order " + order + ", " + entryCount + " entries";
+                Assertions.assertEquals(entryCount, mappedTree.size(), message);
+                Assertions.assertEquals(tree.getHeight(), mappedTree.getHeight(), message);
+                Assertions.assertEquals(entries, mappedTree.getEntries().toList(), message);
+                for (int key = -1; key <= 3 * entryCount; key++) {
+                    Assertions.assertEquals(tree.getOrNull(key), mappedTree.getOrNull(key), message);
+                }
+                Assertions.assertEquals(toList(tree.getRange(100, 200)), toList(mappedTree.getRange(100, 200)), message);
+                Assertions.assertEquals(toList(tree.getRange(-5, 5)), toList(mappedTree.getRange(-5, 5)), message);
+                Assertions.assertFalse(mappedTree.getRange(5, 4).hasNext());
+                Assertions.assertEquals(0, mappedTree.getMaterializedLeafCount());
+            }
+        }
+    }
+
+    @Test
+    public void testModificationsMaterializeOnlyTheirLeaves() throws IOException {
+        List<AbstractBPlusTree.Entry> entries = createEntries(1000);
+        Path file = directory.resolve("tree");
+        new ReadOnlyBPlusTree(new BPlusTreeBulkLoader(8, 1.0).load(entries.iterator())).save(file);
+        MappedBPlusTree tree = MappedBPlusTree.open(file);
+
+        TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+        entries.forEach(entry -> expected.put(entry.getKey(), entry.getValue()));
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            // keys between 1500 and 1600 overflow their leaves without splitting them
+            int key = 1500 + random.nextInt(100);
+            if (random.nextBoolean()) {
+                Assertions.assertEquals(expected.remove(key), tree.remove(key));
+            } else {
+                ValueReference value = new ValueReference(-i);
+                Assertions.assertEquals(expected.put(key, value), tree.insert(key, value));
+            }
+        }
+        Assertions.assertNull(tree.remove(1));
+        Assertions.assertEquals(expected.size(), tree.size());
+        Assertions.assertTrue(tree.getMaterializedLeafCount() <= 100 / 7 + 2, "" + tree.getMaterializedLeafCount());
+        for (int key = -1; key <= 3000; key++) {
+            Assertions.assertEquals(expected.get(key), tree.getOrNull(key));
+        }
+        Assertions.assertEquals(new ArrayList<>(expected.subMap(1400, true, 1700, true).values()),
+            toList(tree.getRange(1400, 1700)));
+
+        // saving into the mapped file rebalances the tree and keeps the old mapping usable
+        tree.save(file);
+        Assertions.assertEquals(expected.get(1503), tree.getOrNull(1503));
+        MappedBPlusTree savedTree = MappedBPlusTree.open(file);
+        Assertions.assertEquals(tree.getEntries().toList(), savedTree.getEntries().toList());
+        Assertions.assertEquals(0, savedTree.getMaterializedLeafCount());
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other");
+        Files.write(file, new byte[64]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MappedBPlusTree.open(file));
+
+        Path treeFile = directory.resolve("truncated");
+        new ReadOnlyBPlusTree(new BPlusTreeBulkLoader(4, 1.0).load(createEntries(100).iterator())).save(treeFile);
+        byte[] bytes = Files.readAllBytes(treeFile);
+        Files.write(treeFile, Arrays.copyOf(bytes, bytes.length - 4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> MappedBPlusTree.open(treeFile));
+    }
+}
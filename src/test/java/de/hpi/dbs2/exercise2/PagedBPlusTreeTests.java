@@ -0,0 +1,149 @@
+package de.hpi.dbs2.exercise2;
+
+import de.hpi.dbs2.dbms.DBMS;
+import de.hpi.dbs2.dbms.utils.IOCostTracker;
+import kotlin.Unit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+public class PagedBPlusTreeTests {
+    private TreeMap<Integer, ValueReference> insertRandomKeys(PagedBPlusTree tree, int count) {
+        TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            int key = random.nextInt(count);
+            ValueReference value = new ValueReference(i);
+            Assertions.assertEquals(expected.put(key, value), tree.insert(key, value));
+        }
+        return expected;
+    }
+
+    private IOCostTracker trackLookup(DBMS dbms, PagedBPlusTree tree, int key) {
+        return dbms.trackIOCost(tracker -> {
+            tree.getOrNull(key);
+            return Unit.INSTANCE;
+        });
+    }
+
+    @Test
+    public void testInsertAndLookupRandomKeys() {
+        for (int blockCapacity : new int[]{3, 4, 5, 32}) {
+            DBMS dbms = new DBMS(64, blockCapacity);
+            for (int residentLevels : new int[]{0, 2}) {
+                PagedBPlusTree tree = new PagedBPlusTree(dbms.getBlockManager(), residentLevels);
+                TreeMap<Integer, ValueReference> expected = insertRandomKeys(tree, 1000);
+                String message = "block capacity " + blockCapacity + ", resident levels " + residentLevels;
+
+                Assertions.assertTrue(tree.isValid(), message);
+                Assertions.assertEquals(expected.size(), tree.size());
+                Assertions.assertIterableEquals(
+                    expected.entrySet().stream()
+                        .map(entry -> new AbstractBPlusTree.Entry(entry.getKey(), entry.getValue()))
+                        .toList(),
+                    tree.getEntries().toList(),
+                    message
+                );
+                for (int key = -1; key <= 1000; key++) {
+                    Assertions.assertEquals(expected.get(key), tree.getOrNull(key));
+                }
+
+                List<ValueReference> range = new ArrayList<>();
+                tree.getRange(100, 200).forEachRemaining(range::add);
+                Assertions.assertEquals(new ArrayList<>(expected.subMap(100, true, 200, true).values()), range);
+                Assertions.assertFalse(tree.getRange(5, 4).hasNext());
+
+                tree.close();
+                Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks(), message);
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveRandomKeys() {
+        for (int blockCapacity : new int[]{3, 4, 5, 32}) {
+            DBMS dbms = new DBMS(64, blockCapacity);
+            for (int residentLevels : new int[]{0, 2}) {
+                PagedBPlusTree tree = new PagedBPlusTree(dbms.getBlockManager(), residentLevels);
+                TreeMap<Integer, ValueReference> expected = insertRandomKeys(tree, 1000);
+                int pageCount = tree.getPageCount();
+                String message = "block capacity " + blockCapacity + ", resident levels " + residentLevels;
+
+                Random random = new Random(blockCapacity);
+                for (int i = 0; i < 1000; i++) {
+                    int key = random.nextInt(1000);
+                    Assertions.assertEquals(expected.remove(key), tree.remove(key), message + ", key " + key);
+                }
+                Assertions.assertTrue(tree.isValid(), message);
+                Assertions.assertEquals(expected.size(), tree.size());
+                Assertions.assertTrue(tree.getPageCount() < pageCount, message);
+                Assertions.assertIterableEquals(
+                    expected.entrySet().stream()
+                        .map(entry -> new AbstractBPlusTree.Entry(entry.getKey(), entry.getValue()))
+                        .toList(),
+                    tree.getEntries().toList(),
+                    message
+                );
+
+                IntStream.range(0, 1000).forEach(key -> expected.put(key, new ValueReference(key)));
+                expected.forEach(tree::insert);
+                Assertions.assertTrue(tree.isValid(), message);
+                for (int key : expected.keySet()) {
+                    Assertions.assertEquals(expected.get(key), tree.remove(key));
+                }
+                Assertions.assertTrue(tree.isValid(), message);
+                Assertions.assertEquals(0, tree.getHeight());
+                Assertions.assertEquals(1, tree.getPageCount());
+
+                tree.close();
+                Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks(), message);
+            }
+        }
+    }
+
+    @Test
+    public void testLookupCostsOneInputPerLevel() {
+        DBMS dbms = new DBMS(8, 4);
+        PagedBPlusTree tree = new PagedBPlusTree(dbms.getBlockManager(), 0);
+        IntStream.range(0, 500).forEach(key -> tree.insert(key, new ValueReference(key)));
+        Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+
+        IOCostTracker cost = trackLookup(dbms, tree, 123);
+        Assertions.assertEquals(tree.getHeight() + 1, cost.getInputCost());
+        Assertions.assertEquals(0, cost.getOutputCost());
+
+        IOCostTracker insertCost = dbms.trackIOCost(tracker -> {
+            tree.insert(123, new ValueReference(-1));
+            return Unit.INSTANCE;
+        });
+        // only the leaf is written back
+        Assertions.assertEquals(tree.getHeight() + 1, insertCost.getInputCost());
+        Assertions.assertEquals(1, insertCost.getOutputCost());
+    }
+
+    @Test
+    public void testResidentLevelsAreNotReloaded() {
+        DBMS dbms = new DBMS(8, 4);
+        PagedBPlusTree tree = new PagedBPlusTree(dbms.getBlockManager(), 1);
+        IntStream.range(0, 500).forEach(key -> tree.insert(key, new ValueReference(key)));
+        Assertions.assertEquals(1, dbms.getBlockManager().getUsedBlocks());
+
+        IOCostTracker cost = trackLookup(dbms, tree, 123);
+        Assertions.assertEquals(tree.getHeight(), cost.getInputCost());
+
+        // the modified root is written back once it is evicted
+        IOCostTracker closeCost = dbms.trackIOCost(tracker -> {
+            tree.close();
+            return Unit.INSTANCE;
+        });
+        Assertions.assertEquals(1, closeCost.getOutputCost());
+        Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+        Assertions.assertEquals(tree.getHeight() + 1, trackLookup(dbms, tree, 123).getInputCost());
+        tree.close();
+    }
+}
@@ -0,0 +1,49 @@
+package de.hpi.dbs2.exercise2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class PostingListTests {
+    @Test
+    public void testAddInAnyOrder() {
+        for (int valueCount : new int[]{0, 1, PostingList.UNCOMPRESSED_LIMIT, PostingList.UNCOMPRESSED_LIMIT + 1, 1000}) {
+            Random random = new Random(valueCount);
+            PostingList postingList = new PostingList();
+            TreeSet<Integer> expected = new TreeSet<>();
+            while (expected.size() < valueCount) {
+                // large gaps need multi-byte varints
+                int value = (random.nextInt(4) == 0) ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(5000);
+                Assertions.assertEquals(expected.add(value), postingList.add(value));
+            }
+
+            Assertions.assertEquals(expected.size(), postingList.size());
+            Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), postingList.toArray());
+            List<Integer> iterated = new ArrayList<>();
+            postingList.forEach(iterated::add);
+            Assertions.assertEquals(new ArrayList<>(expected), iterated);
+            for (int value = 0; value < 5000; value++) {
+                Assertions.assertEquals(expected.contains(value), postingList.contains(value));
+            }
+            if (valueCount > 0) {
+                Assertions.assertEquals(expected.first(), postingList.first());
+            }
+        }
+    }
+
+    @Test
+    public void testDenseListsAreCompressed() {
+        PostingList postingList = new PostingList();
+        for (int value = 1_000_000; value < 1_001_000; value++) {
+            postingList.add(value);
+        }
+        // the first value takes 3 bytes, every other difference fits into a single byte
+        Assertions.assertEquals(3 + 999, postingList.getByteSize());
+        Assertions.assertEquals(1_000_999, postingList.toArray()[999]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> postingList.add(-1));
+    }
+}
@@ -3,6 +3,11 @@ package de.hpi.dbs2.exercise2;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
 public class ReadOnlyBPlusTreeTests {
     @Test
     public void testTreesAreValid() {
@@ -37,4 +42,49 @@ public class ReadOnlyBPlusTreeTests {
         Assertions.assertNull(TestFixtures.exampleTree.getOrNull(44));
         Assertions.assertNull(TestFixtures.exampleTree.getOrNull(99));
     }
+
+    private static List<ValueReference> values(int... keys) {
+        List<ValueReference> values = new ArrayList<>();
+        for (int key : keys) {
+            values.add(TestFixtures.entries.get(key).getValue());
+        }
+        return values;
+    }
+
+    private static List<ValueReference> toList(Iterator<ValueReference> iterator) {
+        List<ValueReference> values = new ArrayList<>();
+        iterator.forEachRemaining(values::add);
+        return values;
+    }
+
+    @Test
+    public void testGetRange() {
+        AbstractBPlusTree tree = TestFixtures.exampleTree;
+        Assertions.assertEquals(values(5, 7, 11, 13), toList(tree.getRange(4, 13)));
+        Assertions.assertEquals(values(29, 31), toList(tree.getRange(29, 36)));
+        Assertions.assertEquals(values(19), toList(tree.getRange(19, 19)));
+        Assertions.assertEquals(values(), toList(tree.getRange(20, 22)));
+        Assertions.assertEquals(values(), toList(tree.getRange(13, 12)));
+        Assertions.assertEquals(values(), toList(tree.getRange(48, 99)));
+    }
+
+    @Test
+    public void testGetOpenAndReverseRange() {
+        AbstractBPlusTree tree = TestFixtures.exampleTree;
+        Assertions.assertEquals(values(2, 3, 5), toList(tree.getRange(null, 6, false)));
+        Assertions.assertEquals(values(41, 43, 47), toList(tree.getRange(40, null, false)));
+        Assertions.assertEquals(values(13, 11, 7, 5), toList(tree.getRange(4, 13, true)));
+        Assertions.assertEquals(values(3, 2), toList(tree.getRange(null, 4, true)));
+        Assertions.assertEquals(values(47, 43, 41), toList(tree.getRange(40, null, true)));
+        Assertions.assertEquals(values(), toList(tree.getRange(0, 1, true)));
+
+        List<ValueReference> allValues = tree.getEntries().map(AbstractBPlusTree.Entry::getValue).toList();
+        Assertions.assertEquals(allValues, toList(tree.getRange(null, null, false)));
+        List<ValueReference> reversedValues = toList(tree.getRange(null, null, true));
+        Collections.reverse(reversedValues);
+        Assertions.assertEquals(allValues, reversedValues);
+
+        Assertions.assertFalse(new ReadOnlyBPlusTree(4).getRange(null, null, true).hasNext());
+        Assertions.assertFalse(new ReadOnlyBPlusTree(4).getRange(null, null, false).hasNext());
+    }
 }
@@ -0,0 +1,156 @@
+package de.hpi.dbs2.exercise2;
+
+import de.hpi.dbs2.dbms.ColumnDefinition;
+import de.hpi.dbs2.dbms.DBMS;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import de.hpi.dbs2.dbms.utils.IOCostTracker;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import kotlin.Unit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class SecondaryIndexTests {
+    private final ColumnDefinition columnDefinition = new ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.STRING
+    );
+
+    private static Tuple tuple(int id) {
+        return new Tuple(2, id, "tt" + id);
+    }
+
+    /**
+     * @return a relation with the ids 0 to tupleCount - 1 in random order
+     */
+    private Relation createRelation(DBMS dbms, int tupleCount) {
+        List<Integer> ids = new ArrayList<>(IntStream.range(0, tupleCount).boxed().toList());
+        Collections.shuffle(ids, new Random(1));
+        Relation relation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+        RelationUtils.fill(relation, dbms.getBlockManager(), filler -> ids.forEach(id -> filler.add(tuple(id))));
+        return relation;
+    }
+
+    @Test
+    public void testCreateIndexScansRelationOnce() {
+        DBMS dbms = new DBMS(4, 4);
+        Relation relation = createRelation(dbms, 100);
+
+        List<SecondaryIndex<Integer>> index = new ArrayList<>();
+        IOCostTracker cost = dbms.trackIOCost(tracker -> {
+            index.add(SecondaryIndex.create(dbms.getBlockManager(), relation, 0, 4));
+            return Unit.INSTANCE;
+        });
+        Assertions.assertEquals(25, cost.getInputCost());
+        Assertions.assertEquals(0, cost.getOutputCost());
+        Assertions.assertEquals(100, index.get(0).size());
+        Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+
+        // the string column can be indexed as well
+        SecondaryIndex<String> nameIndex = SecondaryIndex.create(dbms.getBlockManager(), relation, 1, 4);
+        Assertions.assertEquals(tuple(42), nameIndex.fetch(nameIndex.get("tt42")));
+    }
+
+    @Test
+    public void testLookupsOnlyLoadMatchingBlocks() {
+        DBMS dbms = new DBMS(4, 4);
+        Relation relation = createRelation(dbms, 100);
+        SecondaryIndex<Integer> index = SecondaryIndex.create(dbms.getBlockManager(), relation, 0, 4);
+
+        IOCostTracker pointCost = dbms.trackIOCost(tracker -> {
+            Assertions.assertEquals(tuple(17), index.fetch(index.get(17)));
+            Assertions.assertNull(index.getOrNull(100));
+            return Unit.INSTANCE;
+        });
+        Assertions.assertEquals(1, pointCost.getIoCost());
+
+        List<Tuple> range = new ArrayList<>();
+        IOCostTracker rangeCost = dbms.trackIOCost(tracker -> {
+            range.addAll(index.fetchRange(10, 14));
+            return Unit.INSTANCE;
+        });
+        Assertions.assertEquals(IntStream.rangeClosed(10, 14).mapToObj(SecondaryIndexTests::tuple).toList(), range);
+        long blockCount = IntStream.rangeClosed(10, 14)
+            .map(id -> index.get(id).getBlockNumber())
+            .distinct()
+            .count();
+        Assertions.assertEquals(blockCount, rangeCost.getInputCost());
+        Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+    }
+
+    @Test
+    public void testAppendedBlocksAreIndexed() {
+        DBMS dbms = new DBMS(4, 4);
+        Relation relation = createRelation(dbms, 10);
+        SecondaryIndex<Integer> index = SecondaryIndex.create(dbms.getBlockManager(), relation, 0, 4);
+
+        RelationUtils.RelationFiller filler = new RelationUtils.RelationFiller(
+            () -> dbms.getBlockManager().allocate(true),
+            index.getBlockOutput()
+        );
+        for (int id = 10; id < 20; id++) {
+            filler.add(tuple(id));
+        }
+        filler.close();
+
+        Assertions.assertEquals(6, relation.estimatedBlockCount());
+        Assertions.assertEquals(20, index.size());
+        Assertions.assertEquals(new RecordId(5, 1), index.get(19));
+        Assertions.assertEquals(IntStream.range(0, 20).mapToObj(SecondaryIndexTests::tuple).toList(),
+            index.fetchRange(0, 19));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> index.insert(20, new RecordId(0, 0)));
+    }
+
+    @Test
+    public void testRejectsDuplicateValues() {
+        DBMS dbms = new DBMS(4, 4);
+        Relation relation = createRelation(dbms, 10);
+        SecondaryIndex<Integer> index = SecondaryIndex.create(dbms.getBlockManager(), relation, 0, 4);
+
+        var block = dbms.getBlockManager().allocate(true);
+        block.append(tuple(10));
+        block.append(tuple(3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.getBlockOutput().move(block));
+        // the rejected block was neither indexed nor appended
+        Assertions.assertNull(index.getOrNull(10));
+        Assertions.assertEquals(3, relation.estimatedBlockCount());
+        block.close();
+    }
+
+    @Test
+    public void testNonUniqueIndexStoresAllRecords() {
+        DBMS dbms = new DBMS(4, 4);
+        Relation relation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+        // ids 0 to 99 with the names tt0 to tt9, each used by 10 tuples
+        RelationUtils.fill(relation, dbms.getBlockManager(),
+            filler -> IntStream.range(0, 100).forEach(id -> filler.add(new Tuple(2, id, "tt" + id % 10))));
+        SecondaryIndex<String> index = SecondaryIndex.createNonUnique(dbms.getBlockManager(), relation, 1, 4);
+        Assertions.assertEquals(100, index.size());
+        Assertions.assertEquals(10, index.keyCount());
+
+        List<RecordId> recordIds = new ArrayList<>();
+        index.getAll("tt3").forEachRemaining(recordIds::add);
+        Assertions.assertEquals(IntStream.range(0, 10).mapToObj(i -> new RecordId((10 * i + 3) / 4, (10 * i + 3) % 4)).toList(),
+            recordIds);
+        Assertions.assertFalse(index.getAll("tt10").hasNext());
+        Assertions.assertThrows(IllegalStateException.class, () -> index.getOrNull("tt3"));
+
+        // appended duplicates are added to the existing posting lists
+        RelationUtils.RelationFiller filler = new RelationUtils.RelationFiller(
+            () -> dbms.getBlockManager().allocate(true),
+            index.getBlockOutput()
+        );
+        filler.add(new Tuple(2, 100, "tt3"));
+        filler.close();
+        List<Tuple> tuples = index.fetchRange("tt3", "tt3");
+        Assertions.assertEquals(11, tuples.size());
+        Assertions.assertEquals(new Tuple(2, 100, "tt3"), tuples.get(10));
+        Assertions.assertEquals(20, index.fetchRange("tt0", "tt1").size());
+    }
+}
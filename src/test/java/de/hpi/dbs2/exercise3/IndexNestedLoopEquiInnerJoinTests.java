@@ -0,0 +1,117 @@
+package de.hpi.dbs2.exercise3;
+
+import de.hpi.dbs2.dbms.ColumnDefinition;
+import de.hpi.dbs2.dbms.DBMS;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import de.hpi.dbs2.dbms.utils.IOCostTracker;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import de.hpi.dbs2.exercise2.SecondaryIndex;
+import kotlin.Unit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class IndexNestedLoopEquiInnerJoinTests {
+    private final ColumnDefinition columnDefinition = new ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.STRING
+    );
+
+    private Relation createRelation(DBMS dbms, List<Integer> keys) {
+        Relation relation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+        RelationUtils.fill(relation, dbms.getBlockManager(), filler -> {
+            for (Integer key : keys) {
+                filler.add(new Tuple(2, key, "value" + key));
+            }
+        });
+        return relation;
+    }
+
+    private List<Tuple> sortedTuples(DBMS dbms, Relation relation) {
+        List<Tuple> tuples = new ArrayList<>();
+        RelationUtils.tupleIterator(relation, dbms.getBlockManager()).forEachRemaining(tuples::add);
+        tuples.sort(Comparator.comparing(Tuple::toString));
+        return tuples;
+    }
+
+    @Test
+    public void testSelectiveJoinOnlyLoadsMatchingBlocks() {
+        DBMS dbms = new DBMS(4, 4);
+        List<Integer> rightKeys = new ArrayList<>(IntStream.range(0, 400).boxed().toList());
+        Collections.shuffle(rightKeys, new Random(1));
+        Relation rightRelation = createRelation(dbms, rightKeys);
+        // duplicate, missing and null keys on the left side
+        Relation leftRelation = createRelation(dbms, Arrays.asList(7, 123, 7, 1000, null, 399));
+        SecondaryIndex<Integer> rightIndex = SecondaryIndex.create(dbms.getBlockManager(), rightRelation, 0, 8);
+
+        ColumnDefinition outputColumns = columnDefinition.plus(columnDefinition);
+        Relation expectedRelation = dbms.createRelation(dbms.getBlockManager(), outputColumns);
+        new NestedLoopEquiInnerJoin(dbms.getBlockManager(), 0, 0).join(leftRelation, rightRelation, expectedRelation);
+
+        IndexNestedLoopEquiInnerJoin<Integer> join = new IndexNestedLoopEquiInnerJoin<>(dbms.getBlockManager(), 0, rightIndex);
+        Relation outputRelation = dbms.createRelation(dbms.getBlockManager(), outputColumns);
+        int estimatedCost = join.estimatedIOCost(leftRelation, rightRelation);
+        IOCostTracker cost = dbms.trackIOCost(tracker -> {
+            join.join(leftRelation, rightRelation, outputRelation);
+            Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+            return Unit.INSTANCE;
+        });
+
+        Assertions.assertEquals(4, sortedTuples(dbms, outputRelation).size());
+        Assertions.assertEquals(sortedTuples(dbms, expectedRelation), sortedTuples(dbms, outputRelation));
+        // 2 left blocks and at most 3 right blocks with matches
+        Assertions.assertTrue(cost.getInputCost() <= 2 + 3, cost.toString());
+        Assertions.assertTrue(cost.getInputCost() <= estimatedCost, cost + " > " + estimatedCost);
+        Assertions.assertTrue(estimatedCost < new NestedLoopEquiInnerJoin(dbms.getBlockManager(), 0, 0)
+            .estimatedIOCost(leftRelation, rightRelation));
+    }
+
+    @Test
+    public void testJoinOnNonUniqueIndex() {
+        DBMS dbms = new DBMS(4, 4);
+        // every key appears 3 times on the right side
+        List<Integer> rightKeys = new ArrayList<>(IntStream.range(0, 300).map(i -> i % 100).boxed().toList());
+        Collections.shuffle(rightKeys, new Random(2));
+        Relation rightRelation = createRelation(dbms, rightKeys);
+        Relation leftRelation = createRelation(dbms, List.of(5, 50, 5, 500));
+        SecondaryIndex<Integer> rightIndex = SecondaryIndex.createNonUnique(dbms.getBlockManager(), rightRelation, 0, 8);
+
+        ColumnDefinition outputColumns = columnDefinition.plus(columnDefinition);
+        Relation expectedRelation = dbms.createRelation(dbms.getBlockManager(), outputColumns);
+        new NestedLoopEquiInnerJoin(dbms.getBlockManager(), 0, 0).join(leftRelation, rightRelation, expectedRelation);
+
+        IndexNestedLoopEquiInnerJoin<Integer> join = new IndexNestedLoopEquiInnerJoin<>(dbms.getBlockManager(), 0, rightIndex);
+        Relation outputRelation = dbms.createRelation(dbms.getBlockManager(), outputColumns);
+        IOCostTracker cost = dbms.trackIOCost(tracker -> {
+            join.join(leftRelation, rightRelation, outputRelation);
+            return Unit.INSTANCE;
+        });
+
+        Assertions.assertEquals(9, sortedTuples(dbms, outputRelation).size());
+        Assertions.assertEquals(sortedTuples(dbms, expectedRelation), sortedTuples(dbms, outputRelation));
+        // 1 left block and at most 6 right blocks with matches
+        Assertions.assertTrue(cost.getInputCost() <= 1 + 6, cost.toString());
+        Assertions.assertTrue(cost.getInputCost() <= join.estimatedIOCost(leftRelation, rightRelation));
+    }
+
+    @Test
+    public void testRejectsIndexOfOtherRelation() {
+        DBMS dbms = new DBMS(4, 4);
+        Relation relation = createRelation(dbms, List.of(1, 2, 3));
+        SecondaryIndex<Integer> index = SecondaryIndex.create(dbms.getBlockManager(), relation, 0, 4);
+        Relation otherRelation = createRelation(dbms, List.of(1, 2, 3));
+
+        IndexNestedLoopEquiInnerJoin<Integer> join = new IndexNestedLoopEquiInnerJoin<>(dbms.getBlockManager(), 0, index);
+        Relation outputRelation = dbms.createRelation(dbms.getBlockManager(), columnDefinition.plus(columnDefinition));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> join.join(relation, otherRelation, outputRelation));
+    }
+}
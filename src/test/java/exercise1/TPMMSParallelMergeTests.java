@@ -0,0 +1,150 @@
+package exercise1;
+
+import de.hpi.dbs2.dbms.ColumnDefinition;
+import de.hpi.dbs2.dbms.DBMS;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import de.hpi.dbs2.dbms.utils.IOCostTracker;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import kotlin.Unit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TPMMSParallelMergeTests {
+    private final ColumnDefinition columnDefinition = new ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.INTEGER
+    );
+
+    private Relation createRandomRelation(DBMS dbms, int tupleCount, int keyRange) {
+        Random random = new Random(1);
+        Relation relation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+        RelationUtils.fill(relation, dbms.getBlockManager(), filler -> {
+            for (int i = 0; i < tupleCount; i++) {
+                filler.add(new Tuple(2, random.nextInt(keyRange), i));
+            }
+        });
+        return relation;
+    }
+
+    private List<Tuple> collect(DBMS dbms, Relation relation) {
+        List<Tuple> tuples = new ArrayList<>();
+        RelationUtils.tupleIterator(relation, dbms.getBlockManager()).forEachRemaining(tuples::add);
+        return tuples;
+    }
+
+    private int sort(DBMS dbms, TPMMSJava sortOperation, Relation inputRelation, Relation outputRelation) {
+        IOCostTracker cost = dbms.trackIOCost(tracker -> {
+            Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+            sortOperation.execute(inputRelation, outputRelation);
+            Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+            return Unit.INSTANCE;
+        });
+        return cost.getIoCost();
+    }
+
+    private void assertSameKeyOrder(List<Tuple> expected, List<Tuple> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).get(0), actual.get(i).get(0));
+        }
+    }
+
+    @Test
+    public void testParallelMergeHasSameResultAsSequentialMerge() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // 200 tuples -> 50 blocks -> 3 runs of 20 blocks; 20 free blocks are enough for 3 workers
+            // 80 tuples -> 20 blocks -> 2 runs of 10 blocks; 10 free blocks are enough for 3 workers
+            int[][] cases = {{200, 20}, {80, 10}};
+            for (int[] testCase : cases) {
+                DBMS dbms = new DBMS(testCase[1], 4);
+                Relation inputRelation = createRandomRelation(dbms, testCase[0], 100);
+
+                TPMMSJava sequentialSort = new TPMMSJava(dbms.getBlockManager(), 0);
+                TPMMSJava parallelSort = new TPMMSJava(dbms.getBlockManager(), 0, executor, 3);
+                // the estimates only differ by the repeated reads of the workers after the first
+                int additionalReads = parallelSort.estimatedIOCost(inputRelation)
+                    - sequentialSort.estimatedIOCost(inputRelation);
+                Assertions.assertTrue(additionalReads > 0, testCase[0] + " tuples are merged by a single worker");
+
+                Relation sequentialOutput = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+                int sequentialCost = sort(dbms, sequentialSort, inputRelation, sequentialOutput);
+                Relation parallelOutput = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+                int parallelCost = sort(dbms, parallelSort, inputRelation, parallelOutput);
+
+                assertSameKeyOrder(collect(dbms, sequentialOutput), collect(dbms, parallelOutput));
+                Assertions.assertTrue(parallelCost <= sequentialCost + additionalReads);
+                Assertions.assertTrue(parallelCost <= parallelSort.estimatedIOCost(inputRelation));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelMergeKeepsDuplicateKeysInOneRange() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // only 3 distinct keys, so most splitters are duplicates
+            DBMS dbms = new DBMS(10, 4);
+            Relation inputRelation = createRandomRelation(dbms, 80, 3);
+            Relation outputRelation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+
+            sort(dbms, new TPMMSJava(dbms.getBlockManager(), 0, executor, 3), inputRelation, outputRelation);
+
+            List<Tuple> expected = collect(dbms, inputRelation);
+            expected.sort((tuple1, tuple2) -> Integer.compare((int) tuple1.get(0), (int) tuple2.get(0)));
+            assertSameKeyOrder(expected, collect(dbms, outputRelation));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyBlocksAreSkipped() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // 8 blocks -> 3 runs of 4 blocks merged sequentially, 20 blocks -> 3 runs of 8 blocks merged by 2 workers
+            int[][] cases = {{16, 4}, {40, 8}};
+            for (int[] testCase : cases) {
+                DBMS dbms = new DBMS(testCase[1], 2);
+                Relation inputRelation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+                inputRelation.getBlockOutput().move(dbms.getBlockManager().allocate(true));
+                Random random = new Random(1);
+                RelationUtils.fill(inputRelation, dbms.getBlockManager(), filler -> {
+                    for (int i = 0; i < testCase[0]; i++) {
+                        filler.add(new Tuple(2, random.nextInt(100), i));
+                    }
+                });
+                inputRelation.getBlockOutput().move(dbms.getBlockManager().allocate(true));
+
+                List<Tuple> expected = collect(dbms, inputRelation);
+                expected.sort((tuple1, tuple2) -> Integer.compare((int) tuple1.get(0), (int) tuple2.get(0)));
+                for (TPMMSJava sortOperation : List.of(
+                    new TPMMSJava(dbms.getBlockManager(), 0),
+                    new TPMMSJava(dbms.getBlockManager(), 0, executor, 3)
+                )) {
+                    Relation outputRelation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+                    sort(dbms, sortOperation, inputRelation, outputRelation);
+                    assertSameKeyOrder(expected, collect(dbms, outputRelation));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelMergeRequiresExecutor() {
+        DBMS dbms = new DBMS(10, 4);
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new TPMMSJava(dbms.getBlockManager(), 0, null, 2));
+    }
+}
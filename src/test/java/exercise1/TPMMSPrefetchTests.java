@@ -0,0 +1,100 @@
+package exercise1;
+
+import de.hpi.dbs2.dbms.ColumnDefinition;
+import de.hpi.dbs2.dbms.DBMS;
+import de.hpi.dbs2.dbms.Relation;
+import de.hpi.dbs2.dbms.Tuple;
+import de.hpi.dbs2.dbms.utils.IOCostTracker;
+import de.hpi.dbs2.dbms.utils.RelationUtils;
+import kotlin.Unit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TPMMSPrefetchTests {
+    private final ColumnDefinition columnDefinition = new ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.INTEGER
+    );
+
+    private Relation createRandomRelation(DBMS dbms, int tupleCount) {
+        Random random = new Random(1);
+        Relation relation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+        RelationUtils.fill(relation, dbms.getBlockManager(), filler -> {
+            for (int i = 0; i < tupleCount; i++) {
+                filler.add(new Tuple(2, random.nextInt(100), i));
+            }
+        });
+        return relation;
+    }
+
+    private void assertSorted(DBMS dbms, Relation relation, int expectedTupleCount) {
+        int tupleCount = 0;
+        Tuple previousTuple = null;
+        for (Tuple tuple : (Iterable<Tuple>) () -> RelationUtils.tupleIterator(relation, dbms.getBlockManager())) {
+            if (previousTuple != null) {
+                Assertions.assertTrue((int) previousTuple.get(0) <= (int) tuple.get(0));
+            }
+            previousTuple = tuple;
+            tupleCount++;
+        }
+        Assertions.assertEquals(expectedTupleCount, tupleCount);
+    }
+
+    private int sort(DBMS dbms, TPMMSJava sortOperation, Relation inputRelation, Relation outputRelation) {
+        IOCostTracker cost = dbms.trackIOCost(tracker -> {
+            Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+            sortOperation.execute(inputRelation, outputRelation);
+            Assertions.assertEquals(0, dbms.getBlockManager().getUsedBlocks());
+            return Unit.INSTANCE;
+        });
+        return cost.getIoCost();
+    }
+
+    @Test
+    public void testPrefetchingMergeHasSameResultAndCost() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 50 blocks -> 5 runs of 10 blocks; 4 runs get a second buffer in the merge phase
+            DBMS dbms = new DBMS(10, 4);
+            Relation inputRelation = createRandomRelation(dbms, 200);
+
+            Relation singleBufferedOutput = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+            int singleBufferedCost = sort(dbms,
+                new TPMMSJava(dbms.getBlockManager(), 0), inputRelation, singleBufferedOutput);
+
+            Relation doubleBufferedOutput = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+            int doubleBufferedCost = sort(dbms,
+                new TPMMSJava(dbms.getBlockManager(), 0, executor), inputRelation, doubleBufferedOutput);
+
+            assertSorted(dbms, doubleBufferedOutput, 200);
+            Assertions.assertEquals(3 * 50, doubleBufferedCost);
+            Assertions.assertEquals(singleBufferedCost, doubleBufferedCost);
+            Assertions.assertEquals(
+                singleBufferedOutput.estimatedBlockCount(), doubleBufferedOutput.estimatedBlockCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchingFallsBackWithoutSpareBlocks() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 6 blocks -> 2 runs of 3 blocks; no spare block for a second buffer
+            DBMS dbms = new DBMS(3, 2);
+            Relation inputRelation = createRandomRelation(dbms, 12);
+            Relation outputRelation = dbms.createRelation(dbms.getBlockManager(), columnDefinition);
+
+            int cost = sort(dbms, new TPMMSJava(dbms.getBlockManager(), 0, executor), inputRelation, outputRelation);
+
+            assertSorted(dbms, outputRelation, 12);
+            Assertions.assertEquals(3 * 6, cost);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
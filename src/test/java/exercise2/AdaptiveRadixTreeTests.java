@@ -0,0 +1,111 @@
+package exercise2;
+
+import de.hpi.dbs2.exercise2.AdaptiveRadixTree;
+import de.hpi.dbs2.exercise2.ValueReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class AdaptiveRadixTreeTests {
+    private static <V> List<V> toList(Iterator<V> iterator) {
+        List<V> values = new ArrayList<>();
+        iterator.forEachRemaining(values::add);
+        return values;
+    }
+
+    @Test
+    public void testRandomOperationsMatchBPlusTree() {
+        AdaptiveRadixTree<Integer, ValueReference> tree = new AdaptiveRadixTree<>(AdaptiveRadixTree.INTEGERS);
+        BPlusTreeJava expected = new BPlusTreeJava(4);
+        Random random = new Random(1);
+
+        for (int i = 0; i < 20_000; i++) {
+            // dense keys around 0 fill whole nodes, sparse keys need path compression
+            int key = (random.nextInt(4) == 0) ? random.nextInt() : random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), tree.remove(key));
+            } else {
+                ValueReference value = new ValueReference(i);
+                Assertions.assertEquals(expected.insert(key, value), tree.insert(key, value));
+            }
+        }
+        Assertions.assertEquals(expected.getEntries().count(), tree.size());
+        for (int key = -1100; key < 1100; key++) {
+            Assertions.assertEquals(expected.getOrNull(key), tree.getOrNull(key));
+        }
+        for (int i = 0; i < 100; i++) {
+            int lowerBound = random.nextInt(2200) - 1100;
+            int upperBound = lowerBound + random.nextInt(300);
+            Assertions.assertEquals(toList(expected.getRange(lowerBound, upperBound)),
+                toList(tree.getRange(lowerBound, upperBound)));
+        }
+        Assertions.assertEquals(toList(expected.getRange(Integer.MIN_VALUE, Integer.MAX_VALUE)),
+            toList(tree.getRange(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        Assertions.assertFalse(tree.getRange(10, -10).hasNext());
+    }
+
+    @Test
+    public void testNodesGrowAndShrink() {
+        AdaptiveRadixTree<Integer, ValueReference> tree = new AdaptiveRadixTree<>(AdaptiveRadixTree.INTEGERS);
+        // 256 children below a single inner node and the same below one of its children
+        for (int key = 0; key < 65536; key += 255) {
+            tree.insert(key, new ValueReference(key));
+        }
+        for (int key = 0; key < 65536; key += 255) {
+            Assertions.assertEquals(new ValueReference(key), tree.get(key));
+        }
+        for (int key = 0; key < 65536; key += 255) {
+            if (key % 2 == 0) {
+                Assertions.assertEquals(new ValueReference(key), tree.remove(key));
+            }
+        }
+        for (int key = 0; key < 65536; key += 255) {
+            Assertions.assertEquals((key % 2 == 0) ? null : new ValueReference(key), tree.getOrNull(key));
+        }
+        for (int key = 0; key < 65536; key += 255) {
+            tree.remove(key);
+        }
+        Assertions.assertEquals(0, tree.size());
+        Assertions.assertFalse(tree.getRange(Integer.MIN_VALUE, Integer.MAX_VALUE).hasNext());
+        Assertions.assertThrows(NoSuchElementException.class, () -> tree.get(0));
+    }
+
+    @Test
+    public void testStringKeysMayBePrefixesOfEachOther() {
+        AdaptiveRadixTree<String, Integer> tree = new AdaptiveRadixTree<>(AdaptiveRadixTree.STRINGS);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        List<String> keys = List.of("", "a", "ab", "abc", "abcd", "abd", "b", "ba", "\u0000", "a\u0000", "\uFFFF", "zz");
+        for (int i = 0; i < keys.size(); i++) {
+            tree.insert(keys.get(i), i);
+            expected.put(keys.get(i), i);
+        }
+        for (String key : keys) {
+            Assertions.assertEquals(expected.get(key), tree.get(key));
+        }
+        Assertions.assertNull(tree.getOrNull("abcde"));
+        Assertions.assertNull(tree.getOrNull("aa"));
+        Assertions.assertEquals(List.copyOf(expected.values()), toList(tree.getRange("", "\uFFFF\uFFFF")));
+        Assertions.assertEquals(List.copyOf(expected.subMap("ab", true, "b", true).values()),
+            toList(tree.getRange("ab", "b")));
+        Assertions.assertEquals(List.copyOf(expected.subMap("aa", true, "abcc", true).values()),
+            toList(tree.getRange("aa", "abcc")));
+
+        // removing the keys in between merges the inner nodes again
+        for (String key : List.of("ab", "abc", "a")) {
+            Assertions.assertEquals(expected.remove(key), tree.remove(key));
+        }
+        Assertions.assertNull(tree.remove("abc"));
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), tree.get(entry.getKey()));
+        }
+        Assertions.assertEquals(List.copyOf(expected.values()), toList(tree.getRange("", "\uFFFF\uFFFF")));
+        Assertions.assertEquals(expected.size(), tree.size());
+    }
+}
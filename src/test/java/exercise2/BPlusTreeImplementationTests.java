@@ -50,6 +50,121 @@ public class BPlusTreeImplementationTests {
         Assertions.assertIterableEquals(expectedEntries, entries);
     }
 
+    @Test
+    public void testTreeInsertOverwritesExistingKeys() {
+        AbstractBPlusTree tree = getImplementation(4);
+
+        // keys outside of the Integer cache must be compared by value
+        for (int key = 1000; key < 1020; key++) {
+            Assertions.assertNull(tree.insert(key, new ValueReference(key)));
+        }
+        for (int key = 1000; key < 1020; key++) {
+            Assertions.assertEquals(new ValueReference(key), tree.insert(key, new ValueReference(-key)));
+            Assertions.assertTrue(tree.isValid());
+        }
+        Assertions.assertEquals(20, tree.getEntries().count());
+        Assertions.assertEquals(new ValueReference(-1010), tree.get(1010));
+    }
+
+    private static void assertSameEntries(TreeMap<Integer, ValueReference> expected, AbstractBPlusTree tree) {
+        Assertions.assertIterableEquals(
+            expected.entrySet().stream()
+                .map(entry -> new AbstractBPlusTree.Entry(entry.getKey(), entry.getValue()))
+                .toList(),
+            tree.getEntries().toList()
+        );
+    }
+
+    @Test
+    public void testTreeRemoveRandomSet() {
+        for (int order : new int[]{3, 4}) {
+            AbstractBPlusTree tree = getImplementation(order);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            Random random = new Random(order);
+
+            List<Integer> keys = new ArrayList<>(IntStream.range(0, 200).boxed().toList());
+            Collections.shuffle(keys, random);
+            for (int key : keys) {
+                tree.insert(key, new ValueReference(key));
+                expected.put(key, new ValueReference(key));
+            }
+
+            Collections.shuffle(keys, random);
+            for (int key : keys) {
+                Assertions.assertEquals(expected.remove(key), tree.remove(key));
+                Assertions.assertNull(tree.remove(key));
+                Assertions.assertTrue(tree.isValid(), "order " + order + " after removing " + key);
+                Assertions.assertNull(tree.getOrNull(key));
+            }
+            assertSameEntries(expected, tree);
+            Assertions.assertEquals(0, tree.getHeight());
+
+            // the emptied tree can be filled again
+            tree.insert(1, new ValueReference(1));
+            Assertions.assertTrue(tree.isValid());
+        }
+    }
+
+    @Test
+    public void testTreeRemoveAll() {
+        AbstractBPlusTree tree = getImplementation(4);
+        TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+        for (int key = 0; key < 100; key++) {
+            tree.insert(key, new ValueReference(key));
+            expected.put(key, new ValueReference(key));
+        }
+
+        List<Integer> removedKeys = new ArrayList<>();
+        for (int key = 99; key >= 0; key -= 3) {
+            removedKeys.add(key);
+            expected.remove(key);
+        }
+        removedKeys.add(1000);
+        removedKeys.add(99);
+
+        Assertions.assertEquals(34, tree.removeAll(removedKeys));
+        Assertions.assertTrue(tree.isValid());
+        assertSameEntries(expected, tree);
+    }
+
+    @Test
+    public void testTreeInsertAllAndGetAll() {
+        for (int order : new int[]{3, 4, 5}) {
+            AbstractBPlusTree tree = getImplementation(order);
+            TreeMap<Integer, ValueReference> expected = new TreeMap<>();
+            for (int key = 0; key < 300; key += 3) {
+                tree.insert(key, new ValueReference(key));
+                expected.put(key, new ValueReference(key));
+            }
+
+            List<AbstractBPlusTree.Entry> sortedEntries = new ArrayList<>();
+            for (int key = 100; key < 400; key += 2) {
+                sortedEntries.add(new AbstractBPlusTree.Entry(key, new ValueReference(-key)));
+                expected.put(key, new ValueReference(-key));
+            }
+            // 150 keys, of which the 33 multiples of 6 below 300 are already contained
+            Assertions.assertEquals(150 - 33, tree.insertAll(sortedEntries.iterator()));
+            Assertions.assertTrue(tree.isValid(), "order " + order);
+            assertSameEntries(expected, tree);
+
+            int[] sortedKeys = IntStream.rangeClosed(-1, 400).toArray();
+            ValueReference[] values = tree.getAll(sortedKeys);
+            for (int i = 0; i < sortedKeys.length; i++) {
+                Assertions.assertEquals(expected.get(sortedKeys[i]), values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testTreeBatchOperationsRejectUnsortedKeys() {
+        AbstractBPlusTree tree = getImplementation(4);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.getAll(new int[]{1, 3, 2}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.insertAll(List.of(
+            new AbstractBPlusTree.Entry(2, new ValueReference(2)),
+            new AbstractBPlusTree.Entry(1, new ValueReference(1))
+        ).iterator()));
+    }
+
     @Test
     public void testTreeInsert() {
         AbstractBPlusTree expectedTree = new ReadOnlyBPlusTree(BPlusTreeNode.buildTree(4,
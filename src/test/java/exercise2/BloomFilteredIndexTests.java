@@ -0,0 +1,82 @@
+package exercise2;
+
+import de.hpi.dbs2.exercise2.AbstractBPlusTree;
+import de.hpi.dbs2.exercise2.BPlusTreeBulkLoader;
+import de.hpi.dbs2.exercise2.BloomFilter;
+import de.hpi.dbs2.exercise2.BloomFilteredIndex;
+import de.hpi.dbs2.exercise2.ValueReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+public class BloomFilteredIndexTests {
+    @Test
+    public void testFilterHasNoFalseNegativesAndConfiguredFalsePositiveRate() {
+        for (double falsePositiveRate : new double[]{0.1, 0.01}) {
+            BloomFilter filter = BloomFilter.withBitsPerKey(10_000, BloomFilter.bitsPerKey(falsePositiveRate));
+            for (int key = 0; key < 10_000; key++) {
+                filter.add(3 * key);
+            }
+            for (int key = 0; key < 10_000; key++) {
+                Assertions.assertTrue(filter.mightContain(3 * key));
+            }
+            long falsePositives = IntStream.range(0, 100_000)
+                .filter(key -> filter.mightContain(3 * key + 1))
+                .count();
+            Assertions.assertEquals(falsePositiveRate, filter.getExpectedFalsePositiveRate(), falsePositiveRate / 10);
+            Assertions.assertTrue(falsePositives < 100_000 * falsePositiveRate * 1.5,
+                falsePositives + " false positives");
+        }
+    }
+
+    @Test
+    public void testMissesAreAnsweredByFilter() {
+        // even keys, bulk loaded
+        BPlusTreeJava tree = new BPlusTreeJava(new BPlusTreeBulkLoader(8, 1.0).load(IntStream.range(0, 1000)
+            .mapToObj(i -> new AbstractBPlusTree.Entry(2 * i, new ValueReference(i)))
+            .iterator()));
+        BloomFilteredIndex index = BloomFilteredIndex.withFalsePositiveRate(tree, 0.01);
+
+        for (int key = 0; key < 2000; key++) {
+            Assertions.assertEquals(tree.getOrNull(key), index.getOrNull(key));
+        }
+        BloomFilteredIndex.Statistics statistics = index.getStatistics();
+        Assertions.assertEquals(2000, statistics.lookups());
+        Assertions.assertEquals(1000, statistics.hits());
+        Assertions.assertEquals(1000, statistics.filteredMisses() + statistics.falsePositives());
+        Assertions.assertTrue(statistics.falsePositives() < 50, statistics.toString());
+
+        index.resetStatistics();
+        ValueReference[] values = index.getAll(IntStream.range(0, 2000).toArray());
+        for (int key = 0; key < 2000; key++) {
+            Assertions.assertEquals(tree.getOrNull(key), values[key]);
+        }
+        Assertions.assertEquals(statistics, index.getStatistics());
+    }
+
+    @Test
+    public void testFilterFollowsInsertsAndRemovals() {
+        BloomFilteredIndex index = new BloomFilteredIndex(new BPlusTreeJava(4), 10);
+        long initialBitCount = index.getFilterBitCount();
+        // the filter grows with the tree instead of filling up
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertNull(index.insert(key, new ValueReference(key)));
+        }
+        Assertions.assertTrue(index.getFilterBitCount() > initialBitCount);
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertEquals(new ValueReference(key), index.get(key));
+        }
+        Assertions.assertEquals(0, index.getStatistics().falsePositives());
+
+        for (int key = 0; key < 900; key++) {
+            Assertions.assertEquals(new ValueReference(key), index.remove(key));
+        }
+        index.resetStatistics();
+        for (int key = 0; key < 1000; key++) {
+            Assertions.assertEquals((key < 900) ? null : new ValueReference(key), index.getOrNull(key));
+        }
+        // the removed keys have been dropped from the filter by rebuilding it
+        Assertions.assertTrue(index.getStatistics().falsePositives() < 50, index.getStatistics().toString());
+    }
+}
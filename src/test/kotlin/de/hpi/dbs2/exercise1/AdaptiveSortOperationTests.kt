@@ -0,0 +1,93 @@
+package de.hpi.dbs2.exercise1
+
+import de.hpi.dbs2.dbms.ColumnDefinition
+import de.hpi.dbs2.dbms.DBMS
+import de.hpi.dbs2.dbms.Relation
+import de.hpi.dbs2.dbms.utils.RelationUtils.loadCSV
+import de.hpi.dbs2.dbms.utils.RelationUtils.tupleIterator
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class AdaptiveSortOperationTests {
+    private val columnDefinition = ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.STRING,
+        ColumnDefinition.ColumnType.DOUBLE,
+    )
+
+    private fun DBMS.loadRelation(resource: String): Relation =
+        createRelation(blockManager, columnDefinition).apply {
+            loadCSV(
+                blockManager,
+                AdaptiveSortOperationTests::class.java.getResourceAsStream(resource)!!
+            )
+        }
+
+    /**
+     * @return the io cost of sorting the given input by column [sortColumnIndex]
+     */
+    private fun DBMS.assertSorted(inputResource: String, sortColumnIndex: Int): Int =
+        assertSorted(loadRelation(inputResource), sortColumnIndex)
+
+    private fun DBMS.assertSorted(inputRelation: Relation, sortColumnIndex: Int): Int {
+        val outputRelation = createRelation(blockManager, columnDefinition)
+        val operation = AdaptiveSortOperation(blockManager, sortColumnIndex)
+
+        val cost = trackIOCost {
+            assert(blockManager.usedBlocks == 0)
+            operation.execute(inputRelation, outputRelation)
+            assert(blockManager.usedBlocks == 0)
+        }
+
+        val controlRelation = loadRelation("/exercise1/sorted_by_col$sortColumnIndex.output.csv")
+        assertEquals(
+            controlRelation.tupleIterator(blockManager).asSequence().map { it[sortColumnIndex] }.toList(),
+            outputRelation.tupleIterator(blockManager).asSequence().map { it[sortColumnIndex] }.toList(),
+        )
+        return cost.ioCost
+    }
+
+    @Test
+    fun `unsorted input costs as much as TPMMS`() {
+        with(DBMS(totalBlocks = 3, blockCapacity = 2)) {
+            // 6 blocks read, 2 runs of 3 blocks written and read back
+            assertEquals(18, assertSorted("/exercise1/input.csv", sortColumnIndex = 0))
+            assertEquals(18, assertSorted("/exercise1/input.csv", sortColumnIndex = 2))
+        }
+    }
+
+    @Test
+    fun `sorted input forms a single run which is not written`() {
+        with(DBMS(totalBlocks = 3, blockCapacity = 2)) {
+            // 6 blocks read to find the run and read again to copy it
+            assertEquals(12, assertSorted("/exercise1/sorted_by_col0.output.csv", sortColumnIndex = 0))
+        }
+    }
+
+    @Test
+    fun `empty blocks are skipped`() {
+        with(DBMS(totalBlocks = 4, blockCapacity = 2)) {
+            fun loadRelationWithEmptyBlocks(resource: String): Relation =
+                createRelation(blockManager, columnDefinition).apply {
+                    getBlockOutput().move(blockManager.allocate(true))
+                    loadCSV(blockManager, AdaptiveSortOperationTests::class.java.getResourceAsStream(resource)!!)
+                    getBlockOutput().move(blockManager.allocate(true))
+                }
+
+            // 8 blocks read, the 6 non-empty blocks written as 2 runs and read back
+            val unsortedInput = loadRelationWithEmptyBlocks("/exercise1/input.csv")
+            assertEquals(20, assertSorted(unsortedInput, sortColumnIndex = 0))
+            // 8 blocks read to find the run and 6 non-empty blocks read again to copy it
+            val sortedInput = loadRelationWithEmptyBlocks("/exercise1/sorted_by_col0.output.csv")
+            assertEquals(14, assertSorted(sortedInput, sortColumnIndex = 0))
+        }
+    }
+
+    @Test
+    fun `input fitting in memory is read once`() {
+        with(DBMS(totalBlocks = 7, blockCapacity = 2)) {
+            assertEquals(6, assertSorted("/exercise1/input.csv", sortColumnIndex = 0))
+            assertEquals(6, assertSorted("/exercise1/sorted_by_col0.output.csv", sortColumnIndex = 0))
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.hpi.dbs2.exercise1
+
+import de.hpi.dbs2.dbms.ColumnDefinition
+import de.hpi.dbs2.dbms.DBMS
+import de.hpi.dbs2.dbms.Relation
+import de.hpi.dbs2.dbms.Tuple
+import de.hpi.dbs2.dbms.utils.RelationUtils.fill
+import de.hpi.dbs2.dbms.utils.RelationUtils.tupleIterator
+import de.hpi.dbs2.exercise1.SortGroupByOperation.AggregateFunction
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class SortAggregateOperationTests {
+    private val columnDefinition = ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.DOUBLE,
+    )
+
+    // 12 tuples in 6 blocks with 3 distinct keys and 2 duplicate tuples
+    private val tuples = listOf(
+        Tuple(2, 3, 1.0), Tuple(2, 1, 2.0),
+        Tuple(2, 2, 3.0), Tuple(2, 1, 2.0),
+        Tuple(2, 3, 5.0), Tuple(2, 2, -1.0),
+        Tuple(2, 1, 4.0), Tuple(2, 3, 1.0),
+        Tuple(2, 2, 0.5), Tuple(2, 1, 8.0),
+        Tuple(2, 3, 2.0), Tuple(2, 2, 3.5),
+    )
+
+    private fun DBMS.createInputRelation(): Relation =
+        createRelation(blockManager, columnDefinition).apply {
+            fill(blockManager) { filler ->
+                tuples.forEach { filler.add(it) }
+            }
+        }
+
+    private fun DBMS.executeAndCollect(
+        operation: SortAggregateOperation,
+        inputRelation: Relation = createInputRelation(),
+    ): Pair<List<Tuple>, Int> {
+        val outputRelation = createRelation(blockManager, operation.buildOutputColumns(inputRelation))
+        val cost = trackIOCost {
+            assert(blockManager.usedBlocks == 0)
+            operation.execute(inputRelation, outputRelation)
+            assert(blockManager.usedBlocks == 0)
+        }
+        return outputRelation.tupleIterator(blockManager).asSequence().toList() to cost.ioCost
+    }
+
+    private fun expectedGroups(aggregate: (List<Double>) -> Any): List<Tuple> =
+        tuples.groupBy({ it[0] as Int }, { it[1] as Double })
+            .toSortedMap()
+            .map { (key, values) -> Tuple(2, key, aggregate(values)) }
+
+    @Test
+    fun `distinct removes duplicates in memory and with runs`() {
+        val expected = tuples.distinct().sortedWith(compareBy({ it[0] as Int }, { it[1] as Double }))
+
+        with(DBMS(totalBlocks = 8, blockCapacity = 2)) {
+            val (output, ioCost) = executeAndCollect(SortDistinctOperation(blockManager))
+            assertEquals(expected, output)
+            assertEquals(6, ioCost)
+        }
+        with(DBMS(totalBlocks = 4, blockCapacity = 2)) {
+            val (output, _) = executeAndCollect(SortDistinctOperation(blockManager))
+            assertEquals(expected, output)
+        }
+    }
+
+    @Test
+    fun `group by aggregates every function`() {
+        val expectedByFunction = mapOf(
+            AggregateFunction.COUNT to expectedGroups { it.size },
+            AggregateFunction.SUM to expectedGroups { it.sum() },
+            AggregateFunction.MIN to expectedGroups { it.min() },
+            AggregateFunction.MAX to expectedGroups { it.max() },
+        )
+        expectedByFunction.forEach { (function, expected) ->
+            with(DBMS(totalBlocks = 4, blockCapacity = 2)) {
+                val (output, _) = executeAndCollect(SortGroupByOperation(blockManager, 0, function, 1))
+                assertEquals(expected, output, function.name)
+            }
+        }
+    }
+
+    @Test
+    fun `group by collapses runs before writing them`() {
+        with(DBMS(totalBlocks = 4, blockCapacity = 2)) {
+            val operation = SortGroupByOperation(blockManager, 0, AggregateFunction.COUNT, 1)
+            val (output, ioCost) = executeAndCollect(operation)
+            assertEquals(expectedGroups { it.size }, output)
+
+            // 6 blocks read, 2 runs of 3 groups (2 blocks each) written and read back
+            assertEquals(6 + 2 * 2 * 2, ioCost)
+            assertTrue(ioCost < operation.estimatedIOCost(createInputRelation()))
+        }
+    }
+
+    @Test
+    fun `sum of an integer column does not overflow`() {
+        val integerColumns = ColumnDefinition(ColumnDefinition.ColumnType.INTEGER, ColumnDefinition.ColumnType.INTEGER)
+        val largeTuples = listOf(
+            Tuple(2, 1, Int.MAX_VALUE), Tuple(2, 2, Int.MIN_VALUE),
+            Tuple(2, 1, Int.MAX_VALUE), Tuple(2, 2, Int.MIN_VALUE),
+            Tuple(2, 2, -1), Tuple(2, 1, 1),
+            Tuple(2, 1, Int.MAX_VALUE), Tuple(2, 2, Int.MIN_VALUE),
+        )
+        val expected = listOf(
+            Tuple(2, 1, 3L * Int.MAX_VALUE + 1),
+            Tuple(2, 2, 3L * Int.MIN_VALUE - 1),
+        )
+
+        // in memory and with 2 runs, whose partial sums overflow as well
+        for (totalBlocks in listOf(8, 3)) {
+            with(DBMS(totalBlocks = totalBlocks, blockCapacity = 2)) {
+                val inputRelation = createRelation(blockManager, integerColumns).apply {
+                    fill(blockManager) { filler ->
+                        largeTuples.forEach { filler.add(it) }
+                    }
+                }
+                val operation = SortGroupByOperation(blockManager, 0, AggregateFunction.SUM, 1)
+                val outputColumns = operation.buildOutputColumns(inputRelation)
+                assertEquals(ColumnDefinition.ColumnType.LONG, outputColumns.getColumnType(1))
+                val (output, _) = executeAndCollect(operation, inputRelation)
+                assertEquals(expected, output, "$totalBlocks blocks")
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.hpi.dbs2.exercise1
+
+import de.hpi.dbs2.dbms.ColumnDefinition
+import de.hpi.dbs2.dbms.DBMS
+import de.hpi.dbs2.dbms.Relation
+import de.hpi.dbs2.dbms.utils.RelationUtils.loadCSV
+import de.hpi.dbs2.dbms.utils.RelationUtils.tupleIterator
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class TopKSortOperationTests {
+    private val columnDefinition = ColumnDefinition(
+        ColumnDefinition.ColumnType.INTEGER,
+        ColumnDefinition.ColumnType.STRING,
+        ColumnDefinition.ColumnType.DOUBLE,
+    )
+
+    private fun DBMS.loadRelation(resource: String): Relation =
+        createRelation(blockManager, columnDefinition).apply {
+            loadCSV(
+                blockManager,
+                TopKSortOperationTests::class.java.getResourceAsStream(resource)!!
+            )
+        }
+
+    /**
+     * @return the actual and the estimated io cost
+     */
+    private fun DBMS.assertTopK(sortColumnIndex: Int, limit: Int): Pair<Int, Int> {
+        val inputRelation = loadRelation("/exercise1/input.csv")
+        val outputRelation = createRelation(blockManager, columnDefinition)
+        val operation = TopKSortOperation(blockManager, sortColumnIndex, limit)
+
+        val cost = trackIOCost {
+            assert(blockManager.usedBlocks == 0)
+            operation.execute(inputRelation, outputRelation)
+            assert(blockManager.usedBlocks == 0)
+        }
+
+        val controlRelation = loadRelation("/exercise1/sorted_by_col$sortColumnIndex.output.csv")
+        assertEquals(
+            controlRelation.tupleIterator(blockManager).asSequence().toList().take(limit),
+            outputRelation.tupleIterator(blockManager).asSequence().toList(),
+        )
+        return cost.ioCost to operation.estimatedIOCost(inputRelation)
+    }
+
+    @Test
+    fun `top k fitting in memory is selected in a single scan`() {
+        with(DBMS(totalBlocks = 3, blockCapacity = 2)) {
+            assertEquals(6 to 6, assertTopK(sortColumnIndex = 0, limit = 3))
+            assertEquals(6 to 6, assertTopK(sortColumnIndex = 2, limit = 4))
+        }
+    }
+
+    @Test
+    fun `top k exceeding memory is selected by truncated runs`() {
+        with(DBMS(totalBlocks = 3, blockCapacity = 2)) {
+            // 6 blocks read, 2 runs of 3 blocks written and read back
+            assertEquals(18 to 18, assertTopK(sortColumnIndex = 2, limit = 12))
+
+            // the second run is cut off at the 5th smallest tuple of the first run
+            val (ioCost, estimatedIOCost) = assertTopK(sortColumnIndex = 0, limit = 5)
+            assertEquals(18, estimatedIOCost)
+            assertTrue(ioCost < estimatedIOCost)
+        }
+    }
+
+    @Test
+    fun `top 0 reads nothing`() {
+        with(DBMS(totalBlocks = 3, blockCapacity = 2)) {
+            assertEquals(0 to 0, assertTopK(sortColumnIndex = 0, limit = 0))
+        }
+    }
+
+    @Test
+    fun `estimate without free blocks does not divide by zero`() {
+        with(DBMS(totalBlocks = 3, blockCapacity = 2)) {
+            val inputRelation = loadRelation("/exercise1/input.csv")
+            val operation = TopKSortOperation(blockManager, 0, 5)
+            val usedBlocks = List(blockManager.freeBlocks) { blockManager.allocate(true) }
+
+            assertEquals(6, operation.estimatedIOCost(inputRelation))
+            usedBlocks.forEach { blockManager.release(it, false) }
+        }
+    }
+}
@@ -111,6 +111,54 @@ class TPMMSExerciseTests {
         }
     }
 
+    @Test
+    fun `TPMMS sorts relation fitting into memory without runs`() {
+        val columnDefinition = ColumnDefinition(
+            ColumnDefinition.ColumnType.INTEGER,
+            ColumnDefinition.ColumnType.STRING,
+            ColumnDefinition.ColumnType.DOUBLE,
+        )
+
+        with(
+            DBMS(
+                totalBlocks = 7,
+                blockCapacity = 2
+            )
+        ) {
+            val inputRelation = createRelation(
+                blockManager, columnDefinition,
+            ).apply {
+                loadCSV(
+                    blockManager,
+                    TPMMSExerciseTests::class.java.getResourceAsStream("input.csv")!!
+                )
+            }
+            val outputRelation = createRelation(
+                blockManager, columnDefinition
+            )
+            val sortOperation = getImplementation(blockManager, 0)
+
+            val cost = trackIOCost {
+                assert(blockManager.usedBlocks == 0)
+                sortOperation.execute(inputRelation, outputRelation)
+                assert(blockManager.usedBlocks == 0)
+            }
+
+            val controlRelation = createRelation(
+                blockManager, columnDefinition
+            ).apply {
+                loadCSV(
+                    blockManager,
+                    TPMMSExerciseTests::class.java.getResourceAsStream("sorted_by_col0.output.csv")!!
+                )
+            }
+            assertEquals(controlRelation.joinToString(), outputRelation.joinToString())
+
+            assertEquals(6, cost.ioCost)
+            assertEquals(6, sortOperation.estimatedIOCost(inputRelation))
+        }
+    }
+
     @Test
     fun `TPMMS returns error when relation is too large to sort`() {
         val columnDefinition = ColumnDefinition(